@@ -0,0 +1,376 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * The BenchmarkRunner times small pieces of the simulation. Each benchmark is run
+ * over and over for a number of warmup iterations, which are thrown away, and then
+ * for a number of measured iterations of a fixed length. It reports the throughput
+ * (operations per second, with the spread across iterations), the bytes allocated
+ * per operation and per second, and the number of and time spent in garbage
+ * collections during the measured iterations.
+ *
+ * The measured iterations can be split into rounds: every benchmark is measured once
+ * per round, so each benchmark's iterations are spread over the whole run and its
+ * error also covers the machine getting faster or slower during it. Baselines
+ * should be recorded this way, since a baseline recorded while the machine was
+ * briefly fast would flag every later run.
+ *
+ * Results can be written to a baseline file and later compared against it; a
+ * benchmark is flagged as a regression when its throughput falls below its baseline
+ * by more than both a number of times the combined error of the two measurements
+ * and the tolerance.
+ *
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * A single benchmark. setup() is called once before the warmup; run() is the
+	 * operation being timed, and should return something computed from its work so
+	 * it can't be optimized away.
+	 */
+	public static abstract class Benchmark {
+		private
+			String name;
+			int warmups = 0;
+
+		public Benchmark(String n) {
+			name = n;
+		}
+
+		/**
+		 * Constructor for a benchmark that takes longer than the others to warm up.
+		 * @param n The name of the benchmark.
+		 * @param w The least number of warmup iterations it gets, whatever the runner's.
+		 */
+		public Benchmark(String n, int w) {
+			name = n;
+			warmups = w;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getWarmups() {
+			return warmups;
+		}
+
+		public void setup() {
+			return;
+		}
+
+		public abstract long run();
+	}
+
+	/**
+	 * The measurements of one benchmark.
+	 */
+	public static class Result {
+		String name;
+		double opsPerSecond;
+		double error;
+		double bytesPerOp;
+		double allocRate;
+		long gcCount;
+		long gcTime;
+	}
+
+	/**
+	 * What has been measured of one benchmark so far, over every round.
+	 */
+	private static class Measurement {
+		Benchmark benchmark;
+		ArrayList<Double> rates = new ArrayList<Double>(0);
+		long ops = 0;
+		long time = 0;
+		long bytes = 0;
+		long gcCount = 0;
+		long gcTime = 0;
+
+		Measurement(Benchmark benchmark) {
+			this.benchmark = benchmark;
+		}
+
+		/**
+		 * Sums up the measurements: the mean throughput of the iterations and its
+		 * spread (the sample standard deviation), and the totals of the rest.
+		 */
+		Result toResult() {
+			Result result = new Result();
+			result.name = benchmark.getName();
+			double mean = 0;
+			for (double rate : rates)
+				mean += rate;
+			mean /= rates.size();
+			double variance = 0;
+			for (double rate : rates)
+				variance += (rate - mean) * (rate - mean);
+			result.opsPerSecond = mean;
+			result.error = (rates.size() > 1) ? Math.sqrt(variance / (rates.size() - 1)) : 0;
+			result.bytesPerOp = (bytes >= 0) ? bytes / (double)ops : Double.NaN;
+			result.allocRate = (bytes >= 0) ? bytes / (time / 1e9) / (1 << 20) : Double.NaN;
+			result.gcCount = gcCount;
+			result.gcTime = gcTime;
+			return result;
+		}
+	}
+
+	private
+		ArrayList<Benchmark> benchmarks = new ArrayList<Benchmark>(0);
+		int warmups = 3;
+		int iterations = 5;
+		int rounds = 1;
+		long iterationTime = 1000;
+		double tolerance = 0.10;
+		double errorWidth = 3;
+		long sink = 0;
+
+	/**
+	 * Adds a benchmark to the run.
+	 * @param benchmark The benchmark.
+	 */
+	public void add(Benchmark benchmark) {
+		benchmarks.add(benchmark);
+		return;
+	}
+
+	/**
+	 * Sets the number and length of the iterations.
+	 * @param w The number of warmup iterations.
+	 * @param i The number of measured iterations, at least 1.
+	 * @param millis The length of each iteration in milliseconds.
+	 */
+	public void setIterations(int w, int i, long millis) {
+		warmups = Math.max(0, w);
+		iterations = Math.max(1, i);
+		iterationTime = Math.max(1, millis);
+		return;
+	}
+
+	/**
+	 * Sets the number of rounds the measured iterations are split into. Each round
+	 * measures every benchmark for the full number of iterations; the warmup is only
+	 * done in the first.
+	 * @param r The number of rounds, at least 1.
+	 */
+	public void setRounds(int r) {
+		rounds = Math.max(1, r);
+		return;
+	}
+
+	/**
+	 * Sets how many times the combined error a benchmark can fall below its baseline
+	 * without being flagged. Every benchmark is compared, so with a width of 1 a run
+	 * of unchanged code would usually flag one of them.
+	 * @param w The number of combined errors.
+	 */
+	public void setErrorWidth(double w) {
+		errorWidth = w;
+		return;
+	}
+
+	/**
+	 * Sets how far below its baseline a benchmark can always fall without being
+	 * flagged, however small the errors of the measurements are.
+	 * @param t The tolerance, as a fraction of the baseline throughput.
+	 */
+	public void setTolerance(double t) {
+		tolerance = t;
+		return;
+	}
+
+	/**
+	 * Runs every benchmark whose name contains one of the filters, printing each
+	 * result as its last round finishes.
+	 * @param filters The name filters; none runs every benchmark.
+	 * @return The results, in the order the benchmarks were added.
+	 */
+	public ArrayList<Result> run(String[] filters) {
+		ArrayList<Measurement> measurements = new ArrayList<Measurement>(0);
+		for (Benchmark benchmark : benchmarks) {
+			if (matches(benchmark.getName(), filters))
+				measurements.add(new Measurement(benchmark));
+		}
+
+		ArrayList<Result> results = new ArrayList<Result>(0);
+		System.out.println(header());
+		for (int round = 0; round < rounds; round++) {
+			for (Measurement measurement : measurements) {
+				if (round == 0) {
+					measurement.benchmark.setup();
+					int w = Math.max(warmups, measurement.benchmark.getWarmups());
+					for (int i = 0; i < w; i++)
+						iterate(measurement.benchmark);
+				}
+				measure(measurement);
+				if (round == rounds - 1) {
+					Result result = measurement.toResult();
+					results.add(result);
+					System.out.println(format(result));
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Prints how a set of results compares to a baseline. The combined error is the
+	 * square root of the sum of the squared errors of the baseline and the result, so
+	 * a benchmark that is noisy in either run has to fall further to be flagged.
+	 * Baselines without an error column are taken to have none.
+	 * @param results The results.
+	 * @param baseline The baseline file.
+	 * @return The number of regressions.
+	 * @throws IOException If the baseline can't be read.
+	 */
+	public int compare(ArrayList<Result> results, File baseline) throws IOException {
+		HashMap<String, double[]> base = new HashMap<String, double[]>();
+		BufferedReader in = new BufferedReader(new FileReader(baseline));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.trim().split("\\s+");
+				if (fields.length < 2 || fields[0].startsWith("#") || fields[0].equals("benchmark"))
+					continue;
+				double error = (fields.length > 2) ? Double.parseDouble(fields[2]) : 0;
+				base.put(fields[0], new double[] { Double.parseDouble(fields[1]), error });
+			}
+		}
+		finally {
+			in.close();
+		}
+
+		int regressions = 0;
+		System.out.println();
+		System.out.println(String.format(Locale.ROOT, "%-32s %14s %14s %8s %8s", "benchmark", "baseline", "now", "change",
+				"error"));
+		for (Result result : results) {
+			double[] before = base.get(result.name);
+			if (before == null) {
+				System.out.println(String.format(Locale.ROOT, "%-32s %14s %14.1f %8s", result.name, "-", result.opsPerSecond, "new"));
+				continue;
+			}
+			double change = result.opsPerSecond/before[0] - 1;
+			double error = Math.sqrt(before[1]*before[1] + result.error*result.error) / before[0];
+			boolean regressed = change < -Math.max(errorWidth*error, tolerance);
+			if (regressed)
+				regressions++;
+			System.out.println(String.format(Locale.ROOT, "%-32s %14.1f %14.1f %+7.1f%% %7.1f%%%s", result.name, before[0],
+					result.opsPerSecond, 100*change, 100*error, regressed ? "  REGRESSION" : ""));
+		}
+		return regressions;
+	}
+
+	/**
+	 * Writes a set of results in the baseline format.
+	 * @param results The results.
+	 * @param file The file to write.
+	 * @throws IOException If the file can't be written.
+	 */
+	public void write(ArrayList<Result> results, File file) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		try {
+			out.println("# " + System.getProperty("java.vm.name") + " " + System.getProperty("java.version") + ", "
+					+ Runtime.getRuntime().availableProcessors() + " cpus, " + warmups + "x" + iterationTime + "ms warmup, "
+					+ rounds + "x" + iterations + "x" + iterationTime + "ms measured");
+			out.println(header());
+			for (Result result : results)
+				out.println(format(result));
+		}
+		finally {
+			out.close();
+		}
+		return;
+	}
+
+	/**
+	 * Measures one round of a benchmark.
+	 */
+	private void measure(Measurement measurement) {
+		long bytesBefore = allocatedBytes();
+		long gcCountBefore = gcCount();
+		long gcTimeBefore = gcTime();
+		for (int i = 0; i < iterations; i++) {
+			long start = System.nanoTime();
+			long ops = iterate(measurement.benchmark);
+			long time = System.nanoTime() - start;
+			measurement.rates.add(ops / (time / 1e9));
+			measurement.ops += ops;
+			measurement.time += time;
+		}
+		if (bytesBefore < 0 || measurement.bytes < 0)
+			measurement.bytes = -1;
+		else
+			measurement.bytes += allocatedBytes() - bytesBefore;
+		measurement.gcCount += gcCount() - gcCountBefore;
+		measurement.gcTime += gcTime() - gcTimeBefore;
+		return;
+	}
+
+	/**
+	 * Runs a benchmark for one iteration.
+	 * @return The number of operations run.
+	 */
+	private long iterate(Benchmark benchmark) {
+		long end = System.nanoTime() + iterationTime*1000000;
+		long ops = 0;
+		do {
+			sink += benchmark.run();
+			ops++;
+		} while (System.nanoTime() < end);
+		return ops;
+	}
+
+	private static boolean matches(String name, String[] filters) {
+		if (filters == null || filters.length == 0)
+			return true;
+		for (String filter : filters) {
+			if (name.contains(filter))
+				return true;
+		}
+		return false;
+	}
+
+	private static String header() {
+		return String.format(Locale.ROOT, "%-32s %14s %12s %12s %10s %6s %8s", "benchmark", "ops/s", "error",
+				"B/op", "MB/s", "gcs", "gc ms");
+	}
+
+	private static String format(Result result) {
+		return String.format(Locale.ROOT, "%-32s %14.1f %12.1f %12.1f %10.1f %6d %8d", result.name, result.opsPerSecond,
+				result.error, result.bytesPerOp, result.allocRate, result.gcCount, result.gcTime);
+	}
+
+	/**
+	 * Gets the bytes allocated by the current thread so far, or -1 if the JVM can't say.
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			count += Math.max(0, gc.getCollectionCount());
+		return count;
+	}
+
+	private static long gcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			time += Math.max(0, gc.getCollectionTime());
+		return time;
+	}
+}
@@ -0,0 +1,116 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * The IslandHarness measures how island evolution (see IslandEvolution) changes the
+ * cost of evolving an EvolvingPlayer. For every island count it runs the evolution
+ * with several seeds on the standard map against the four heuristic AIs, and reports
+ * how many epochs the runs took, how many games were played on all the islands
+ * together and on each island, and the wall time. One island of one player is the
+ * plain single-player evolution, so the first row is the baseline for the others.
+ *
+ * Usage: java IslandHarness [-islands 1,2,4,8] [-population n] [-threads n]
+ * [-seeds n] [-epochs n] [-games n] [-rates learning,mutation] [-out file]
+ *
+ * By default every island gets its own thread. The games per island are what one
+ * thread has to play when every island has a core of its own; the wall time is only
+ * what this machine managed with the threads it was given, so it shows a speedup only
+ * when there are as many cores as threads.
+ *
+ */
+public class IslandHarness {
+
+	/**
+	 * The seed the seed of each run is derived from.
+	 */
+	static final long SEED = 20141113;
+
+	public static void main(String[] args) throws IOException {
+		int[] islandCounts = { 1, 2, 4, 8 };
+		int population = 1;
+		int threads = 0;
+		int seeds = 8;
+		int maxEpochs = 1000;
+		int epochGames = 10;
+		double learning = 0.2;
+		double mutation = 3;
+		String out = null;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-islands")) {
+				String[] fields = args[++i].split(",");
+				islandCounts = new int[fields.length];
+				for (int s = 0; s < fields.length; s++)
+					islandCounts[s] = Integer.parseInt(fields[s].trim());
+			}
+			else if (args[i].equals("-population"))
+				population = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-threads"))
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-seeds"))
+				seeds = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-epochs"))
+				maxEpochs = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-games"))
+				epochGames = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-rates")) {
+				String[] fields = args[++i].split(",");
+				learning = Double.parseDouble(fields[0].trim());
+				mutation = Double.parseDouble(fields[1].trim());
+			}
+			else if (args[i].equals("-out"))
+				out = args[++i];
+			else
+				throw new IllegalArgumentException("ISLAND ERROR: Unknown option " + args[i] + "!");
+		}
+
+		GameMap map = new GameMap(SimBenchmarks.RISK_MAP);
+		LineUp opponents = new LineUp() {
+			public Player[] createPlayers() {
+				return new Player[] { new DefensivePlayer("Defensive"), new AggressivePlayer("Aggressive"),
+						new BalancedPlayer("Balanced"), new WallPlayer("Wall") };
+			}
+		};
+
+		PrintWriter csv = (out != null) ? new PrintWriter(new FileWriter(out)) : null;
+		if (csv != null)
+			csv.println("islands,population,threads,seeds,evolved,epochs,games,games_per_island,seconds");
+		System.out.println(String.format(Locale.ROOT, "%7s %10s %7s %8s %8s %10s %12s %9s", "islands", "population",
+				"threads", "evolved", "epochs", "games", "games/island", "seconds"));
+
+		for (int islands : islandCounts) {
+			int t = (threads > 0) ? threads : islands;
+			int evolved = 0;
+			double epochs = 0;
+			double games = 0;
+			double seconds = 0;
+			for (int s = 0; s < seeds; s++) {
+				IslandEvolution evolution = new IslandEvolution(islands, population, opponents);
+				evolution.setRates(learning, mutation);
+				evolution.setEpochGames(epochGames);
+				evolution.setThreads(t);
+				evolution.setSeed(GameRandom.seedFor(SEED, s));
+				long start = System.nanoTime();
+				evolution.run(map, maxEpochs);
+				seconds += (System.nanoTime() - start) / 1e9;
+				if (evolution.hasEvolved())
+					evolved++;
+				epochs += evolution.getEpochs();
+				games += evolution.getGamesPlayed();
+			}
+			epochs /= seeds;
+			games /= seeds;
+			seconds /= seeds;
+			System.out.println(String.format(Locale.ROOT, "%7d %10d %7d %4d/%-3d %8.1f %10.1f %12.1f %9.3f", islands,
+					population, t, evolved, seeds, epochs, games, games / islands, seconds));
+			if (csv != null) {
+				csv.println(String.format(Locale.ROOT, "%d,%d,%d,%d,%d,%.1f,%.1f,%.1f,%.4f", islands, population, t,
+						seeds, evolved, epochs, games, games / islands, seconds));
+				csv.flush();
+			}
+		}
+		if (csv != null)
+			csv.close();
+	}
+}
@@ -0,0 +1,166 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * The MonteCarloHarness measures the MonteCarloPlayer against the heuristic AIs. It
+ * plays the same seeded games on the standard map twice: once with a WallPlayer in
+ * the first seat, as a reference, and once with a MonteCarloPlayer in its place, the
+ * other seats being a DefensivePlayer, AggressivePlayer, BalancedPlayer and
+ * WallPlayer both times. It reports each seat's wins, the games that reached the turn
+ * limit, the seconds per game, and the Monte Carlo player's playouts per second.
+ *
+ * Usage: java MonteCarloHarness [-games n] [-playouts n] [-millis n] [-horizon n]
+ * [-threads n] [-turns n] [-out file]
+ *
+ * The playouts, time, horizon and threads are the Monte Carlo player's budget for
+ * each decision (see MonteCarloPlayer); by default it uses its own. The games are
+ * played one after the other, so with -threads the searches have the cores to
+ * themselves. -out writes the results as CSV.
+ *
+ */
+public class MonteCarloHarness {
+
+	/**
+	 * The seed the seed of each game is derived from.
+	 */
+	static final long SEED = 20141113;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int games = 50;
+		int budget = 0;
+		long millis = -1;
+		int horizon = -1;
+		int threads = 1;
+		int maxTurns = 500;
+		String out = null;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-games"))
+				games = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-playouts"))
+				budget = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-millis"))
+				millis = Long.parseLong(args[++i]);
+			else if (args[i].equals("-horizon"))
+				horizon = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-threads"))
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-turns"))
+				maxTurns = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-out"))
+				out = args[++i];
+			else
+				throw new IllegalArgumentException("SEARCH ERROR: Unknown option " + args[i] + "!");
+		}
+
+		final int playouts = budget;
+		final long time = millis;
+		final int rounds = horizon;
+		final int workers = threads;
+		final ArrayList<MonteCarloPlayer> searchers = new ArrayList<MonteCarloPlayer>(0);
+		LineUp reference = new LineUp() {
+			public Player[] createPlayers() {
+				return new Player[] { new WallPlayer("First seat"), new DefensivePlayer("Defensive"),
+						new AggressivePlayer("Aggressive"), new BalancedPlayer("Balanced"), new WallPlayer("Wall") };
+			}
+		};
+		LineUp searching = new LineUp() {
+			public Player[] createPlayers() {
+				MonteCarloPlayer searcher = new MonteCarloPlayer("First seat");
+				if (playouts > 0)
+					searcher.setPlayoutBudget(playouts);
+				if (time >= 0)
+					searcher.setTimeBudget(time);
+				if (rounds >= 0)
+					searcher.setHorizon(rounds);
+				searcher.setThreads(workers);
+				synchronized (searchers) {
+					searchers.add(searcher);
+				}
+				return new Player[] { searcher, new DefensivePlayer("Defensive"), new AggressivePlayer("Aggressive"),
+						new BalancedPlayer("Balanced"), new WallPlayer("Wall") };
+			}
+		};
+
+		GameMap map = new GameMap(SimBenchmarks.RISK_MAP);
+		PrintWriter csv = (out != null) ? new PrintWriter(new FileWriter(out)) : null;
+		if (csv != null)
+			csv.println("first_seat,seat,games,wins,timeouts,seconds_per_game,playouts_per_second");
+		System.out.println(String.format(Locale.ROOT, "%-17s %-10s %6s %6s %6s %9s %12s", "first seat", "seat", "games",
+				"wins", "ties", "s/game", "playouts/s"));
+
+		String[] names = { "WallPlayer", "MonteCarloPlayer" };
+		LineUp[] lineUps = { reference, searching };
+		for (int l = 0; l < lineUps.length; l++) {
+			String[] seats = new String[0];
+			ArrayList<String> seatNames = new ArrayList<String>(0);
+			for (Player player : lineUps[l].createPlayers())
+				seatNames.add(player.getName());
+			seats = seatNames.toArray(seats);
+			searchers.clear();
+			WinCounter wins = new WinCounter(seats);
+
+			TournamentRunner runner = new TournamentRunner(map, lineUps[l], 1);
+			runner.setSeed(SEED);
+			runner.setMaxTurns(maxTurns);
+			runner.setSink(wins);
+			long start = System.nanoTime();
+			runner.run(games);
+			double seconds = (System.nanoTime() - start) / 1e9 / games;
+
+			long played = 0;
+			long searchTime = 0;
+			for (MonteCarloPlayer searcher : searchers) {
+				played += searcher.getPlayouts();
+				searchTime += searcher.getSearchTime();
+				searcher.shutdown();
+			}
+			double rate = (searchTime > 0) ? played / (searchTime / 1e9) : 0;
+
+			for (int s = 0; s < seats.length; s++) {
+				System.out.println(String.format(Locale.ROOT, "%-17s %-10s %6d %6d %6d %9.3f %12.0f", names[l], seats[s],
+						games, wins.wins[s], wins.timeouts, seconds, rate));
+				if (csv != null)
+					csv.println(String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%.4f,%.0f", names[l], seats[s], games,
+							wins.wins[s], wins.timeouts, seconds, rate));
+			}
+			if (csv != null)
+				csv.flush();
+		}
+		if (csv != null)
+			csv.close();
+	}
+
+	/**
+	 * Counts the games each seat wins, by the name of its player.
+	 */
+	static class WinCounter implements GameSink {
+		String[] seats;
+		int[] wins;
+		int timeouts = 0;
+
+		WinCounter(String[] seats) {
+			this.seats = seats;
+			wins = new int[seats.length];
+		}
+
+		public synchronized void accept(GameRecord record) {
+			if (record.getWinner() < 0) {
+				timeouts++;
+				return;
+			}
+			String winner = record.getName(record.getWinner());
+			for (int s = 0; s < seats.length; s++) {
+				if (seats[s].equals(winner))
+					wins[s]++;
+			}
+			return;
+		}
+
+		public void close() {
+			return;
+		}
+	}
+}
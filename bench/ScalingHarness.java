@@ -0,0 +1,162 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * The ScalingHarness measures how each AI's games slow down as the map grows. For
+ * every map shape and size (see MapGenerator) and every Player subclass, it plays
+ * games of four copies of that subclass on the map for a fixed time, and reports the
+ * games per second. Games that reach the turn limit count like any other, so the
+ * numbers measure the cost of a turn as much as of a whole game.
+ *
+ * Each AI's results are also summed up as a scaling exponent: the slope of the time
+ * per game against the number of nodes on a log-log scale, between each size and the
+ * next. An exponent near 1 is linear in the map size, near 2 quadratic.
+ *
+ * Usage: java ScalingHarness [-sizes 42,100,...] [-shapes LATTICE,...] [-t millis]
+ * [-turns turns] [-cap seconds] [-out file] [player ...]
+ *
+ * The players are picked by class name, such as AggressivePlayer; by default every
+ * AI but the MonteCarloPlayer is measured. Once a single game of an AI takes longer
+ * than the cap, its larger sizes are skipped. -out writes the results as CSV.
+ *
+ */
+public class ScalingHarness {
+
+	/**
+	 * The seed the maps and games are built from.
+	 */
+	static final long SEED = 20141113;
+
+	/**
+	 * The number of copies of the measured AI in each game.
+	 */
+	static final int SEATS = 4;
+
+	/**
+	 * The mean degree of the lattices, above the plain grid's 4 so that about half the
+	 * cells get a diagonal and nodes of degree 5 and 6 are measured too.
+	 */
+	static final double LATTICE_MEAN_DEGREE = 5;
+
+	static final String[] DEFAULT_PLAYERS = { "AggressivePlayer", "BalancedPlayer", "DefensivePlayer", "WallPlayer",
+			"EvolvingPlayer" };
+
+	public static void main(String[] args) throws IOException {
+		int[] sizes = { 42, 100, 250, 500, 1000, 2500 };
+		ArrayList<MapGenerator.Shape> shapes = new ArrayList<MapGenerator.Shape>(0);
+		long millis = 2000;
+		int maxTurns = 100;
+		double cap = 30;
+		String out = null;
+		ArrayList<String> players = new ArrayList<String>(0);
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-sizes")) {
+				String[] fields = args[++i].split(",");
+				sizes = new int[fields.length];
+				for (int s = 0; s < fields.length; s++)
+					sizes[s] = Integer.parseInt(fields[s].trim());
+			}
+			else if (args[i].equals("-shapes")) {
+				for (String shape : args[++i].split(","))
+					shapes.add(MapGenerator.Shape.valueOf(shape.trim().toUpperCase(Locale.ROOT)));
+			}
+			else if (args[i].equals("-t"))
+				millis = Long.parseLong(args[++i]);
+			else if (args[i].equals("-turns"))
+				maxTurns = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-cap"))
+				cap = Double.parseDouble(args[++i]);
+			else if (args[i].equals("-out"))
+				out = args[++i];
+			else
+				players.add(args[i]);
+		}
+		if (shapes.isEmpty()) {
+			for (MapGenerator.Shape shape : MapGenerator.Shape.values())
+				shapes.add(shape);
+		}
+		if (players.isEmpty()) {
+			for (String player : DEFAULT_PLAYERS)
+				players.add(player);
+		}
+
+		PrintWriter csv = (out != null) ? new PrintWriter(new FileWriter(out)) : null;
+		if (csv != null)
+			csv.println("shape,nodes,links,player,games,seconds,games_per_sec,ms_per_game,turns_per_game");
+		System.out.println(String.format(Locale.ROOT, "%-10s %7s %-18s %7s %12s %12s %8s %9s", "shape", "nodes",
+				"player", "games", "games/s", "ms/game", "turns", "exponent"));
+
+		for (MapGenerator.Shape shape : shapes) {
+			// build every size of map up front, so each AI plays the same maps
+			GameMap[] maps = new GameMap[sizes.length];
+			for (int s = 0; s < sizes.length; s++) {
+				MapGenerator generator = new MapGenerator(GameRandom.seedFor(SEED, sizes[s]));
+				if (shape == MapGenerator.Shape.LATTICE)
+					generator.setMeanDegree(LATTICE_MEAN_DEGREE);
+				maps[s] = generator.generate(shape, sizes[s]);
+			}
+
+			for (String player : players) {
+				double lastMillis = 0;
+				for (int s = 0; s < sizes.length; s++) {
+					double[] result = measure(maps[s], player, millis, maxTurns);
+					double msPerGame = result[1] * 1000 / result[0];
+					String exponent = (s > 0) ? String.format(Locale.ROOT, "%9.2f",
+							Math.log(msPerGame / lastMillis) / Math.log(sizes[s] / (double)sizes[s-1])) : "        -";
+					System.out.println(String.format(Locale.ROOT, "%-10s %7d %-18s %7d %12.2f %12.2f %8.1f %s", shape,
+							sizes[s], player, (long)result[0], result[0] / result[1], msPerGame, result[2] / result[0], exponent));
+					if (csv != null) {
+						csv.println(String.format(Locale.ROOT, "%s,%d,%d,%s,%d,%.3f,%.4f,%.3f,%.1f", shape, sizes[s],
+								maps[s].getTopology().getNeighbours().length / 2, player, (long)result[0], result[1],
+								result[0] / result[1], msPerGame, result[2] / result[0]));
+						csv.flush();
+					}
+					lastMillis = msPerGame;
+
+					// don't go on to bigger maps once a single game is too slow
+					if (msPerGame > cap * 1000)
+						break;
+				}
+			}
+		}
+		if (csv != null)
+			csv.close();
+	}
+
+	/**
+	 * Plays games of one AI on one map until the time is up, and at least one game.
+	 * @return The number of games, the seconds they took and their total turns.
+	 */
+	static double[] measure(GameMap map, String player, long millis, int maxTurns) {
+		Game game = new Game();
+		game.setupMap(map);
+		for (int seat = 0; seat < SEATS; seat++)
+			game.addPlayer(createPlayer(player, player + " " + (seat + 1)));
+
+		long games = 0;
+		long start = System.nanoTime();
+		long end = start + millis * 1000000;
+		do {
+			game.setSeed(GameRandom.seedFor(SEED, games++));
+			game.randomizeStart();
+			game.runGame(maxTurns, false, false);
+		} while (System.nanoTime() < end);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		return new double[] { games, seconds, game.getTelemetry(game.TOTAL_TURNS) };
+	}
+
+	/**
+	 * Creates a player of one of the AI classes, by class name.
+	 */
+	static Player createPlayer(String className, String name) {
+		try {
+			return (Player)Class.forName(className).getConstructor(String.class).newInstance(name);
+		}
+		catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("SCALING ERROR: No player class " + className + "!", e);
+		}
+	}
+}
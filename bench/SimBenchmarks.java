@@ -0,0 +1,304 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * The SimBenchmarks class times the hot paths of the simulation on the standard
+ * 42-node map: whole games with the standard five-player line-up, threat queries at
+ * every range, single attacks, every AI's place() during the setup and in the middle
+ * of a game (each on a board that changes a little between calls), and
+ * EvolvingPlayer.gameStart(). The boards are built from fixed seeds, so every run
+ * measures the same positions.
+ *
+ * Usage: java SimBenchmarks [-w warmups] [-i iterations] [-r rounds] [-t millis]
+ * [-baseline file] [-out file] [filter ...]
+ *
+ * Only the benchmarks whose names contain one of the filters are run. With
+ * -baseline, the results are compared to a baseline file (see bench/baseline.txt)
+ * and the exit code is 1 if any benchmark regressed (see BenchmarkRunner.compare);
+ * -out writes the results as a new baseline, which should be measured in several
+ * rounds (see BenchmarkRunner.setRounds), such as -r 4.
+ *
+ */
+public class SimBenchmarks {
+
+	/**
+	 * The seed every benchmark's games are played from.
+	 */
+	static final long SEED = 20141113;
+
+	/**
+	 * The map from Main.
+	 */
+	static final int[][] RISK_MAP = { {1, 3, 23}, {0, 2, 3, 4}, {1, 4, 5, 13}, {0, 1, 4, 6}, {1, 2, 3, 5, 7},
+			{2, 4, 7}, {3, 7, 8}, {4, 5, 6, 8}, {6, 7, 9}, {8, 10, 11}, {9, 11, 12}, {9, 10, 12, 33},
+			{10, 11}, {2, 14, 15}, {13, 15, 16, 17}, {13, 14, 16, 18}, {14, 15, 17, 18, 19},
+			{14, 16, 19, 20, 25, 28}, {15, 16, 19, 33}, {16, 17, 18, 28, 32, 33}, {17, 21, 25, 29},
+			{20, 22, 24, 26, 29}, {21, 23, 24}, {0, 22, 24, 26, 27}, {21, 22, 23, 26}, {17, 20, 28, 29, 30},
+			{21, 23, 24, 27, 29}, {23, 26}, {17, 19, 25, 30, 32, 34}, {20, 21, 25, 26, 30, 31},
+			{25, 28, 29, 31}, {29, 30, 38}, {19, 28, 33, 34}, {11, 18, 19, 32, 34, 35}, {28, 32, 33, 35, 37},
+			{33, 34, 36}, {35, 37}, {34, 36}, {31, 39, 40}, {38, 40, 41}, {38, 39, 41}, {39, 40} };
+
+	/**
+	 * The number of seeds game.runGame cycles through, with new players for each
+	 * cycle. Games differ a lot in length, and the evolving player changes with every
+	 * game, so every run has to play the same games, however long it is.
+	 */
+	static final int GAMES = 64;
+
+	/**
+	 * The least number of warmup iterations of game.runGame. A whole game runs
+	 * through so much code that on one core the compiler takes about twenty seconds
+	 * to catch up with it, and it gets several times faster until then.
+	 */
+	static final int GAME_WARMUPS = 25;
+
+	/**
+	 * The number of placement rounds on the setup board; some nodes are still unowned.
+	 */
+	static final int SETUP_ROUNDS = 4;
+
+	/**
+	 * The number of rounds played on the mid-game board.
+	 */
+	static final int MIDGAME_ROUNDS = 2;
+
+	public static void main(String[] args) throws IOException {
+		BenchmarkRunner runner = new BenchmarkRunner();
+		int warmups = 3;
+		int iterations = 5;
+		int rounds = 1;
+		long millis = 1000;
+		File baseline = null;
+		File out = null;
+		ArrayList<String> filters = new ArrayList<String>(0);
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-w"))
+				warmups = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-i"))
+				iterations = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-r"))
+				rounds = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-t"))
+				millis = Long.parseLong(args[++i]);
+			else if (args[i].equals("-baseline"))
+				baseline = new File(args[++i]);
+			else if (args[i].equals("-out"))
+				out = new File(args[++i]);
+			else
+				filters.add(args[i]);
+		}
+		runner.setIterations(warmups, iterations, millis);
+		runner.setRounds(rounds);
+		addBenchmarks(runner);
+
+		ArrayList<BenchmarkRunner.Result> results = runner.run(filters.toArray(new String[filters.size()]));
+		if (out != null)
+			runner.write(results, out);
+		if (baseline != null && runner.compare(results, baseline) > 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Adds every benchmark to a runner.
+	 * @param runner The runner.
+	 */
+	static void addBenchmarks(BenchmarkRunner runner) {
+		// whole games
+		runner.add(new BenchmarkRunner.Benchmark("game.runGame", GAME_WARMUPS) {
+			Game game;
+			long games = 0;
+
+			public void setup() {
+				game = newGame();
+			}
+
+			public long run() {
+				if (games > 0 && games % GAMES == 0)
+					game = newGame();
+				game.setSeed(GameRandom.seedFor(SEED, games++ % GAMES));
+				game.randomizeStart();
+				game.runGame();
+				return games;
+			}
+		});
+
+		// threat queries for every node of a mid-game board, with the cache off so the
+		// searches themselves are timed
+		for (int r = 1; r <= ThreatCache.MAX_RANGE; r++) {
+			final int range = r;
+			runner.add(new BenchmarkRunner.Benchmark("graph.getThreat.r" + range) {
+				Graph graph;
+
+				public void setup() {
+					graph = midgame(newGame()).getGraph();
+					graph.setThreatCaching(false);
+				}
+
+				public long run() {
+					long sum = 0;
+					for (Node node : graph.getNodes())
+						sum += graph.getThreat(range, node);
+					return sum;
+				}
+			});
+			runner.add(new BenchmarkRunner.Benchmark("graph.getAdjThreat.r" + range) {
+				Graph graph;
+
+				public void setup() {
+					graph = midgame(newGame()).getGraph();
+					graph.setThreatCaching(false);
+				}
+
+				public long run() {
+					long sum = 0;
+					for (Node node : graph.getNodes())
+						sum += graph.getAdjThreat(range, node);
+					return sum;
+				}
+			});
+		}
+
+		// one round of dice between two full nodes
+		runner.add(new BenchmarkRunner.Benchmark("player.attack") {
+			Node from;
+			Node to;
+
+			public void setup() {
+				Graph graph = midgame(newGame()).getGraph();
+				for (Node node : graph.getNodes()) {
+					for (int n = 0; n < graph.getDegree(node) && from == null; n++) {
+						if (graph.getAdjNode(node, n).getOwner() != node.getOwner()) {
+							from = node;
+							to = graph.getAdjNode(node, n);
+						}
+					}
+				}
+			}
+
+			public long run() {
+				from.setUnits(10);
+				to.setUnits(10);
+				from.getOwner().attack(from, to, 3);
+				return to.getUnits();
+			}
+		});
+
+		// every AI's placement, during the setup and in the middle of a game; each call
+		// first changes the units on one of the owned nodes, in turn, so the threat
+		// caches have to catch up with a changed board the way they do in a real game
+		int seats = newGame().getPlayers().size();
+		for (int s = 0; s < seats; s++) {
+			final int seat = s;
+			for (int m = 0; m < 2; m++) {
+				final boolean midgame = (m == 1);
+				String name = newGame().getPlayers().get(seat).getClass().getSimpleName();
+				runner.add(new BenchmarkRunner.Benchmark("place." + (midgame ? "midgame." : "setup.") + name) {
+					Player player;
+					ArrayList<Node> owned = new ArrayList<Node>(0);
+					int next = 0;
+					int step = 1;
+
+					public void setup() {
+						Game game = newGame();
+						player = game.getPlayers().get(seat);
+						if (midgame)
+							midgame(game);
+						else
+							placeRounds(game, SETUP_ROUNDS);
+						for (Node node : game.getGraph().getNodes()) {
+							if (node.getOwner() != null)
+								owned.add(node);
+						}
+					}
+
+					public long run() {
+						// add a unit to every node on the first pass, take it away on the next
+						Node node = owned.get(next);
+						node.setUnits(node.getUnits() + step);
+						if (++next == owned.size()) {
+							next = 0;
+							step = -step;
+						}
+						return player.place().getIndex();
+					}
+				});
+			}
+		}
+
+		// choosing an evolving player's strategies
+		runner.add(new BenchmarkRunner.Benchmark("evolving.gameStart") {
+			EvolvingPlayer player;
+
+			public void setup() {
+				Game game = newGame();
+				for (Player p : game.getPlayers()) {
+					if (p instanceof EvolvingPlayer)
+						player = (EvolvingPlayer)p;
+				}
+			}
+
+			public long run() {
+				player.gameStart();
+				return player.get(Stat.GAMES_WON);
+			}
+		});
+		return;
+	}
+
+	/**
+	 * Sets up a game of the standard line-up on the standard map, seeded and with a
+	 * random starting player, with every player's gameStart() already called.
+	 */
+	static Game newGame() {
+		Game game = new Game();
+		game.setupMap(RISK_MAP);
+		game.addPlayer(new DefensivePlayer("Defensive"));
+		game.addPlayer(new AggressivePlayer("Aggressive"));
+		game.addPlayer(new BalancedPlayer("Balanced"));
+		game.addPlayer(new WallPlayer("Wall"));
+		game.addPlayer(new EvolvingPlayer("Evolving"));
+		game.setSeed(SEED);
+		game.randomizeStart();
+		for (Player player : game.getPlayers())
+			player.gameStart();
+		return game;
+	}
+
+	/**
+	 * Has every player place one unit, a number of times, the way Game.runGame does.
+	 */
+	static void placeRounds(Game game, int rounds) {
+		Graph graph = game.getGraph();
+		for (int i = 0; i < rounds; i++) {
+			for (Player player : game.getPlayers())
+				graph.placeUnit(player.place(), player);
+		}
+		return;
+	}
+
+	/**
+	 * Plays a new game through the setup and the first few rounds, the way
+	 * Game.runGame does.
+	 * @return The game, for chaining.
+	 */
+	static Game midgame(Game game) {
+		Graph graph = game.getGraph();
+		placeRounds(game, 35 - 5*(game.getPlayers().size() - 3));
+		for (int round = 0; round < MIDGAME_ROUNDS; round++) {
+			for (Player player : game.getPlayers()) {
+				if (player.hasLost())
+					continue;
+				int newUnits = graph.getNumOwnedNodes(player)/3;
+				for (int i = 0; i < newUnits; i++)
+					graph.placeUnit(player.place(), player);
+				player.turn();
+			}
+		}
+		for (Player player : game.getPlayers()) {
+			if (player.hasLost())
+				throw new IllegalStateException("BENCHMARK ERROR: " + player.getName() + " lost before the mid-game!");
+		}
+		return game;
+	}
+}
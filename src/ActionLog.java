@@ -0,0 +1,287 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * The ActionLog records every move made in a game (placements, attacks with their
+ * losses, occupations and fortifies) to an append-only, memory-mapped file, so any
+ * game can be rebuilt move by move later without asking the players again (see
+ * GameReplayer). Appending a move is just a few writes to mapped memory; the file is
+ * mapped a chunk at a time and trimmed to its real size when the log is closed.
+ *
+ * A log belongs to one Game, and so to one thread. Every entry starts with an int
+ * holding the entry type in the low byte and the player's index (its place in the
+ * turn order at the start of the game) in the next byte, followed by the entry's
+ * ints:
+ *
+ * GAME_START: the seed (a long), the number of players, then each name (a short
+ * length and that many chars). PLACE: the node. ATTACK: the attacking node, the
+ * defending node, the attacker's losses and the defender's losses. OCCUPY: the
+ * attacking node, the captured node and the units moved. FORTIFY: the two nodes and
+ * the units moved. ROUND_END: nothing; the first one of a game marks the end of the
+ * setup, and each one after that the end of a round. GAME_END: the number of turns
+ * and the winner's index (-1 if the game timed out).
+ *
+ */
+public class ActionLog {
+
+	/**
+	 * The first four bytes of every log file.
+	 */
+	public static final int MAGIC = 0x52414C31;
+
+	/**
+	 * The version of the log format.
+	 */
+	public static final int VERSION = 1;
+
+	public static final int GAME_START = 1;
+	public static final int PLACE = 2;
+	public static final int ATTACK = 3;
+	public static final int OCCUPY = 4;
+	public static final int FORTIFY = 5;
+	public static final int ROUND_END = 6;
+	public static final int GAME_END = 7;
+
+	/**
+	 * The size of the file header (MAGIC and VERSION); the first entry starts here.
+	 */
+	public static final int HEADER_SIZE = 8;
+
+	/**
+	 * How much of the file is mapped at a time.
+	 */
+	private static final int CHUNK = 1 << 22;
+
+	private
+		RandomAccessFile file;
+		FileChannel channel;
+		MappedByteBuffer buffer;
+		long bufferStart = 0;
+		IdentityHashMap<Player, Integer> playerIndexes = new IdentityHashMap<Player, Integer>();
+		boolean closed = false;
+
+	/**
+	 * Constructor for the ActionLog class. Creates (or replaces) the log file.
+	 * @param f The file to write the log to.
+	 * @throws IOException If the file can't be created.
+	 */
+	public ActionLog(File f) throws IOException {
+		file = new RandomAccessFile(f, "rw");
+		file.setLength(0);
+		channel = file.getChannel();
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, CHUNK);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+	}
+
+	/**
+	 * Starts the log of a new game.
+	 * @param seed The seed of the game.
+	 * @param players The players, in turn order.
+	 */
+	public void gameStart(long seed, ArrayList<Player> players) {
+		playerIndexes.clear();
+		int size = 16;
+		for (int i = 0; i < players.size(); i++) {
+			playerIndexes.put(players.get(i), i);
+			size += 2 + 2*players.get(i).getName().length();
+		}
+
+		reserve(size);
+		buffer.putInt(GAME_START);
+		buffer.putLong(seed);
+		buffer.putInt(players.size());
+		for (Player player : players) {
+			String name = player.getName();
+			buffer.putShort((short)name.length());
+			for (int i = 0; i < name.length(); i++)
+				buffer.putChar(name.charAt(i));
+		}
+		return;
+	}
+
+	/**
+	 * Logs a unit being placed.
+	 * @param player The player placing the unit.
+	 * @param node The node the unit was placed in.
+	 */
+	public void place(Player player, Node node) {
+		reserve(8);
+		buffer.putInt(header(PLACE, player));
+		buffer.putInt(node.getIndex());
+		return;
+	}
+
+	/**
+	 * Logs the losses of an attack; either one round, or a whole blitz.
+	 * @param player The attacking player.
+	 * @param from The attacking node.
+	 * @param to The defending node.
+	 * @param attackerLosses The units the attacker lost.
+	 * @param defenderLosses The units the defender lost.
+	 */
+	public void attack(Player player, Node from, Node to, int attackerLosses, int defenderLosses) {
+		reserve(20);
+		buffer.putInt(header(ATTACK, player));
+		buffer.putInt(from.getIndex());
+		buffer.putInt(to.getIndex());
+		buffer.putInt(attackerLosses);
+		buffer.putInt(defenderLosses);
+		return;
+	}
+
+	/**
+	 * Logs a captured node being occupied. Comes right after the attack that took it.
+	 * @param player The attacking player.
+	 * @param from The attacking node.
+	 * @param to The captured node.
+	 * @param units The number of units moved in.
+	 */
+	public void occupy(Player player, Node from, Node to, int units) {
+		log(OCCUPY, player, from, to, units);
+		return;
+	}
+
+	/**
+	 * Logs a fortify.
+	 * @param player The player fortifying.
+	 * @param from The node the units came from.
+	 * @param to The node the units went to.
+	 * @param units The number of units moved.
+	 */
+	public void fortify(Player player, Node from, Node to, int units) {
+		log(FORTIFY, player, from, to, units);
+		return;
+	}
+
+	/**
+	 * Logs the end of the setup, or of a round after every player has had a turn.
+	 */
+	public void roundEnd() {
+		reserve(4);
+		buffer.putInt(ROUND_END);
+		return;
+	}
+
+	/**
+	 * Logs the end of a game.
+	 * @param turns The number of turns the game took.
+	 * @param winner The winning player, or null if the game timed out.
+	 */
+	public void gameEnd(int turns, Player winner) {
+		reserve(12);
+		buffer.putInt(GAME_END);
+		buffer.putInt(turns);
+		buffer.putInt((winner == null) ? -1 : indexOf(winner));
+		return;
+	}
+
+	/**
+	 * Trims the file to the end of the log and closes it.
+	 * @throws IOException If the file can't be trimmed or closed.
+	 */
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		long size = bufferStart + buffer.position();
+		buffer.force();
+		buffer = null;
+		channel.truncate(size);
+		file.close();
+	}
+
+	/**
+	 * Opens a log file to be read through from the start, checking its header. A long
+	 * run's log can be far bigger than one buffer can map, so it is streamed instead.
+	 * @param f The log file.
+	 * @return A stream of the entries, positioned after the header.
+	 * @throws IOException If the file can't be read or isn't a log file.
+	 */
+	public static DataInputStream open(File f) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+		try {
+			if (f.length() < HEADER_SIZE || in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException("LOG ERROR: " + f + " isn't an action log!");
+		}
+		catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		return in;
+	}
+
+	/**
+	 * Maps part of a log file into memory, such as the entries of one game.
+	 * @param f The log file.
+	 * @param start The offset of the first byte to map.
+	 * @param length The number of bytes to map.
+	 * @return A read-only buffer holding the bytes.
+	 * @throws IOException If the file can't be read, or the part is too big to map.
+	 */
+	public static ByteBuffer read(File f, long start, long length) throws IOException {
+		if (length > Integer.MAX_VALUE)
+			throw new IOException("LOG ERROR: Tried to map " + length + " bytes of " + f + " at once!");
+		RandomAccessFile in = new RandomAccessFile(f, "r");
+		try {
+			return in.getChannel().map(FileChannel.MapMode.READ_ONLY, start, length);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private void log(int type, Player player, Node from, Node to, int units) {
+		reserve(16);
+		buffer.putInt(header(type, player));
+		buffer.putInt(from.getIndex());
+		buffer.putInt(to.getIndex());
+		buffer.putInt(units);
+		return;
+	}
+
+	private int header(int type, Player player) {
+		return type | (indexOf(player) << 8);
+	}
+
+	/**
+	 * Gets a player's index in the current game.
+	 * @throws IllegalArgumentException If the player wasn't passed to gameStart.
+	 */
+	private int indexOf(Player player) {
+		Integer index = playerIndexes.get(player);
+		if (index == null)
+			throw new IllegalArgumentException("LOG ERROR: " + player.getName() + " isn't in the logged game!");
+		return index;
+	}
+
+	/**
+	 * Makes sure the mapped chunk has room for an entry, mapping the next chunk of the
+	 * file if it doesn't.
+	 * @param bytes The size of the entry.
+	 */
+	private void reserve(int bytes) {
+		if (closed)
+			throw new IllegalStateException("LOG ERROR: Tried to write to a closed log!");
+		if (buffer.remaining() >= bytes)
+			return;
+
+		bufferStart += buffer.position();
+		try {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, bufferStart, Math.max(CHUNK, bytes));
+		}
+		catch (IOException e) {
+			throw new RuntimeException("LOG ERROR: Couldn't extend the log!", e);
+		}
+		return;
+	}
+}
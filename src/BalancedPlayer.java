@@ -57,21 +57,9 @@ public class BalancedPlayer extends Player {
 		if (graph.getNumOwnedNodes(this) == 0) {
 			// try to place a unit in the first node with a preferred degree
 			for (int x : pref) {
-				if (graph.getNumNodesWithDegree(x) > 0) {
-					ArrayList<Node> degNodes = graph.getNodesWithDegree(x);
-					
-					// prune nodes belonging to players
-					int index = 0;
-					while (index < degNodes.size()) {
-						if (degNodes.get(index).getOwner() != null)
-							degNodes.remove(index);
-						else
-							index++;
-					}
-					
-					if (degNodes.size() > 0)
-						return degNodes.get(0);
-				}
+				Node first = graph.getFirstUnownedNodeWithDegree(x);
+				if (first != null)
+					return first;
 			}
 		}
 		// if we already have units on the field
@@ -88,7 +76,8 @@ public class BalancedPlayer extends Player {
 				
 				// iterate through all of our nodes and add any adjacent unowned nodes
 				for (Node node : nodes) {
-					for (Node adjNode : node.getAdj()) {
+					for (int adjIndex = 0; adjIndex < graph.getDegree(node); adjIndex++) {
+						Node adjNode = graph.getAdjNode(node, adjIndex);
 						if (adjNode.getOwner() == null)
 							toPlace.add(adjNode);
 					}
@@ -104,7 +93,7 @@ public class BalancedPlayer extends Player {
 					// if so, place the unit at the one with the most preferred degree
 					for (int x : pref) {
 						for (Node node : toPlace) {
-							if (node.getAdj().size() == x)
+							if (graph.getDegree(node) == x)
 								return node;
 						}
 					}
@@ -113,21 +102,9 @@ public class BalancedPlayer extends Player {
 				else {
 					// try to place a unit in the first node with a preferred degree
 					for (int x : pref) {
-						if (graph.getNumNodesWithDegree(x) > 0) {
-							ArrayList<Node> degNodes = graph.getNodesWithDegree(x);
-							
-							// prune nodes belonging to players
-							int index = 0;
-							while (index < degNodes.size()) {
-								if (degNodes.get(index).getOwner() != null)
-									degNodes.remove(index);
-								else
-									index++;
-							}
-							
-							if (degNodes.size() > 0)
-								return degNodes.get(0);
-						}
+						Node first = graph.getFirstUnownedNodeWithDegree(x);
+						if (first != null)
+							return first;
 					}
 				}
 			}
@@ -167,31 +144,12 @@ public class BalancedPlayer extends Player {
 	 */
 	@Override
 	void turn() {
-		// get all owned nodes
-		ArrayList<Node> nodes = graph.getOwnedNodes(this);
-		
 		/*
 		 * ATTACK STEP
 		 */
 		
-		// sort nodes in order of decreasing number of units
-		boolean sorted = false;
-		while (!sorted) {
-			sorted = true;
-			int index = 0;
-			while (index < nodes.size() - 1) {
-				// compare this node to the next one
-				if (nodes.get(index).getUnits() < nodes.get(index+1).getUnits()) {
-					sorted = false;
-					
-					// move this node to the end of the list
-					nodes.add(nodes.get(index));
-					nodes.remove(index);
-				}
-				else
-					index++;
-			}
-		}
+		// get all owned nodes, in order of decreasing number of units
+		ArrayList<Node> nodes = sortByUnits(graph.getOwnedNodes(this), true);
 		
 		// iterate through the owned nodes and attack adjacent enemy nodes
 		// start from own node with most units and attack enemy nodes in increasing order of number of units
@@ -199,39 +157,14 @@ public class BalancedPlayer extends Player {
 		while (index < nodes.size()) {
 			Node node = nodes.get(index); 
 			
-			// get the nodes adjacent to this one
-			ArrayList<Node> adjNodes = new ArrayList<Node>(node.getAdj());
-			
-			// prune out nodes not belonging to the enemy
-			int index2 = 0;
-			while (index2 < adjNodes.size()) {
-				if (adjNodes.get(index2).getOwner() == this) {
-					adjNodes.remove(index2);
-					adjNodes.trimToSize();
-				}
-				else
-					index2++;
-			}		
-			
-			// sort the adjacent enemy nodes in order of least to most units
-			sorted = false;
-			while (!sorted) {
-				sorted = true;
-				index2 = 0;
-				while (index2 < adjNodes.size() - 1) {
-					// compare this node to the next one
-					if (adjNodes.get(index2).getUnits() > adjNodes.get(index2+1).getUnits()) {
-						sorted = false;
-						
-						// move this node to the end of the list
-						adjNodes.add(adjNodes.get(index2));
-						adjNodes.remove(index2);
-					}
-					else
-						index2++;
-				}
+			// interior nodes have no enemy to attack
+			if (!graph.isFrontier(node)) {
+				index++;
+				continue;
 			}
 			
+			// get the enemy nodes adjacent to this one, in order of increasing number of units
+			ArrayList<Node> adjNodes = sortByUnits(graph.getEnemyNeighbours(node), false);
 			
 			// iterate through the adjacent nodes; call off the attack if any units are lost
 			for (Node adjNode : adjNodes) {
@@ -261,31 +194,16 @@ public class BalancedPlayer extends Player {
 		Node from = null;
 		int toMove = 0;
 		
-		// get all owned nodes
-		nodes = graph.getOwnedNodes(this);
-		
-		// eliminate nodes not adjacent to other owned nodes
-		index = 0;
-		while (index < nodes.size()) {
-			boolean hasAdj = false;
-			for (Node adj : nodes.get(index).getAdj()) {
-				if (adj.getOwner() == this) {
-					hasAdj = true;
-					break;
-				}
-			}
-			if (!hasAdj)
-				nodes.remove(index);
-			else
-				index++;
-		}
+		// get the owned nodes adjacent to other owned nodes
+		nodes = graph.getLinkedNodes(this);
 		
 		// if there are no nodes or only one node left, don't fortify
 		if (nodes.size() > 1) {
 			// find the average units per node (round down)
 			int units = 0;
-			for (Node node : graph.getOwnedNodes(this)) {
-				units += node.getUnits();
+			NodeSet owned = graph.getOwnedNodeSet(this);
+			for (int i = owned.next(0); i >= 0; i = owned.next(i+1)) {
+				units += graph.getNode(i).getUnits();
 			}
 			int avgUnits = units/graph.getNumOwnedNodes(this);
 			
@@ -300,22 +218,11 @@ public class BalancedPlayer extends Player {
 			
 			// find the first node that can be brought up to the average by an adjacent node
 			for (Node node : nodes) {
-				// get the nodes adjacent to this one
-				ArrayList<Node> adjNodes = new ArrayList<Node>(node.getAdj());
-				
-				// prune out nodes belonging to the enemy
-				index = 0;
-				while (index < adjNodes.size()) {
-					if (adjNodes.get(index).getOwner() != this) {
-						adjNodes.remove(index);
-						adjNodes.trimToSize();
-					}
-					else
-						index++;
-				}
-				
-				// see if an adjacent node can supply this one without dropping below average
-				for (Node adjNode : adjNodes) {
+				// see if one of our adjacent nodes can supply this one without dropping below average
+				for (int adjIndex = 0; adjIndex < graph.getDegree(node); adjIndex++) {
+					Node adjNode = graph.getAdjNode(node, adjIndex);
+					if (adjNode.getOwner() != this)
+						continue;
 					if (adjNode.getUnits() >= avgUnits + (avgUnits - node.getUnits())) {
 						from = adjNode;
 						to = node;
@@ -0,0 +1,267 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The BinaryGameSink writes game records to a binary file on a background thread.
+ * Each game thread encodes its records into its own in-memory batch, so threads
+ * never wait on each other, and full batches are handed to the writer thread. Only
+ * QUEUE_BATCHES batches can wait for the writer at once; past that a game's thread
+ * waits for the disk to catch up instead of the batches piling up in memory. The
+ * file starts with a short header (see MAGIC and VERSION), followed by the records
+ * (see GameRecord.write). Use readAll to load a file back.
+ *
+ * If the program ends without calling close(), a shutdown hook closes the sink, so
+ * the records accepted so far still reach the file.
+ *
+ */
+public class BinaryGameSink implements GameSink {
+
+	/**
+	 * The first four bytes of every record file.
+	 */
+	public static final int MAGIC = 0x52475231;
+
+	/**
+	 * The version of the record format.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The size a batch grows to before it is handed to the writer.
+	 */
+	public static final int BATCH_SIZE = 1 << 16;
+
+	/**
+	 * The number of full batches that can wait for the writer before game threads
+	 * have to wait too.
+	 */
+	public static final int QUEUE_BATCHES = 16;
+
+	private static final byte[] END = new byte[0];
+
+	/**
+	 * The records one thread has encoded but not yet handed to the writer. Only its
+	 * own thread uses a batch until the sink is closed, so its lock is never contended
+	 * while games are running.
+	 */
+	private static class Batch {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(BATCH_SIZE + 1024);
+		DataOutputStream out = new DataOutputStream(bytes);
+	}
+
+	private
+		OutputStream out;
+		ArrayBlockingQueue<byte[]> queue = new ArrayBlockingQueue<byte[]>(QUEUE_BATCHES);
+		ConcurrentLinkedQueue<Batch> batches = new ConcurrentLinkedQueue<Batch>();
+		ThreadLocal<Batch> threadBatch = new ThreadLocal<Batch>() {
+			protected Batch initialValue() {
+				Batch batch = new Batch();
+				batches.add(batch);
+				return batch;
+			}
+		};
+		Thread writer;
+		Thread shutdownHook;
+		volatile IOException failure = null;
+		volatile boolean closed = false;
+		AtomicLong records = new AtomicLong();
+
+	/**
+	 * Constructor for the BinaryGameSink class. Creates (or replaces) the file and
+	 * starts the writer thread.
+	 * @param file The file to write the records to.
+	 * @throws IOException If the file can't be created.
+	 */
+	public BinaryGameSink(File file) throws IOException {
+		out = new FileOutputStream(file);
+		DataOutputStream header = new DataOutputStream(out);
+		header.writeInt(MAGIC);
+		header.writeInt(VERSION);
+
+		writer = new Thread(new Runnable() {
+			public void run() {
+				writeBatches();
+			}
+		}, "BinaryGameSink writer");
+		writer.setDaemon(true);
+		writer.start();
+
+		// write out whatever is left if the program ends before close()
+		shutdownHook = new Thread(new Runnable() {
+			public void run() {
+				try {
+					close();
+				}
+				catch (IOException e) {
+					System.err.println("SINK ERROR: Couldn't write the records: " + e.getMessage() + "!");
+				}
+			}
+		}, "BinaryGameSink shutdown");
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * Encodes a record into the calling thread's batch, handing the batch to the
+	 * writer once it is full. This waits only if QUEUE_BATCHES batches are already
+	 * waiting to be written.
+	 * @see GameSink#accept(GameRecord)
+	 */
+	public void accept(GameRecord record) {
+		if (closed)
+			throw new IllegalStateException("SINK ERROR: Tried to add a record to a closed sink!");
+		if (failure != null)
+			throw new RuntimeException("SINK ERROR: Couldn't write the records!", failure);
+
+		Batch batch = threadBatch.get();
+		synchronized (batch) {
+			try {
+				record.write(batch.out);
+			}
+			catch (IOException e) {
+				// can't happen when writing to memory
+				throw new RuntimeException(e);
+			}
+			records.incrementAndGet();
+
+			// hand full batches to the writer
+			if (batch.bytes.size() >= BATCH_SIZE) {
+				try {
+					handOff(batch);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("SINK ERROR: Interrupted while waiting for the writer!");
+				}
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Gets the number of records accepted so far.
+	 * @return The number of records.
+	 */
+	public long getRecordCount() {
+		return records.get();
+	}
+
+	/**
+	 * Writes every record accepted so far, stops the writer thread and closes the file.
+	 * Every call to accept() should have returned before the sink is closed.
+	 * @throws IOException If the records couldn't be written.
+	 */
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+		}
+
+		// the hook isn't needed any more, unless it is the one closing the sink
+		if (Thread.currentThread() != shutdownHook) {
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			}
+			catch (IllegalStateException e) {
+				// the program is already shutting down
+			}
+		}
+
+		// hand over every thread's last batch, then wait for the writer to catch up
+		try {
+			for (Batch batch : batches) {
+				synchronized (batch) {
+					handOff(batch);
+				}
+			}
+			queue.put(END);
+			writer.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("SINK ERROR: Interrupted while writing the records!");
+		}
+		out.close();
+
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * Passes a batch's records to the writer thread and empties the batch, waiting if
+	 * the writer is too far behind.
+	 */
+	private void handOff(Batch batch) throws InterruptedException {
+		if (batch.bytes.size() > 0) {
+			queue.put(batch.bytes.toByteArray());
+			batch.bytes.reset();
+		}
+		return;
+	}
+
+	/**
+	 * The writer thread's loop: writes batches until the end marker arrives.
+	 */
+	private void writeBatches() {
+		while (true) {
+			byte[] bytes;
+			try {
+				bytes = queue.take();
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+			if (bytes == END)
+				return;
+
+			// once writing fails, keep draining the queue so no game thread waits forever
+			if (failure == null) {
+				try {
+					out.write(bytes);
+				}
+				catch (IOException e) {
+					failure = e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads every record from a file written by a BinaryGameSink.
+	 * @param file The file to read.
+	 * @return ArrayList<GameRecord> of the records, in the order they were written.
+	 * @throws IOException If the file can't be read or isn't a record file.
+	 */
+	public static ArrayList<GameRecord> readAll(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException("SINK ERROR: " + file + " isn't a game record file!");
+
+			ArrayList<GameRecord> records = new ArrayList<GameRecord>(0);
+			while (true) {
+				try {
+					records.add(GameRecord.read(in));
+				}
+				catch (EOFException e) {
+					return records;
+				}
+			}
+		}
+		finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,258 @@
+import java.util.ArrayList;
+
+/**
+ * The Bitboard class is the FrontierIndex of a map with at most 64 nodes, kept as
+ * single longs: bit i of a mask stands for node i. Each node has a mask of its
+ * neighbours, and each player slot (see Graph.getPlayerSlot) a mask of the nodes it
+ * owns, of its frontier and of its targets. When a node changes hands, only the masks
+ * of its old and new owners are worked out again, around the node, with a few ANDs
+ * per neighbour instead of the per-node counts FrontierIndex keeps; the NodeSets it
+ * hands out are then filled from the masks in one go. The graph's threat walks, the
+ * ThreatOrder and the ThreatCache use the same masks to find the nodes near a change.
+ *
+ */
+public class Bitboard extends FrontierIndex {
+
+	/**
+	 * The largest number of nodes a bitboard can hold.
+	 */
+	public static final int MAX_NODES = 64;
+
+	private
+		long[] rows;
+		int[] owners;
+		long[] owned = new long[0];
+		long[] frontierMasks = new long[0];
+		long[] targetMasks = new long[0];
+		ArrayList<NodeSet> frontiers = new ArrayList<NodeSet>(0);
+		ArrayList<NodeSet> targets = new ArrayList<NodeSet>(0);
+
+	/**
+	 * Constructor for the Bitboard class.
+	 * @param topology The map's adjacency; it must have at most MAX_NODES nodes.
+	 * @param ownerSlots The slot that owns each node right now, indexed by node.
+	 */
+	public Bitboard(Topology topology, int[] ownerSlots) {
+		super(topology);
+		int count = topology.getNodeCount();
+		if (count > MAX_NODES)
+			throw new IllegalArgumentException("BOARD ERROR: Too many nodes for a bitboard!");
+
+		rows = topology.getRowMasks();
+		owners = new int[count];
+		for (int i = 0; i < count; i++) {
+			owners[i] = ownerSlots[i];
+			ensureSlot(owners[i]);
+			owned[owners[i]] |= 1L << i;
+		}
+		for (int slot = 0; slot < owned.length; slot++) {
+			frontierMasks[slot] = border(owned[slot], slot);
+			targetMasks[slot] = reach(owned[slot], -1L) & ~owned[slot] & ~owned[0];
+			frontiers.get(slot).setMask(frontierMasks[slot]);
+			targets.get(slot).setMask(targetMasks[slot]);
+		}
+	}
+
+	/**
+	 * Checks if a map is small enough for a bitboard.
+	 * @param nodeCount The number of nodes on the map.
+	 * @return True if it fits, false if it doesn't.
+	 */
+	public static boolean fits(int nodeCount) {
+		return nodeCount <= MAX_NODES;
+	}
+
+	/**
+	 * Finds the nodes within a number of hops of the nodes of a mask, including them.
+	 * @param rows The neighbour masks of the map (see Topology.getRowMasks).
+	 * @param nodes The mask of the nodes to start from.
+	 * @param hops How many hops out to go.
+	 * @return The mask of the nodes reached.
+	 */
+	public static long spread(long[] rows, long nodes, int hops) {
+		long reached = nodes;
+		long edge = nodes;
+		for (int h = 0; h < hops && edge != 0; h++) {
+			long next = 0;
+			for (long rest = edge; rest != 0; rest &= rest - 1)
+				next |= rows[Long.numberOfTrailingZeros(rest)];
+			edge = next & ~reached;
+			reached |= next;
+		}
+		return reached;
+	}
+
+	/**
+	 * Gets the neighbours of a node.
+	 * @param node The index of the node.
+	 * @return The mask of the node's neighbours.
+	 */
+	public long getRow(int node) {
+		return rows[node];
+	}
+
+	/**
+	 * Gets the nodes a slot owns.
+	 * @param slot The slot.
+	 * @return The mask of the slot's nodes.
+	 */
+	public long getOwnedMask(int slot) {
+		return (slot < owned.length) ? owned[slot] : 0;
+	}
+
+	/**
+	 * Gets the frontier nodes of a slot.
+	 * @param slot The slot.
+	 * @return The mask of the slot's frontier nodes.
+	 */
+	public long getFrontierMask(int slot) {
+		return (slot < frontierMasks.length) ? frontierMasks[slot] : 0;
+	}
+
+	/**
+	 * Gets the targets of a slot.
+	 * @param slot The slot.
+	 * @return The mask of the slot's targets.
+	 */
+	public long getTargetMask(int slot) {
+		return (slot < targetMasks.length) ? targetMasks[slot] : 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see FrontierIndex#getFrontier(int)
+	 */
+	@Override
+	public NodeSet getFrontier(int slot) {
+		ensureSlot(slot);
+		return frontiers.get(slot);
+	}
+
+	/* (non-Javadoc)
+	 * @see FrontierIndex#getTargets(int)
+	 */
+	@Override
+	public NodeSet getTargets(int slot) {
+		ensureSlot(slot);
+		return targets.get(slot);
+	}
+
+	/* (non-Javadoc)
+	 * @see FrontierIndex#isFrontier(int)
+	 */
+	@Override
+	public boolean isFrontier(int node) {
+		return (rows[node] & ~owned[owners[node]]) != 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see FrontierIndex#getForeignCount(int)
+	 */
+	@Override
+	public int getForeignCount(int node) {
+		return Long.bitCount(rows[node] & ~owned[owners[node]]);
+	}
+
+	/* (non-Javadoc)
+	 * @see FrontierIndex#setOwner(int, int, int)
+	 */
+	@Override
+	void setOwner(int node, int oldSlot, int newSlot) {
+		if (oldSlot == newSlot)
+			return;
+		ensureSlot(newSlot);
+		long bit = 1L << node;
+		owners[node] = newSlot;
+		owned[oldSlot] &= ~bit;
+		owned[newSlot] |= bit;
+
+		// only the node and its neighbours can join or leave the two owners' sets
+		long area = rows[node] | bit;
+		refresh(oldSlot, area);
+		refresh(newSlot, area);
+
+		// every other slot's targets only change at the node itself
+		boolean owner = newSlot != 0;
+		for (int slot = 0; slot < owned.length; slot++) {
+			if (slot == oldSlot || slot == newSlot)
+				continue;
+			long target = (owner && (rows[node] & owned[slot]) != 0) ? bit : 0;
+			if ((targetMasks[slot] & bit) != target) {
+				targetMasks[slot] ^= bit;
+				targets.get(slot).setMask(targetMasks[slot]);
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Works out a slot's frontier and targets again within an area.
+	 */
+	private void refresh(int slot, long area) {
+		long frontier = (frontierMasks[slot] & ~area) | border(area & owned[slot], slot);
+		long target = (targetMasks[slot] & ~area) | (reach(owned[slot], area) & ~owned[slot] & ~owned[0]);
+		if (frontier != frontierMasks[slot]) {
+			frontierMasks[slot] = frontier;
+			frontiers.get(slot).setMask(frontier);
+		}
+		if (target != targetMasks[slot]) {
+			targetMasks[slot] = target;
+			targets.get(slot).setMask(target);
+		}
+		return;
+	}
+
+	/**
+	 * Finds the nodes of a mask, all owned by a slot, that have a neighbour the slot
+	 * doesn't own.
+	 */
+	private long border(long nodes, int slot) {
+		long result = 0;
+		long outside = ~owned[slot];
+		for (long rest = nodes; rest != 0; rest &= rest - 1) {
+			int i = Long.numberOfTrailingZeros(rest);
+			if ((rows[i] & outside) != 0)
+				result |= 1L << i;
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the nodes within an area that are adjacent to a node of a mask.
+	 */
+	private long reach(long nodes, long area) {
+		long result = 0;
+		if (Long.bitCount(nodes) <= Long.bitCount(area)) {
+			for (long rest = nodes; rest != 0; rest &= rest - 1)
+				result |= rows[Long.numberOfTrailingZeros(rest)];
+			return result & area;
+		}
+		for (long rest = area; rest != 0; rest &= rest - 1) {
+			int i = Long.numberOfTrailingZeros(rest);
+			if ((rows[i] & nodes) != 0)
+				result |= 1L << i;
+		}
+		return result;
+	}
+
+	/**
+	 * Makes room for a slot and every slot before it.
+	 */
+	private void ensureSlot(int slot) {
+		if (slot < owned.length)
+			return;
+		long[] newOwned = new long[slot + 1];
+		long[] newFrontiers = new long[slot + 1];
+		long[] newTargets = new long[slot + 1];
+		System.arraycopy(owned, 0, newOwned, 0, owned.length);
+		System.arraycopy(frontierMasks, 0, newFrontiers, 0, owned.length);
+		System.arraycopy(targetMasks, 0, newTargets, 0, owned.length);
+		owned = newOwned;
+		frontierMasks = newFrontiers;
+		targetMasks = newTargets;
+		while (frontiers.size() <= slot) {
+			frontiers.add(new NodeSet(rows.length));
+			targets.add(new NodeSet(rows.length));
+		}
+		return;
+	}
+}
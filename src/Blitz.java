@@ -0,0 +1,279 @@
+/**
+ * The Blitz class settles a whole attack at once: the attacker keeps attacking with
+ * as many dice as it can until the defending node falls or the attacking node is
+ * down to one unit. The fight is an absorbing Markov chain over (attacking units,
+ * defending units), and its outcome is sampled from precomputed distributions
+ * instead of being rolled round by round.
+ *
+ * Every round compares two pairs of dice while both sides have at least two units,
+ * and one pair after that, so a fight has two phases. The first phase ends in an
+ * "exit" state where one side has fewer than two units left, and the tables give
+ * the odds of every exit state from every starting state. The second phase is one
+ * unit against several, and its tables give the odds of every final state. Since
+ * the number of rounds in each phase follows from the states at its ends, sampling
+ * the two phases gives the exact number of rounds as well, for the telemetry.
+ *
+ * The defender is assumed to always roll as many dice as it is allowed to, like
+ * every player's defend() does. Fights bigger than the tables are rolled round by
+ * round (with Dice) until they fit.
+ *
+ */
+public class Blitz {
+
+	/**
+	 * The largest number of attacking or defending units covered by the tables.
+	 */
+	public static final int LIMIT = 40;
+
+	/**
+	 * Where the final number of attacking units is stored in a result array.
+	 */
+	public static final int ATTACKERS = 0;
+
+	/**
+	 * Where the final number of defending units is stored in a result array.
+	 */
+	public static final int DEFENDERS = 1;
+
+	/**
+	 * Where the number of rounds fought is stored in a result array.
+	 */
+	public static final int ROUNDS = 2;
+
+	/**
+	 * For each starting state with two or more units a side, the exit states of the
+	 * first phase and the cumulative odds of reaching them.
+	 */
+	private static final int[][][] exitAttackers = new int[LIMIT+1][LIMIT+1][];
+	private static final int[][][] exitDefenders = new int[LIMIT+1][LIMIT+1][];
+	private static final double[][][] exitOdds = new double[LIMIT+1][LIMIT+1][];
+
+	/**
+	 * For a attackers against one defender, the cumulative odds of the attacker losing
+	 * each number of units from 0 to a (losing all a means the attack failed).
+	 */
+	private static final double[][] oneDefenderOdds = new double[LIMIT+1][];
+
+	/**
+	 * For one attacker against d defenders, the cumulative odds of the defender losing
+	 * each number of units from 0 to d (losing all d means the node fell).
+	 */
+	private static final double[][] oneAttackerOdds = new double[LIMIT+1][];
+
+	/**
+	 * The chance of the attacker winning from every state in the tables.
+	 */
+	private static final double[][] winOdds = solveWinOdds(LIMIT, LIMIT);
+
+	static {
+		for (int n = 1; n <= LIMIT; n++) {
+			oneDefenderOdds[n] = solveOneDefender(n);
+			oneAttackerOdds[n] = solveOneAttacker(n);
+		}
+		for (int a = 2; a <= LIMIT; a++) {
+			for (int d = 2; d <= LIMIT; d++)
+				solveExits(a, d);
+		}
+	}
+
+	/**
+	 * Settles a fight.
+	 * @param random The random number generator to draw from.
+	 * @param attackers The number of units that can attack (the units in the attacking
+	 * node, minus the one that has to stay behind).
+	 * @param defenders The number of units in the defending node.
+	 * @param result An array of at least three ints that is filled with the number of
+	 * attacking units left, the number of defending units left and the number of
+	 * rounds fought (see ATTACKERS, DEFENDERS and ROUNDS). One of the first two is 0.
+	 */
+	public static void resolve(GameRandom random, int attackers, int defenders, int[] result) {
+		int a = attackers;
+		int d = defenders;
+		int rounds = 0;
+
+		while (a > 0 && d > 0) {
+			// first phase, small enough for the tables: jump to its exit state
+			if (a >= 2 && d >= 2 && a <= LIMIT && d <= LIMIT) {
+				int i = sample(random, exitOdds[a][d]);
+				int nextA = exitAttackers[a][d][i];
+				int nextD = exitDefenders[a][d][i];
+				rounds += ((a - nextA) + (d - nextD)) / 2;
+				a = nextA;
+				d = nextD;
+			}
+			// second phase against one defender: jump to the end
+			else if (d == 1 && a <= LIMIT) {
+				int lost = sample(random, oneDefenderOdds[a]);
+				rounds += lost + ((lost < a) ? 1 : 0);
+				d = (lost < a) ? 0 : 1;
+				a -= lost;
+			}
+			// second phase with one attacker: jump to the end
+			else if (a == 1 && d <= LIMIT) {
+				int lost = sample(random, oneAttackerOdds[d]);
+				rounds += lost + ((lost < d) ? 1 : 0);
+				d -= lost;
+				a = (d == 0) ? 1 : 0;
+			}
+			// too big for the tables, so roll one round
+			else {
+				int attackDice = Math.min(a, Dice.MAX_ATTACK);
+				int defendDice = Math.min(d, Dice.MAX_DEFENSE);
+				int wins = Dice.roll(random, attackDice, defendDice);
+				a -= Math.min(attackDice, defendDice) - wins;
+				d -= wins;
+				rounds++;
+			}
+		}
+
+		result[ATTACKERS] = a;
+		result[DEFENDERS] = d;
+		result[ROUNDS] = rounds;
+		return;
+	}
+
+	/**
+	 * Gets the chance of an attack taking the defending node before the attacker runs
+	 * out of units.
+	 * @param attackers The number of units that can attack.
+	 * @param defenders The number of units in the defending node.
+	 * @return The probability, from 0 to 1.
+	 */
+	public static double getWinProbability(int attackers, int defenders) {
+		if (defenders <= 0)
+			return 1;
+		if (attackers <= 0)
+			return 0;
+		if (attackers <= LIMIT && defenders <= LIMIT)
+			return winOdds[attackers][defenders];
+		return solveWinOdds(attackers, defenders)[attackers][defenders];
+	}
+
+	/**
+	 * Picks an index from a table of cumulative odds.
+	 */
+	private static int sample(GameRandom random, double[] cumulative) {
+		double draw = random.nextDouble();
+		int i = 0;
+		while (i < cumulative.length - 1 && draw >= cumulative[i])
+			i++;
+		return i;
+	}
+
+	/**
+	 * Works out the chance of the attacker winning from every state up to a size.
+	 * Each state only leads to smaller ones, so they are filled in from the bottom up.
+	 */
+	private static double[][] solveWinOdds(int maxA, int maxD) {
+		double[][] win = new double[maxA+1][maxD+1];
+		for (int a = 0; a <= maxA; a++) {
+			for (int d = 0; d <= maxD; d++) {
+				if (d == 0)
+					win[a][d] = (a > 0) ? 1 : 0;
+				else if (a == 0)
+					win[a][d] = 0;
+				else {
+					int attackDice = Math.min(a, Dice.MAX_ATTACK);
+					int defendDice = Math.min(d, Dice.MAX_DEFENSE);
+					int pairs = Math.min(attackDice, defendDice);
+					double odds = 0;
+					for (int wins = 0; wins <= pairs; wins++)
+						odds += Dice.getProbability(attackDice, defendDice, wins) * win[a - (pairs - wins)][d - wins];
+					win[a][d] = odds;
+				}
+			}
+		}
+		return win;
+	}
+
+	/**
+	 * Works out the first-phase exit odds from a starting state with two or more
+	 * units a side, by pushing the chance of being in each state down to the states
+	 * it leads to, biggest states first.
+	 */
+	private static void solveExits(int startA, int startD) {
+		double[][] reach = new double[startA+1][startD+1];
+		reach[startA][startD] = 1;
+
+		// every first-phase round takes two units off the total
+		for (int total = startA + startD; total >= 4; total -= 2) {
+			for (int a = Math.min(startA, total - 2); a >= 2; a--) {
+				int d = total - a;
+				if (d < 2 || d > startD || reach[a][d] == 0)
+					continue;
+				int attackDice = Math.min(a, Dice.MAX_ATTACK);
+				for (int wins = 0; wins <= 2; wins++)
+					reach[a - (2 - wins)][d - wins] += reach[a][d] * Dice.getProbability(attackDice, 2, wins);
+			}
+		}
+
+		// collect the states where one side has fewer than two units
+		int count = 0;
+		for (int a = 0; a <= startA; a++) {
+			for (int d = 0; d <= startD; d++) {
+				if ((a < 2 || d < 2) && reach[a][d] > 0)
+					count++;
+			}
+		}
+		int[] exitA = new int[count];
+		int[] exitD = new int[count];
+		double[] odds = new double[count];
+		int i = 0;
+		double sum = 0;
+		for (int a = 0; a <= startA; a++) {
+			for (int d = 0; d <= startD; d++) {
+				if ((a < 2 || d < 2) && reach[a][d] > 0) {
+					sum += reach[a][d];
+					exitA[i] = a;
+					exitD[i] = d;
+					odds[i] = sum;
+					i++;
+				}
+			}
+		}
+		odds[count-1] = 1;
+
+		exitAttackers[startA][startD] = exitA;
+		exitDefenders[startA][startD] = exitD;
+		exitOdds[startA][startD] = odds;
+		return;
+	}
+
+	/**
+	 * Works out the cumulative odds of a attackers losing each number of units to a
+	 * single defender before the fight ends.
+	 */
+	private static double[] solveOneDefender(int a) {
+		double[] odds = new double[a+1];
+		double alive = 1;
+		double sum = 0;
+		for (int lost = 0; lost < a; lost++) {
+			// the defender falls on this round, with a - lost units attacking
+			double win = Dice.getProbability(Math.min(a - lost, Dice.MAX_ATTACK), 1, 1);
+			sum += alive * win;
+			odds[lost] = sum;
+			alive *= 1 - win;
+		}
+		odds[a] = 1;
+		return odds;
+	}
+
+	/**
+	 * Works out the cumulative odds of d defenders losing each number of units to a
+	 * single attacker before the fight ends.
+	 */
+	private static double[] solveOneAttacker(int d) {
+		double[] odds = new double[d+1];
+		double alive = 1;
+		double sum = 0;
+		for (int lost = 0; lost < d; lost++) {
+			// the attacker falls on this round, with d - lost units defending
+			double loss = Dice.getProbability(1, Math.min(d - lost, Dice.MAX_DEFENSE), 0);
+			sum += alive * loss;
+			odds[lost] = sum;
+			alive *= 1 - loss;
+		}
+		odds[d] = 1;
+		return odds;
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * A BoardState is a copy of the board held in two flat arrays: the owner of each
+ * node, as the graph's player slot (see Graph.getPlayerSlot; 0 is unowned), and the
+ * units in each node. Taking or restoring a BoardState is a straight pass over the
+ * arrays, so look-ahead code can save and reset positions cheaply, and reusing the
+ * same BoardState as a buffer (see Graph.copyInto) allocates nothing.
+ *
+ * Slots are handed out per game, so a BoardState should only be restored to the
+ * graph it came from, before the graph is restored to empty or cleared.
+ *
+ */
+public class BoardState {
+
+	private
+		int nodeCount;
+		int[] owners;
+		int[] units;
+
+	/**
+	 * Constructor for the BoardState class. Every node starts unowned and empty.
+	 * @param nodeCount The number of nodes on the board.
+	 */
+	public BoardState(int nodeCount) {
+		this.nodeCount = nodeCount;
+		owners = new int[nodeCount];
+		units = new int[nodeCount];
+	}
+
+	/**
+	 * Gets the number of nodes on the board.
+	 * @return The number of nodes.
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Gets the owner of a node.
+	 * @param node The index of the node.
+	 * @return The owner's player slot, or 0 if the node is unowned.
+	 */
+	public int getOwner(int node) {
+		return owners[node];
+	}
+
+	/**
+	 * Gets the number of units in a node.
+	 * @param node The index of the node.
+	 * @return The number of units.
+	 */
+	public int getUnits(int node) {
+		return units[node];
+	}
+
+	/**
+	 * Sets the owner of a node.
+	 * @param node The index of the node.
+	 * @param slot The owner's player slot, or 0 for unowned.
+	 */
+	public void setOwner(int node, int slot) {
+		owners[node] = slot;
+		return;
+	}
+
+	/**
+	 * Sets the number of units in a node.
+	 * @param node The index of the node.
+	 * @param u The number of units.
+	 */
+	public void setUnits(int node, int u) {
+		units[node] = u;
+		return;
+	}
+
+	/**
+	 * Copies the arrays of a board into this state, making room first if this state
+	 * is too small.
+	 * @param count The number of nodes to copy.
+	 * @param ownerSlots The owner slot of every node.
+	 * @param unitCounts The units in every node.
+	 */
+	public void copyFrom(int count, int[] ownerSlots, int[] unitCounts) {
+		if (owners.length < count) {
+			owners = new int[count];
+			units = new int[count];
+		}
+		nodeCount = count;
+		System.arraycopy(ownerSlots, 0, owners, 0, count);
+		System.arraycopy(unitCounts, 0, units, 0, count);
+		return;
+	}
+
+	/**
+	 * Copies another state into this one.
+	 * @param other The state to copy.
+	 */
+	public void copyFrom(BoardState other) {
+		copyFrom(other.nodeCount, other.owners, other.units);
+		return;
+	}
+}
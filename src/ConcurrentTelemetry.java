@@ -0,0 +1,66 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The ConcurrentTelemetry class adds up player telemetry from several threads at
+ * once. Each counter is a LongAdder, which spreads updates from different threads
+ * over separate cells, so workers finishing games at the same time don't fight over
+ * one value. Reading a counter sums the cells, so take a snapshot once the threads
+ * are done rather than reading while they run.
+ *
+ */
+public class ConcurrentTelemetry {
+
+	private
+		LongAdder[] counts = new LongAdder[Stat.COUNT];
+
+	/**
+	 * Constructor for the ConcurrentTelemetry class.
+	 */
+	public ConcurrentTelemetry() {
+		for (int i = 0; i < counts.length; i++)
+			counts[i] = new LongAdder();
+	}
+
+	/**
+	 * Adds to a counter. Can be called from any thread.
+	 * @param stat The counter.
+	 * @param amount The amount to add.
+	 */
+	public void add(Stat stat, long amount) {
+		counts[stat.ordinal()].add(amount);
+		return;
+	}
+
+	/**
+	 * Adds every counter of a Telemetry to this one. Can be called from any thread.
+	 * @param telemetry The telemetry to add.
+	 */
+	public void add(Telemetry telemetry) {
+		for (Stat stat : Stat.values()) {
+			long value = telemetry.get(stat);
+			if (value != 0)
+				counts[stat.ordinal()].add(value);
+		}
+		return;
+	}
+
+	/**
+	 * Gets the current total of a counter.
+	 * @param stat The counter.
+	 * @return The total.
+	 */
+	public long get(Stat stat) {
+		return counts[stat.ordinal()].sum();
+	}
+
+	/**
+	 * Copies the current totals into a plain Telemetry.
+	 * @return The new Telemetry.
+	 */
+	public Telemetry snapshot() {
+		Telemetry telemetry = new Telemetry();
+		for (Stat stat : Stat.values())
+			telemetry.set(stat, counts[stat.ordinal()].sum());
+		return telemetry;
+	}
+}
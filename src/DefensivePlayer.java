@@ -76,37 +76,13 @@ public class DefensivePlayer extends Player {
 		if (graph.getNumOwnedNodes(this) == 0) {
 			// place the first unit down in the most defensive node (lowest degree)
 			// choose the one with the least adjacency threat
-			ArrayList<Node> degNodes = new ArrayList<Node>(0);
-			
 			for (int i = 2; i <= 6; i++) {
-				degNodes = graph.getNodesWithDegree(i);
-				
-				// prune nodes belonging to other players
-				int index = 0;
-				while (index < degNodes.size()) {
-					if (degNodes.get(index).getOwner() != null)
-						degNodes.remove(index);
-					else
-						index++;
-				}
+				// find the unowned node of this degree with the least adjacency threat using the default range
+				Node toPlace = graph.getUnownedNodeByAdjThreat(i, range, false);
 				
-				// are there any possible candidates?
-				if (degNodes.size() > 0) {
-					// find the node with the least adjacency threat using the default range
-					int min = graph.getAdjThreat(range, degNodes.get(0));
-					Node toPlace = degNodes.get(0);
-					
-					for (Node node : degNodes) {
-						int adjThreat = graph.getAdjThreat(range, node);
-						if (adjThreat < min) {
-							min = adjThreat;
-							toPlace = node;
-						}
-					}
-					
-					// place a unit at that node
+				// place a unit at that node, if there are any candidates
+				if (toPlace != null)
 					return toPlace;
-				}
 			}
 		}
 		// if we already have units on the field
@@ -123,7 +99,8 @@ public class DefensivePlayer extends Player {
 				
 				// iterate through all of our nodes and add any adjacent unowned nodes
 				for (Node node : nodes) {
-					for (Node adjNode : node.getAdj()) {
+					for (int adjIndex = 0; adjIndex < graph.getDegree(node); adjIndex++) {
+						Node adjNode = graph.getAdjNode(node, adjIndex);
 						if (adjNode.getOwner() == null)
 							toPlace.add(adjNode);
 					}
@@ -160,40 +137,12 @@ public class DefensivePlayer extends Player {
 				else {
 					// place a unit at an unowned node, starting with the ones with the least adjacency threat
 					for (int i = 2; i <= 6; i++) {
-						// get all nodes of this degree
-						ArrayList<Node> degNodes = graph.getNodesWithDegree(i);
-						
-						// remove nodes owned by players
-						int index = 0;
-						while (index < degNodes.size()) {
-							if (degNodes.get(index).getOwner() != null) {
-								degNodes.remove(index);
-								degNodes.trimToSize();
-							}
-							else
-								index++;
-						}
+						// find the unowned node of this degree with the least adjacency threat using the default range
+						Node toReturn = graph.getUnownedNodeByAdjThreat(i, range, false);
 						
-						// is there only one left?
-						if (degNodes.size() == 1)
-							return degNodes.get(0);
-						// are there multiple ones left?
-						else if (degNodes.size() > 1) {
-							// find the node with the least adjacency threat using the default range
-							int min = graph.getAdjThreat(range, degNodes.get(0));
-							Node toReturn = degNodes.get(0);
-							
-							for (Node node : degNodes) {
-								int adjThreat = graph.getAdjThreat(range, node);
-								if (adjThreat < min) {
-									min = adjThreat;
-									toReturn = node;
-								}
-							}
-
-							// place a unit at that node
+						// place a unit at that node, if there are any left
+						if (toReturn != null)
 							return toReturn;
-						}
 					}
 				}
 			}
@@ -201,40 +150,8 @@ public class DefensivePlayer extends Player {
 			else {
 				// place the new unit in the most threatened node we own
 				
-				// create an ArrayList of all our nodes
-				ArrayList<Node> nodes = graph.getOwnedNodes(this);
-				
-				// eliminate nodes not adjacent to enemy nodes
-				int index = 0;
-				while (index < nodes.size()) {
-					boolean adjEnemy = false;
-					
-					// check all adjacent nodes
-					for (Node node : nodes.get(index).getAdj()) {
-						// if the node belongs to an enemy player, this node is valid
-						if (node.getOwner() != this) {
-							adjEnemy = true;
-							break;
-						}
-					}
-					
-					// remove the node or check the next one
-					if (adjEnemy)
-						index++;
-					else
-						nodes.remove(index);
-				}
-				
-				// iterate through to find the most threatened node
-				int max = 0;
-				Node toPlace = nodes.get(0); 
-				for (Node node : nodes) {
-					int threat = graph.getThreat(range, node);
-					if (threat > max) {
-						max = threat;
-						toPlace = node;
-					}
-				}
+				// find the most threatened node we own that is adjacent to enemy nodes
+				Node toPlace = graph.getMostThreatenedNode(this, range);
 				
 				// place the unit at the most threatened node
 				return toPlace;
@@ -249,63 +166,20 @@ public class DefensivePlayer extends Player {
 	 */
 	@Override
 	void turn() {
-		// get all owned nodes
-		ArrayList<Node> nodes = graph.getOwnedNodes(this);
-		
 		/*
 		 * ATTACK STEP
 		 */
-
-		// sort nodes in order of increasing number of units
-		boolean sorted = false;
-		while (!sorted) {
-			sorted = true;
-			for (int i = 0; i < nodes.size() - 1; i++) {
-				// compare this node to the next one
-				if (nodes.get(i).getUnits() < nodes.get(i+1).getUnits()) {
-					sorted = false;
-					
-					// move this node to the end of the list
-					nodes.add(i+2, nodes.get(i));
-					nodes.remove(i);
-				}
-			}
-		}
+		
+		// get the owned nodes with an enemy to attack, in order of decreasing number of units
+		ArrayList<Node> nodes = graph.getFrontierNodesByUnits(this);
 		
 		// iterate through the owned nodes and attack adjacent enemy nodes with fewer units
 		int index = 0;
 		while (index < nodes.size()) {
 			Node node = nodes.get(index); 
 			
-			// get the nodes adjacent to this one
-			ArrayList<Node> adjNodes = node.getAdj();
-			
-			// prune out nodes not belonging to the enemy
-			int index2 = 0;
-			while (index2 < adjNodes.size()) {
-				if (adjNodes.get(index2).getOwner() == this) {
-					adjNodes.remove(index2);
-					adjNodes.trimToSize();
-				}
-				else
-					index2++;
-			}		
-			
-			// sort nodes in order of increasing number of units
-			sorted = false;
-			while (!sorted) {
-				sorted = true;
-				for (int i = 0; i < adjNodes.size() - 1; i++) {
-					// compare this node to the next one
-					if (adjNodes.get(i).getUnits() > adjNodes.get(i+1).getUnits()) {
-						sorted = false;
-						
-						// move this node to the end of the list
-						adjNodes.add(i+2, adjNodes.get(i));
-						adjNodes.remove(i);
-					}
-				}
-			}
+			// get the enemy nodes adjacent to this one, in order of increasing number of units
+			ArrayList<Node> adjNodes = graph.getEnemyNeighboursByUnits(node);
 			
 			// iterate through the adjacent nodes
 			for (Node adjNode : adjNodes) {
@@ -329,24 +203,8 @@ public class DefensivePlayer extends Player {
 		Node to = null;
 		Node from = null;
 		
-		// get all owned nodes
-		nodes = graph.getOwnedNodes(this);
-		
-		// eliminate nodes not adjacent to other owned nodes
-		index = 0;
-		while (index < nodes.size()) {
-			boolean hasAdj = false;
-			for (Node adj : nodes.get(index).getAdj()) {
-				if (adj.getOwner() == this) {
-					hasAdj = true;
-					break;
-				}
-			}
-			if (!hasAdj)
-				nodes.remove(index);
-			else
-				index++;
-		}
+		// get the owned nodes adjacent to other owned nodes
+		nodes = graph.getLinkedNodes(this);
 		
 		// if there are no nodes left, don't fortify
 		if (nodes.size() > 1) {
@@ -365,7 +223,8 @@ public class DefensivePlayer extends Player {
 			// find the least threatened node adjacent to it
 			int minThreat = maxThreat;
 			Node leastThreatened = null;
-			for (Node node : mostThreatened.getAdj()) {
+			for (int adjIndex = 0; adjIndex < graph.getDegree(mostThreatened); adjIndex++) {
+				Node node = graph.getAdjNode(mostThreatened, adjIndex);
 				if (node.getOwner() == this) {
 					int threat = graph.getThreat(range, node);
 					if (threat < minThreat) {
@@ -0,0 +1,125 @@
+import java.util.Arrays;
+
+/**
+ * The Dice class resolves a single round of battle with one random draw. There are
+ * only six combinations of attacking dice (1 to 3) and defending dice (1 or 2), so
+ * every possible roll of every combination is counted up front, giving how many of
+ * the 6^(attackers+defenders) rolls end with each number of attacker wins. A battle
+ * then draws one number below that total and looks it up in the counts.
+ *
+ * The counts come from the same rule the dice were always rolled by: both sides'
+ * dice are sorted from lowest to highest and compared pairwise from the lowest up,
+ * as many pairs as the smaller side has dice, with ties going to the defender.
+ * Since the counts are exact, the odds of every outcome are exactly the same as
+ * rolling the dice one by one.
+ *
+ */
+public class Dice {
+
+	/**
+	 * The most dice an attacker can roll.
+	 */
+	public static final int MAX_ATTACK = 3;
+
+	/**
+	 * The most dice a defender can roll.
+	 */
+	public static final int MAX_DEFENSE = 2;
+
+	/**
+	 * For each (attackers, defenders), the number of rolls with at most k attacker
+	 * wins, for k from 0 to the number of pairs compared.
+	 */
+	private static final int[][][] cumulative = new int[MAX_ATTACK+1][MAX_DEFENSE+1][];
+
+	/**
+	 * For each (attackers, defenders), the total number of rolls (6^(a+d)).
+	 */
+	private static final int[][] totals = new int[MAX_ATTACK+1][MAX_DEFENSE+1];
+
+	static {
+		for (int a = 1; a <= MAX_ATTACK; a++) {
+			for (int d = 1; d <= MAX_DEFENSE; d++)
+				countOutcomes(a, d);
+		}
+	}
+
+	/**
+	 * Rolls one round of battle.
+	 * @param random The random number generator to draw from.
+	 * @param attackers The number of attacking dice, from 1 to 3.
+	 * @param defenders The number of defending dice, from 1 to 2.
+	 * @return The number of pairs the attacker won, which is the number of units the
+	 * defender loses. The attacker loses min(attackers, defenders) minus this.
+	 */
+	public static int roll(GameRandom random, int attackers, int defenders) {
+		int[] counts = cumulative[attackers][defenders];
+		int draw = random.nextInt(totals[attackers][defenders]);
+		int wins = 0;
+		while (draw >= counts[wins])
+			wins++;
+		return wins;
+	}
+
+	/**
+	 * Gets the chance of a round of battle ending with a given number of attacker wins.
+	 * @param attackers The number of attacking dice, from 1 to 3.
+	 * @param defenders The number of defending dice, from 1 to 2.
+	 * @param wins The number of pairs the attacker wins.
+	 * @return The probability, from 0 to 1.
+	 */
+	public static double getProbability(int attackers, int defenders, int wins) {
+		int[] counts = cumulative[attackers][defenders];
+		if (wins < 0 || wins >= counts.length)
+			return 0;
+		int count = counts[wins] - ((wins > 0) ? counts[wins-1] : 0);
+		return count / (double)totals[attackers][defenders];
+	}
+
+	/**
+	 * Counts how many rolls of a combination end with each number of attacker wins, by
+	 * going through every roll of the dice.
+	 * @param a The number of attacking dice.
+	 * @param d The number of defending dice.
+	 */
+	private static void countOutcomes(int a, int d) {
+		int pairs = Math.min(a, d);
+		int total = 1;
+		for (int i = 0; i < a + d; i++)
+			total *= 6;
+
+		int[] counts = new int[pairs+1];
+		int[] attackRolls = new int[a];
+		int[] defendRolls = new int[d];
+		for (int roll = 0; roll < total; roll++) {
+			// read the dice off the digits of the roll number in base 6
+			int digits = roll;
+			for (int i = 0; i < a; i++) {
+				attackRolls[i] = digits % 6;
+				digits /= 6;
+			}
+			for (int i = 0; i < d; i++) {
+				defendRolls[i] = digits % 6;
+				digits /= 6;
+			}
+			Arrays.sort(attackRolls);
+			Arrays.sort(defendRolls);
+
+			// compare the dice from the lowest up; on a tie, the defender wins
+			int wins = 0;
+			for (int i = 0; i < pairs; i++) {
+				if (attackRolls[i] > defendRolls[i])
+					wins++;
+			}
+			counts[wins]++;
+		}
+
+		// turn the counts into running totals for the lookup
+		for (int k = 1; k <= pairs; k++)
+			counts[k] += counts[k-1];
+
+		cumulative[a][d] = counts;
+		totals[a][d] = total;
+		return;
+	}
+}
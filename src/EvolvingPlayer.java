@@ -1,5 +1,4 @@
 import java.util.ArrayList;
-import java.util.Random;
 
 /**
  * @author Graham
@@ -44,6 +43,28 @@ public class EvolvingPlayer extends Player {
 		turnStrats[0] = 0; turnStrats[1] = 0; turnStrats[2] = 0; turnStrats[3] = -1;
 	}
 	
+	/**
+	 * Gets a copy of the player's strategy weights (its genome): the defend, occupy,
+	 * place and turn weights, in that order.
+	 * @return The copy.
+	 */
+	public double[][] getGenome() {
+		double[][] genome = new double[masterStrats.length][];
+		for (int i = 0; i < masterStrats.length; i++)
+			genome[i] = masterStrats[i].clone();
+		return genome;
+	}
+	
+	/**
+	 * Replaces the player's strategy weights with a copy of another genome.
+	 * @param genome The weights, as returned by getGenome.
+	 */
+	public void setGenome(double[][] genome) {
+		for (int i = 0; i < masterStrats.length; i++)
+			System.arraycopy(genome[i], 0, masterStrats[i], 0, masterStrats[i].length);
+		return;
+	}
+	
 	/* (non-Javadoc)
 	 * @see Player#toString()
 	 */
@@ -86,36 +107,64 @@ public class EvolvingPlayer extends Player {
 		return out;
 	}
 	
+	/**
+	 * Determines if the player has fully evolved, which is when the favourite value
+	 * of every strategy leads all of the others by more than the mutation rate.
+	 * @return True if the player has fully evolved, false if it hasn't.
+	 */
+	public boolean isFullyEvolved() {
+		for (double[] strat : masterStrats) {
+			double highest = 0;
+			double lowest = 0;
+			
+			// find the highest and lowest values
+			for (double val : strat) {
+				if (val > highest)
+					highest = val;
+				else if (val >= 0 && val < lowest)
+					lowest = val;
+			}
+			
+			// if the highest and the lowest are equal, it is not fully evolved
+			if (highest == lowest)
+				return false;
+			
+			// see if it exceeds all of the others by the mutation rate
+			for (double val : strat) {
+				if (val < highest && val >= 0 && val + mutationRate >= highest)
+					return false;
+			}
+		}
+		
+		return true;
+	}
+	
 	public void gameStart() {
 		// did we win the last game?
 		boolean won = false;
-		if (prevGamesWon < get("GAMES_WON")) {
+		if (prevGamesWon < get(Stat.GAMES_WON)) {
 			won = true;
 			prevGamesWon++;
 		}
 		
 		// if we did, add rand(1)*learningRate to
 		if (won) {
-			Random rand = new Random();
-			
 			// iterate through the current strats
 			for (int i = 0; i < currentStrats.length; i++) {
 				int strat = currentStrats[i];
-				masterStrats[i][strat] += rand.nextDouble()*learningRate;
+				masterStrats[i][strat] += random.nextDouble()*learningRate;
 			}
 		}
 		
 		// select strats for the next game; iterate through currentStrats
 		for (int i = 0; i < currentStrats.length; i++) {
-			Random rand = new Random();
-			
 			// create a new array to hold the mutated values
 			double[] selection = new double[masterStrats[i].length];
 			
 			// mutate the values if they're positive
 			for (int j = 0; j < selection.length; j++) {
 				if (masterStrats[i][j] >= 0)
-					selection[j] = masterStrats[i][j] + rand.nextDouble()*mutationRate;
+					selection[j] = masterStrats[i][j] + random.nextDouble()*mutationRate;
 				else
 					selection[j] = 0;
 			}
@@ -135,6 +184,14 @@ public class EvolvingPlayer extends Player {
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see Player#getStrategies()
+	 */
+	@Override
+	public int[] getStrategies() {
+		return currentStrats.clone();
+	}
+	
 	/* (non-Javadoc)
 	 * @see Player#defend(Node, Node, int)
 	 */
@@ -236,37 +293,13 @@ public class EvolvingPlayer extends Player {
 		if (graph.getNumOwnedNodes(this) == 0) {
 			// place the first unit down in an aggressive node (adjacency of 6)
 			// choose the one with the most adjacency threat
-			ArrayList<Node> degNodes = new ArrayList<Node>(0);
-			
 			for (int i = 6; i >= 2; i--) {
-				degNodes = graph.getNodesWithDegree(i);
+				// find the unowned node of this degree with the most adjacency threat using the default range
+				Node toPlace = graph.getUnownedNodeByAdjThreat(i, range, true);
 				
-				// prune nodes belonging to other players
-				int index = 0;
-				while (index < degNodes.size()) {
-					if (degNodes.get(index).getOwner() != null)
-						degNodes.remove(index);
-					else
-						index++;
-				}
-				
-				// are there any possible candidates?
-				if (degNodes.size() > 0) {
-					// find the node with the most adjacency threat using the default range
-					int max = graph.getAdjThreat(range, degNodes.get(0));
-					Node toPlace = degNodes.get(0);
-					
-					for (Node node : degNodes) {
-						int adjThreat = graph.getAdjThreat(range, node);
-						if (adjThreat > max) {
-							max = adjThreat;
-							toPlace = node;
-						}
-					}
-					
-					// place a unit at that node
+				// place a unit at that node, if there are any candidates
+				if (toPlace != null)
 					return toPlace;
-				}
 			}
 		}
 		// if we already have units on the field
@@ -283,7 +316,8 @@ public class EvolvingPlayer extends Player {
 				
 				// iterate through all of our nodes and add any adjacent unowned nodes
 				for (Node node : nodes) {
-					for (Node adjNode : node.getAdj()) {
+					for (int adjIndex = 0; adjIndex < graph.getDegree(node); adjIndex++) {
+						Node adjNode = graph.getAdjNode(node, adjIndex);
 						if (adjNode.getOwner() == null)
 							toPlace.add(adjNode);
 					}
@@ -320,40 +354,12 @@ public class EvolvingPlayer extends Player {
 				else {
 					// place a unit at an unowned node, starting with the ones with the least adjacency threat
 					for (int i = 6; i >= 2; i--) {
-						// get all nodes of this degree
-						ArrayList<Node> degNodes = graph.getNodesWithDegree(i);
+						// find the unowned node of this degree with the most adjacency threat using the default range
+						Node toReturn = graph.getUnownedNodeByAdjThreat(i, range, true);
 						
-						// remove nodes owned by players
-						int index = 0;
-						while (index < degNodes.size()) {
-							if (degNodes.get(index).getOwner() != null) {
-								degNodes.remove(index);
-								degNodes.trimToSize();
-							}
-							else
-								index++;
-						}
-						
-						// is there only one left?
-						if (degNodes.size() == 1)
-							return degNodes.get(0);
-						// are there multiple ones left?
-						else if (degNodes.size() > 1) {
-							// find the node with the least adjacency threat using the default range
-							int max = graph.getAdjThreat(range, degNodes.get(0));
-							Node toReturn = degNodes.get(0);
-							
-							for (Node node : degNodes) {
-								int adjThreat = graph.getAdjThreat(range, node);
-								if (adjThreat > max) {
-									max = adjThreat;
-									toReturn = node;
-								}
-							}
-
-							// place a unit at that node
+						// place a unit at that node, if there are any left
+						if (toReturn != null)
 							return toReturn;
-						}
 					}
 				}
 			}
@@ -361,40 +367,8 @@ public class EvolvingPlayer extends Player {
 			else {
 				// place the new unit in the most threatened node we own
 				
-				// create an ArrayList of all our nodes
-				ArrayList<Node> nodes = graph.getOwnedNodes(this);
-				
-				// eliminate nodes not adjacent to enemy nodes
-				int index = 0;
-				while (index < nodes.size()) {
-					boolean adjEnemy = false;
-					
-					// check all adjacent nodes
-					for (Node node : nodes.get(index).getAdj()) {
-						// if the node belongs to an enemy player, this node is valid
-						if (node.getOwner() != this) {
-							adjEnemy = true;
-							break;
-						}
-					}
-					
-					// remove the node or check the next one
-					if (adjEnemy)
-						index++;
-					else
-						nodes.remove(index);
-				}
-				
-				// iterate through to find the most threatened node
-				int max = 0;
-				Node toPlace = nodes.get(0); 
-				for (Node node : nodes) {
-					int threat = graph.getThreat(range, node);
-					if (threat > max) {
-						max = threat;
-						toPlace = node;
-					}
-				}
+				// find the most threatened node we own that is adjacent to enemy nodes
+				Node toPlace = graph.getMostThreatenedNode(this, range);
 				
 				// place the unit at the most threatened node
 				return toPlace;
@@ -412,21 +386,9 @@ public class EvolvingPlayer extends Player {
 		if (graph.getNumOwnedNodes(this) == 0) {
 			// try to place a unit in the first node with a preferred degree
 			for (int x : pref) {
-				if (graph.getNumNodesWithDegree(x) > 0) {
-					ArrayList<Node> degNodes = graph.getNodesWithDegree(x);
-					
-					// prune nodes belonging to players
-					int index = 0;
-					while (index < degNodes.size()) {
-						if (degNodes.get(index).getOwner() != null)
-							degNodes.remove(index);
-						else
-							index++;
-					}
-					
-					if (degNodes.size() > 0)
-						return degNodes.get(0);
-				}
+				Node first = graph.getFirstUnownedNodeWithDegree(x);
+				if (first != null)
+					return first;
 			}
 		}
 		// if we already have units on the field
@@ -443,7 +405,8 @@ public class EvolvingPlayer extends Player {
 				
 				// iterate through all of our nodes and add any adjacent unowned nodes
 				for (Node node : nodes) {
-					for (Node adjNode : node.getAdj()) {
+					for (int adjIndex = 0; adjIndex < graph.getDegree(node); adjIndex++) {
+						Node adjNode = graph.getAdjNode(node, adjIndex);
 						if (adjNode.getOwner() == null)
 							toPlace.add(adjNode);
 					}
@@ -459,7 +422,7 @@ public class EvolvingPlayer extends Player {
 					// if so, place the unit at the one with the most preferred degree
 					for (int x : pref) {
 						for (Node node : toPlace) {
-							if (node.getAdj().size() == x)
+							if (graph.getDegree(node) == x)
 								return node;
 						}
 					}
@@ -468,21 +431,9 @@ public class EvolvingPlayer extends Player {
 				else {
 					// try to place a unit in the first node with a preferred degree
 					for (int x : pref) {
-						if (graph.getNumNodesWithDegree(x) > 0) {
-							ArrayList<Node> degNodes = graph.getNodesWithDegree(x);
-							
-							// prune nodes belonging to players
-							int index = 0;
-							while (index < degNodes.size()) {
-								if (degNodes.get(index).getOwner() != null)
-									degNodes.remove(index);
-								else
-									index++;
-							}
-							
-							if (degNodes.size() > 0)
-								return degNodes.get(0);
-						}
+						Node first = graph.getFirstUnownedNodeWithDegree(x);
+						if (first != null)
+							return first;
 					}
 				}
 			}
@@ -522,37 +473,13 @@ public class EvolvingPlayer extends Player {
 		if (graph.getNumOwnedNodes(this) == 0) {
 			// place the first unit down in the most defensive node (lowest degree)
 			// choose the one with the least adjacency threat
-			ArrayList<Node> degNodes = new ArrayList<Node>(0);
-			
 			for (int i = 2; i <= 6; i++) {
-				degNodes = graph.getNodesWithDegree(i);
+				// find the unowned node of this degree with the least adjacency threat using the default range
+				Node toPlace = graph.getUnownedNodeByAdjThreat(i, range, false);
 				
-				// prune nodes belonging to other players
-				int index = 0;
-				while (index < degNodes.size()) {
-					if (degNodes.get(index).getOwner() != null)
-						degNodes.remove(index);
-					else
-						index++;
-				}
-				
-				// are there any possible candidates?
-				if (degNodes.size() > 0) {
-					// find the node with the least adjacency threat using the default range
-					int min = graph.getAdjThreat(range, degNodes.get(0));
-					Node toPlace = degNodes.get(0);
-					
-					for (Node node : degNodes) {
-						int adjThreat = graph.getAdjThreat(range, node);
-						if (adjThreat < min) {
-							min = adjThreat;
-							toPlace = node;
-						}
-					}
-					
-					// place a unit at that node
+				// place a unit at that node, if there are any candidates
+				if (toPlace != null)
 					return toPlace;
-				}
 			}
 		}
 		// if we already have units on the field
@@ -569,7 +496,8 @@ public class EvolvingPlayer extends Player {
 				
 				// iterate through all of our nodes and add any adjacent unowned nodes
 				for (Node node : nodes) {
-					for (Node adjNode : node.getAdj()) {
+					for (int adjIndex = 0; adjIndex < graph.getDegree(node); adjIndex++) {
+						Node adjNode = graph.getAdjNode(node, adjIndex);
 						if (adjNode.getOwner() == null)
 							toPlace.add(adjNode);
 					}
@@ -606,40 +534,12 @@ public class EvolvingPlayer extends Player {
 				else {
 					// place a unit at an unowned node, starting with the ones with the least adjacency threat
 					for (int i = 2; i <= 6; i++) {
-						// get all nodes of this degree
-						ArrayList<Node> degNodes = graph.getNodesWithDegree(i);
+						// find the unowned node of this degree with the least adjacency threat using the default range
+						Node toReturn = graph.getUnownedNodeByAdjThreat(i, range, false);
 						
-						// remove nodes owned by players
-						int index = 0;
-						while (index < degNodes.size()) {
-							if (degNodes.get(index).getOwner() != null) {
-								degNodes.remove(index);
-								degNodes.trimToSize();
-							}
-							else
-								index++;
-						}
-						
-						// is there only one left?
-						if (degNodes.size() == 1)
-							return degNodes.get(0);
-						// are there multiple ones left?
-						else if (degNodes.size() > 1) {
-							// find the node with the least adjacency threat using the default range
-							int min = graph.getAdjThreat(range, degNodes.get(0));
-							Node toReturn = degNodes.get(0);
-							
-							for (Node node : degNodes) {
-								int adjThreat = graph.getAdjThreat(range, node);
-								if (adjThreat < min) {
-									min = adjThreat;
-									toReturn = node;
-								}
-							}
-
-							// place a unit at that node
+						// place a unit at that node, if there are any left
+						if (toReturn != null)
 							return toReturn;
-						}
 					}
 				}
 			}
@@ -647,40 +547,8 @@ public class EvolvingPlayer extends Player {
 			else {
 				// place the new unit in the most threatened node we own
 				
-				// create an ArrayList of all our nodes
-				ArrayList<Node> nodes = graph.getOwnedNodes(this);
-				
-				// eliminate nodes not adjacent to enemy nodes
-				int index = 0;
-				while (index < nodes.size()) {
-					boolean adjEnemy = false;
-					
-					// check all adjacent nodes
-					for (Node node : nodes.get(index).getAdj()) {
-						// if the node belongs to an enemy player, this node is valid
-						if (node.getOwner() != this) {
-							adjEnemy = true;
-							break;
-						}
-					}
-					
-					// remove the node or check the next one
-					if (adjEnemy)
-						index++;
-					else
-						nodes.remove(index);
-				}
-				
-				// iterate through to find the most threatened node
-				int max = 0;
-				Node toPlace = nodes.get(0); 
-				for (Node node : nodes) {
-					int threat = graph.getThreat(range, node);
-					if (threat > max) {
-						max = threat;
-						toPlace = node;
-					}
-				}
+				// find the most threatened node we own that is adjacent to enemy nodes
+				Node toPlace = graph.getMostThreatenedNode(this, range);
 				
 				// place the unit at the most threatened node
 				return toPlace;
@@ -698,21 +566,9 @@ public class EvolvingPlayer extends Player {
 		if (graph.getNumOwnedNodes(this) == 0) {
 			// try to place a unit in the first node with a preferred degree
 			for (int x : pref) {
-				if (graph.getNumNodesWithDegree(x) > 0) {
-					ArrayList<Node> degNodes = graph.getNodesWithDegree(x);
-					
-					// prune nodes belonging to players
-					int index = 0;
-					while (index < degNodes.size()) {
-						if (degNodes.get(index).getOwner() != null)
-							degNodes.remove(index);
-						else
-							index++;
-					}
-					
-					if (degNodes.size() > 0)
-						return degNodes.get(0);
-				}
+				Node first = graph.getFirstUnownedNodeWithDegree(x);
+				if (first != null)
+					return first;
 			}
 		}
 		// if we already have units on the field
@@ -729,7 +585,8 @@ public class EvolvingPlayer extends Player {
 				
 				// iterate through all of our nodes and add any adjacent unowned nodes
 				for (Node node : nodes) {
-					for (Node adjNode : node.getAdj()) {
+					for (int adjIndex = 0; adjIndex < graph.getDegree(node); adjIndex++) {
+						Node adjNode = graph.getAdjNode(node, adjIndex);
 						if (adjNode.getOwner() == null)
 							toPlace.add(adjNode);
 					}
@@ -745,7 +602,7 @@ public class EvolvingPlayer extends Player {
 					// if so, place the unit at the one with the most preferred degree
 					for (int x : pref) {
 						for (Node node : toPlace) {
-							if (node.getAdj().size() == x)
+							if (graph.getDegree(node) == x)
 								return node;
 						}
 					}
@@ -754,21 +611,9 @@ public class EvolvingPlayer extends Player {
 				else {
 					// try to place a unit in the first node with a preferred degree
 					for (int x : pref) {
-						if (graph.getNumNodesWithDegree(x) > 0) {
-							ArrayList<Node> degNodes = graph.getNodesWithDegree(x);
-							
-							// prune nodes belonging to players
-							int index = 0;
-							while (index < degNodes.size()) {
-								if (degNodes.get(index).getOwner() != null)
-									degNodes.remove(index);
-								else
-									index++;
-							}
-							
-							if (degNodes.size() > 0)
-								return degNodes.get(0);
-						}
+						Node first = graph.getFirstUnownedNodeWithDegree(x);
+						if (first != null)
+							return first;
 					}
 				}
 			}
@@ -776,30 +621,8 @@ public class EvolvingPlayer extends Player {
 			else {
 				// try to make every node have the same number of units
 				
-				// create an ArrayList of all our nodes
-				ArrayList<Node> nodes = graph.getOwnedNodes(this);
-				
-				// prune nodes that aren't adjacent to the enemy
-				int index = 0;
-				while (index < nodes.size()) {
-					// get the adjacent nodes
-					ArrayList<Node> adjNodes = nodes.get(index).getAdj();
-					
-					// see if any of the adjacent nodes belong to the enemy
-					boolean hasAdjEnemy = false;
-					for (Node node : adjNodes) {
-						if (node.getOwner() != this) {
-							hasAdjEnemy = true;
-							break;
-						}
-					}
-					
-					// keep the node if it does
-					if (hasAdjEnemy)
-						index++;
-					else
-						nodes.remove(index);
-				}
+				// get the nodes we own that are adjacent to enemy nodes
+				ArrayList<Node> nodes = graph.getFrontierNodes(this);
 				
 				// find the average units per node (round down)
 				int units = 0;
@@ -826,28 +649,12 @@ public class EvolvingPlayer extends Player {
 	}
 	
 	void aggTurn() {
-		// get all owned nodes
-		ArrayList<Node> nodes = graph.getOwnedNodes(this);
-		
 		/*
 		 * ATTACK STEP
 		 */
 		
-		// sort nodes in order of decreasing number of units
-		boolean sorted = false;
-		while (!sorted) {
-			sorted = true;
-			for (int i = 0; i < nodes.size() - 1; i++) {
-				// compare this node to the next one
-				if (nodes.get(i).getUnits() < nodes.get(i+1).getUnits()) {
-					sorted = false;
-					
-					// move this node to the end of the list
-					nodes.add(i+2, nodes.get(i));
-					nodes.remove(i);
-				}
-			}
-		}
+		// get the owned nodes with an enemy to attack, in order of decreasing number of units
+		ArrayList<Node> nodes = graph.getFrontierNodesByUnits(this);
 		
 		// iterate through the owned nodes and attack adjacent enemy nodes
 		// start from own node with most units and attack enemy nodes in increasing order of number of units
@@ -855,45 +662,30 @@ public class EvolvingPlayer extends Player {
 		while (index < nodes.size()) {
 			Node node = nodes.get(index); 
 			
-			// get the nodes adjacent to this one
-			ArrayList<Node> adjNodes = node.getAdj();
+			// get the enemy nodes adjacent to this one, in order of increasing number of units
+			ArrayList<Node> adjNodes = graph.getEnemyNeighboursByUnits(node);
 			
-			// prune out nodes not belonging to the enemy
-			int index2 = 0;
-			while (index2 < adjNodes.size()) {
-				if (adjNodes.get(index2).getOwner() == this) {
-					adjNodes.remove(index2);
-					adjNodes.trimToSize();
-				}
-				else
-					index2++;
-			}
-			
-			// sort nodes in order of increasing number of units
-			sorted = false;
-			while (!sorted) {
-				sorted = true;
-				for (int i = 0; i < adjNodes.size() - 1; i++) {
-					// compare this node to the next one
-					if (adjNodes.get(i).getUnits() > adjNodes.get(i+1).getUnits()) {
-						sorted = false;
+			// iterate through the adjacent nodes
+			for (Node adjNode : adjNodes) {
+				// in blitz mode, settle the whole fight at once
+				if (blitzing) {
+					if (node.getUnits() > 1 && adjNode.getOwner() != this) {
+						blitz(node, adjNode);
 						
-						// move this node to the end of the list
-						adjNodes.add(i+2, adjNodes.get(i));
-						adjNodes.remove(i);
+						// add the node to the list of owned nodes if we captured it
+						if (adjNode.getOwner() == this)
+							nodes.add(adjNode);
 					}
 				}
-			}
-			
-			// iterate through the adjacent nodes
-			for (Node adjNode : adjNodes) {
 				// while we have units and while the adjacent node belongs to the enemy, attack
-				while (node.getUnits() > 1 && adjNode.getOwner() != this) {
-					attack(node, adjNode, Math.min(node.getUnits()-1, 3));
-					
-					// add the node to the list of owned nodes if we captured it
-					if (adjNode.getOwner() == this)
-						nodes.add(adjNode);
+				else {
+					while (node.getUnits() > 1 && adjNode.getOwner() != this) {
+						attack(node, adjNode, Math.min(node.getUnits()-1, 3));
+						
+						// add the node to the list of owned nodes if we captured it
+						if (adjNode.getOwner() == this)
+							nodes.add(adjNode);
+					}
 				}
 			}
 			
@@ -907,24 +699,8 @@ public class EvolvingPlayer extends Player {
 		Node to = null;
 		Node from = null;
 		
-		// get all owned nodes
-		nodes = graph.getOwnedNodes(this);
-		
-		// eliminate nodes not adjacent to other owned nodes
-		index = 0;
-		while (index < nodes.size()) {
-			boolean hasAdj = false;
-			for (Node adj : nodes.get(index).getAdj()) {
-				if (adj.getOwner() == this) {
-					hasAdj = true;
-					break;
-				}
-			}
-			if (!hasAdj)
-				nodes.remove(index);
-			else
-				index++;
-		}
+		// get the owned nodes adjacent to other owned nodes
+		nodes = graph.getLinkedNodes(this);
 		
 		// if there are no nodes left, don't fortify
 		if (nodes.size() > 1) {
@@ -943,7 +719,8 @@ public class EvolvingPlayer extends Player {
 			// find the least threatened node adjacent to it
 			int minThreat = maxThreat;
 			Node leastThreatened = null;
-			for (Node node : mostThreatened.getAdj()) {
+			for (int adjIndex = 0; adjIndex < graph.getDegree(mostThreatened); adjIndex++) {
+				Node node = graph.getAdjNode(mostThreatened, adjIndex);
 				if (node.getOwner() == this) {
 					int threat = graph.getThreat(range, node);
 					if (threat < minThreat) {
@@ -963,31 +740,12 @@ public class EvolvingPlayer extends Player {
 	}
 	
 	void balTurn() {
-		// get all owned nodes
-		ArrayList<Node> nodes = graph.getOwnedNodes(this);
-		
 		/*
 		 * ATTACK STEP
 		 */
 		
-		// sort nodes in order of decreasing number of units
-		boolean sorted = false;
-		while (!sorted) {
-			sorted = true;
-			int index = 0;
-			while (index < nodes.size() - 1) {
-				// compare this node to the next one
-				if (nodes.get(index).getUnits() < nodes.get(index+1).getUnits()) {
-					sorted = false;
-					
-					// move this node to the end of the list
-					nodes.add(nodes.get(index));
-					nodes.remove(index);
-				}
-				else
-					index++;
-			}
-		}
+		// get all owned nodes, in order of decreasing number of units
+		ArrayList<Node> nodes = sortByUnits(graph.getOwnedNodes(this), true);
 		
 		// iterate through the owned nodes and attack adjacent enemy nodes
 		// start from own node with most units and attack enemy nodes in increasing order of number of units
@@ -995,39 +753,14 @@ public class EvolvingPlayer extends Player {
 		while (index < nodes.size()) {
 			Node node = nodes.get(index); 
 			
-			// get the nodes adjacent to this one
-			ArrayList<Node> adjNodes = new ArrayList<Node>(node.getAdj());
-			
-			// prune out nodes not belonging to the enemy
-			int index2 = 0;
-			while (index2 < adjNodes.size()) {
-				if (adjNodes.get(index2).getOwner() == this) {
-					adjNodes.remove(index2);
-					adjNodes.trimToSize();
-				}
-				else
-					index2++;
-			}		
-			
-			// sort the adjacent enemy nodes in order of least to most units
-			sorted = false;
-			while (!sorted) {
-				sorted = true;
-				index2 = 0;
-				while (index2 < adjNodes.size() - 1) {
-					// compare this node to the next one
-					if (adjNodes.get(index2).getUnits() > adjNodes.get(index2+1).getUnits()) {
-						sorted = false;
-						
-						// move this node to the end of the list
-						adjNodes.add(adjNodes.get(index2));
-						adjNodes.remove(index2);
-					}
-					else
-						index2++;
-				}
+			// interior nodes have no enemy to attack
+			if (!graph.isFrontier(node)) {
+				index++;
+				continue;
 			}
 			
+			// get the enemy nodes adjacent to this one, in order of increasing number of units
+			ArrayList<Node> adjNodes = sortByUnits(graph.getEnemyNeighbours(node), false);
 			
 			// iterate through the adjacent nodes; call off the attack if any units are lost
 			for (Node adjNode : adjNodes) {
@@ -1057,31 +790,16 @@ public class EvolvingPlayer extends Player {
 		Node from = null;
 		int toMove = 0;
 		
-		// get all owned nodes
-		nodes = graph.getOwnedNodes(this);
-		
-		// eliminate nodes not adjacent to other owned nodes
-		index = 0;
-		while (index < nodes.size()) {
-			boolean hasAdj = false;
-			for (Node adj : nodes.get(index).getAdj()) {
-				if (adj.getOwner() == this) {
-					hasAdj = true;
-					break;
-				}
-			}
-			if (!hasAdj)
-				nodes.remove(index);
-			else
-				index++;
-		}
+		// get the owned nodes adjacent to other owned nodes
+		nodes = graph.getLinkedNodes(this);
 		
 		// if there are no nodes or only one node left, don't fortify
 		if (nodes.size() > 1) {
 			// find the average units per node (round down)
 			int units = 0;
-			for (Node node : graph.getOwnedNodes(this)) {
-				units += node.getUnits();
+			NodeSet owned = graph.getOwnedNodeSet(this);
+			for (int i = owned.next(0); i >= 0; i = owned.next(i+1)) {
+				units += graph.getNode(i).getUnits();
 			}
 			int avgUnits = units/graph.getNumOwnedNodes(this);
 			
@@ -1096,22 +814,11 @@ public class EvolvingPlayer extends Player {
 			
 			// find the first node that can be brought up to the average by an adjacent node
 			for (Node node : nodes) {
-				// get the nodes adjacent to this one
-				ArrayList<Node> adjNodes = new ArrayList<Node>(node.getAdj());
-				
-				// prune out nodes belonging to the enemy
-				index = 0;
-				while (index < adjNodes.size()) {
-					if (adjNodes.get(index).getOwner() != this) {
-						adjNodes.remove(index);
-						adjNodes.trimToSize();
-					}
-					else
-						index++;
-				}
-				
-				// see if an adjacent node can supply this one without dropping below average
-				for (Node adjNode : adjNodes) {
+				// see if one of our adjacent nodes can supply this one without dropping below average
+				for (int adjIndex = 0; adjIndex < graph.getDegree(node); adjIndex++) {
+					Node adjNode = graph.getAdjNode(node, adjIndex);
+					if (adjNode.getOwner() != this)
+						continue;
 					if (adjNode.getUnits() >= avgUnits + (avgUnits - node.getUnits())) {
 						from = adjNode;
 						to = node;
@@ -1132,63 +839,20 @@ public class EvolvingPlayer extends Player {
 	}
 	
 	void defTurn() {
-		// get all owned nodes
-		ArrayList<Node> nodes = graph.getOwnedNodes(this);
-		
 		/*
 		 * ATTACK STEP
 		 */
-
-		// sort nodes in order of increasing number of units
-		boolean sorted = false;
-		while (!sorted) {
-			sorted = true;
-			for (int i = 0; i < nodes.size() - 1; i++) {
-				// compare this node to the next one
-				if (nodes.get(i).getUnits() < nodes.get(i+1).getUnits()) {
-					sorted = false;
-					
-					// move this node to the end of the list
-					nodes.add(i+2, nodes.get(i));
-					nodes.remove(i);
-				}
-			}
-		}
+		
+		// get the owned nodes with an enemy to attack, in order of decreasing number of units
+		ArrayList<Node> nodes = graph.getFrontierNodesByUnits(this);
 		
 		// iterate through the owned nodes and attack adjacent enemy nodes with fewer units
 		int index = 0;
 		while (index < nodes.size()) {
 			Node node = nodes.get(index); 
 			
-			// get the nodes adjacent to this one
-			ArrayList<Node> adjNodes = node.getAdj();
-			
-			// prune out nodes not belonging to the enemy
-			int index2 = 0;
-			while (index2 < adjNodes.size()) {
-				if (adjNodes.get(index2).getOwner() == this) {
-					adjNodes.remove(index2);
-					adjNodes.trimToSize();
-				}
-				else
-					index2++;
-			}		
-			
-			// sort nodes in order of increasing number of units
-			sorted = false;
-			while (!sorted) {
-				sorted = true;
-				for (int i = 0; i < adjNodes.size() - 1; i++) {
-					// compare this node to the next one
-					if (adjNodes.get(i).getUnits() > adjNodes.get(i+1).getUnits()) {
-						sorted = false;
-						
-						// move this node to the end of the list
-						adjNodes.add(i+2, adjNodes.get(i));
-						adjNodes.remove(i);
-					}
-				}
-			}
+			// get the enemy nodes adjacent to this one, in order of increasing number of units
+			ArrayList<Node> adjNodes = graph.getEnemyNeighboursByUnits(node);
 			
 			// iterate through the adjacent nodes
 			for (Node adjNode : adjNodes) {
@@ -1212,24 +876,8 @@ public class EvolvingPlayer extends Player {
 		Node to = null;
 		Node from = null;
 		
-		// get all owned nodes
-		nodes = graph.getOwnedNodes(this);
-		
-		// eliminate nodes not adjacent to other owned nodes
-		index = 0;
-		while (index < nodes.size()) {
-			boolean hasAdj = false;
-			for (Node adj : nodes.get(index).getAdj()) {
-				if (adj.getOwner() == this) {
-					hasAdj = true;
-					break;
-				}
-			}
-			if (!hasAdj)
-				nodes.remove(index);
-			else
-				index++;
-		}
+		// get the owned nodes adjacent to other owned nodes
+		nodes = graph.getLinkedNodes(this);
 		
 		// if there are no nodes left, don't fortify
 		if (nodes.size() > 1) {
@@ -1248,7 +896,8 @@ public class EvolvingPlayer extends Player {
 			// find the least threatened node adjacent to it
 			int minThreat = maxThreat;
 			Node leastThreatened = null;
-			for (Node node : mostThreatened.getAdj()) {
+			for (int adjIndex = 0; adjIndex < graph.getDegree(mostThreatened); adjIndex++) {
+				Node node = graph.getAdjNode(mostThreatened, adjIndex);
 				if (node.getOwner() == this) {
 					int threat = graph.getThreat(range, node);
 					if (threat < minThreat) {
@@ -1268,31 +917,12 @@ public class EvolvingPlayer extends Player {
 	}
 	
 	void walTurn() {
-		// get all owned nodes
-		ArrayList<Node> nodes = graph.getOwnedNodes(this);
-		
 		/*
 		 * ATTACK STEP
 		 */
 		
-		// sort nodes in order of decreasing number of units
-		boolean sorted = false;
-		while (!sorted) {
-			sorted = true;
-			int index = 0;
-			while (index < nodes.size() - 1) {
-				// compare this node to the next one
-				if (nodes.get(index).getUnits() < nodes.get(index+1).getUnits()) {
-					sorted = false;
-					
-					// move this node to the end of the list
-					nodes.add(nodes.get(index));
-					nodes.remove(index);
-				}
-				else
-					index++;
-			}
-		}
+		// get all owned nodes, in order of decreasing number of units
+		ArrayList<Node> nodes = sortByUnits(graph.getOwnedNodes(this), true);
 		
 		// iterate through the owned nodes and attack adjacent enemy nodes
 		// start from own node with most units and attack enemy nodes in increasing order of number of units
@@ -1300,39 +930,14 @@ public class EvolvingPlayer extends Player {
 		while (index < nodes.size()) {
 			Node node = nodes.get(index); 
 			
-			// get the nodes adjacent to this one
-			ArrayList<Node> adjNodes = new ArrayList<Node>(node.getAdj());
-			
-			// prune out nodes not belonging to the enemy
-			int index2 = 0;
-			while (index2 < adjNodes.size()) {
-				if (adjNodes.get(index2).getOwner() == this) {
-					adjNodes.remove(index2);
-					adjNodes.trimToSize();
-				}
-				else
-					index2++;
-			}		
-			
-			// sort the adjacent enemy nodes in order of least to most units
-			sorted = false;
-			while (!sorted) {
-				sorted = true;
-				index2 = 0;
-				while (index2 < adjNodes.size() - 1) {
-					// compare this node to the next one
-					if (adjNodes.get(index2).getUnits() > adjNodes.get(index2+1).getUnits()) {
-						sorted = false;
-						
-						// move this node to the end of the list
-						adjNodes.add(adjNodes.get(index2));
-						adjNodes.remove(index2);
-					}
-					else
-						index2++;
-				}
+			// interior nodes have no enemy to attack
+			if (!graph.isFrontier(node)) {
+				index++;
+				continue;
 			}
 			
+			// get the enemy nodes adjacent to this one, in order of increasing number of units
+			ArrayList<Node> adjNodes = sortByUnits(graph.getEnemyNeighbours(node), false);
 			
 			// iterate through the adjacent nodes; call off the attack if any units are lost
 			for (Node adjNode : adjNodes) {
@@ -1362,31 +967,16 @@ public class EvolvingPlayer extends Player {
 		Node from = null;
 		int toMove = 0;
 		
-		// get all owned nodes
-		nodes = graph.getOwnedNodes(this);
-		
-		// eliminate nodes not adjacent to other owned nodes
-		index = 0;
-		while (index < nodes.size()) {
-			boolean hasAdj = false;
-			for (Node adj : nodes.get(index).getAdj()) {
-				if (adj.getOwner() == this) {
-					hasAdj = true;
-					break;
-				}
-			}
-			if (!hasAdj)
-				nodes.remove(index);
-			else
-				index++;
-		}
+		// get the owned nodes adjacent to other owned nodes
+		nodes = graph.getLinkedNodes(this);
 		
 		// if there are no nodes or only one node left, don't fortify
 		if (nodes.size() > 1) {
 			// find the average units per node (round down)
 			int units = 0;
-			for (Node node : graph.getOwnedNodes(this)) {
-				units += node.getUnits();
+			NodeSet owned = graph.getOwnedNodeSet(this);
+			for (int i = owned.next(0); i >= 0; i = owned.next(i+1)) {
+				units += graph.getNode(i).getUnits();
 			}
 			int avgUnits = units/graph.getNumOwnedNodes(this);
 			
@@ -1401,22 +991,11 @@ public class EvolvingPlayer extends Player {
 			
 			// find the first node that can be brought up to the average by an adjacent node
 			for (Node node : nodes) {
-				// get the nodes adjacent to this one
-				ArrayList<Node> adjNodes = new ArrayList<Node>(node.getAdj());
-				
-				// prune out nodes belonging to the enemy
-				index = 0;
-				while (index < adjNodes.size()) {
-					if (adjNodes.get(index).getOwner() != this) {
-						adjNodes.remove(index);
-						adjNodes.trimToSize();
-					}
-					else
-						index++;
-				}
-				
-				// see if an adjacent node can supply this one without dropping below average
-				for (Node adjNode : adjNodes) {
+				// see if one of our adjacent nodes can supply this one without dropping below average
+				for (int adjIndex = 0; adjIndex < graph.getDegree(node); adjIndex++) {
+					Node adjNode = graph.getAdjNode(node, adjIndex);
+					if (adjNode.getOwner() != this)
+						continue;
 					if (adjNode.getUnits() >= avgUnits + (avgUnits - node.getUnits())) {
 						from = adjNode;
 						to = node;
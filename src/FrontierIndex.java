@@ -0,0 +1,170 @@
+import java.util.ArrayList;
+
+/**
+ * The FrontierIndex keeps, for every player slot (see Graph.getPlayerSlot), the set of
+ * its frontier nodes (the nodes it owns that are adjacent to a node it doesn't own)
+ * and the set of its targets (the nodes owned by other players that are adjacent to
+ * one of its nodes). The graph tells it whenever a node changes hands, and only the
+ * node and its neighbours are looked at, so a capture costs O(degree + slots) and an
+ * AI can walk its frontier or its targets without looking at the rest of the board.
+ *
+ * Each node keeps the number of its neighbours owned by someone else, and each slot
+ * the number of its nodes adjacent to each node; a node is on a frontier while the
+ * first is above zero, and a target of a slot while the second is. Once every node
+ * is unowned again, every slot's counts and sets are empty, so they are simply reused
+ * by whichever player gets the slot next.
+ *
+ */
+public class FrontierIndex {
+
+	private
+		Topology topology;
+		int[] owners;
+		int[] foreign;
+		ArrayList<int[]> adjacent = new ArrayList<int[]>(0);
+		ArrayList<NodeSet> frontiers = new ArrayList<NodeSet>(0);
+		ArrayList<NodeSet> targets = new ArrayList<NodeSet>(0);
+
+	/**
+	 * Constructor for the FrontierIndex class.
+	 * @param topology The map's adjacency.
+	 * @param ownerSlots The slot that owns each node right now, indexed by node.
+	 */
+	public FrontierIndex(Topology topology, int[] ownerSlots) {
+		this.topology = topology;
+		int count = topology.getNodeCount();
+		owners = new int[count];
+		foreign = new int[count];
+		System.arraycopy(ownerSlots, 0, owners, 0, count);
+		for (int i = 0; i < count; i++)
+			ensureSlot(owners[i]);
+
+		// count every node's foreign neighbours and every slot's neighbours of each node
+		for (int i = 0; i < count; i++) {
+			for (int n = 0; n < topology.getDegree(i); n++) {
+				int j = topology.getNeighbour(i, n);
+				if (owners[j] != owners[i])
+					foreign[i]++;
+				adjacent.get(owners[j])[i]++;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			updateFrontier(i);
+			for (int slot = 0; slot < targets.size(); slot++)
+				updateTarget(slot, i);
+		}
+	}
+
+	/**
+	 * Constructor for subclasses that keep the sets their own way (see Bitboard).
+	 * @param topology The map's adjacency.
+	 */
+	FrontierIndex(Topology topology) {
+		this.topology = topology;
+	}
+
+	/**
+	 * Gets the frontier nodes of a slot.
+	 * @param slot The slot.
+	 * @return The live NodeSet of the slot's frontier nodes, which must not be modified.
+	 */
+	public NodeSet getFrontier(int slot) {
+		ensureSlot(slot);
+		return frontiers.get(slot);
+	}
+
+	/**
+	 * Gets the targets of a slot.
+	 * @param slot The slot.
+	 * @return The live NodeSet of the slot's targets, which must not be modified.
+	 */
+	public NodeSet getTargets(int slot) {
+		ensureSlot(slot);
+		return targets.get(slot);
+	}
+
+	/**
+	 * Checks if a node is adjacent to a node with a different owner.
+	 * @param node The index of the node.
+	 * @return True if it is, false if it isn't.
+	 */
+	public boolean isFrontier(int node) {
+		return foreign[node] > 0;
+	}
+
+	/**
+	 * Counts the neighbours of a node that are owned by someone else.
+	 * @param node The index of the node.
+	 * @return The number of foreign neighbours.
+	 */
+	public int getForeignCount(int node) {
+		return foreign[node];
+	}
+
+	/**
+	 * Moves a node from one slot to another. Called by the graph as nodes change hands.
+	 * @param node The index of the node.
+	 * @param oldSlot The slot that owned the node.
+	 * @param newSlot The slot that now owns the node.
+	 */
+	void setOwner(int node, int oldSlot, int newSlot) {
+		if (oldSlot == newSlot)
+			return;
+		ensureSlot(newSlot);
+		owners[node] = newSlot;
+		int[] oldAdjacent = adjacent.get(oldSlot);
+		int[] newAdjacent = adjacent.get(newSlot);
+
+		int count = 0;
+		for (int n = 0; n < topology.getDegree(node); n++) {
+			int j = topology.getNeighbour(node, n);
+			if (owners[j] != newSlot)
+				count++;
+
+			// the node was a neighbour of the old slot's and is now one of the new slot's
+			if (owners[j] == oldSlot)
+				foreign[j]++;
+			else if (owners[j] == newSlot)
+				foreign[j]--;
+			updateFrontier(j);
+			oldAdjacent[j]--;
+			newAdjacent[j]++;
+			updateTarget(oldSlot, j);
+			updateTarget(newSlot, j);
+		}
+		foreign[node] = count;
+		frontiers.get(oldSlot).remove(node);
+		updateFrontier(node);
+		for (int slot = 0; slot < targets.size(); slot++)
+			updateTarget(slot, node);
+		return;
+	}
+
+	/**
+	 * Makes room for a slot and every slot before it.
+	 */
+	private void ensureSlot(int slot) {
+		while (adjacent.size() <= slot) {
+			adjacent.add(new int[owners.length]);
+			frontiers.add(new NodeSet(owners.length));
+			targets.add(new NodeSet(owners.length));
+		}
+		return;
+	}
+
+	private void updateFrontier(int node) {
+		if (foreign[node] > 0)
+			frontiers.get(owners[node]).add(node);
+		else
+			frontiers.get(owners[node]).remove(node);
+		return;
+	}
+
+	private void updateTarget(int slot, int node) {
+		if (adjacent.get(slot)[node] > 0 && owners[node] != slot && owners[node] != 0)
+			targets.get(slot).add(node);
+		else
+			targets.get(slot).remove(node);
+		return;
+	}
+}
@@ -1,6 +1,5 @@
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Random;
 
 /**
  * @author Graham Netherton
@@ -17,15 +16,23 @@ public class Game {
 		ArrayList<Player> players;
 		int telemetrySize = 5;
 		int[] telemetry = new int[telemetrySize];
+		GameRandom random = new GameRandom(0);
+		long seed = 0;
+		GameSink sink = null;
+		ActionLog log = null;
+		Profiler profiler = null;
+		long[][] startCounts = new long[0][];
 	
 	/**
-	 * Constructor for the Game class.
+	 * Constructor for the Game class. Picks an unpredictable seed; use setSeed to
+	 * make the next game reproducible.
 	 */
 	public Game() {
 		graph = new Graph();
 		players = new ArrayList<Player>(0);
 		Arrays.fill(telemetry, 0);
 		telemetry[MIN_TURNS] = 99999999;
+		setSeed(GameRandom.newSeed());
 	}
 	
 	public Graph getGraph() {
@@ -36,6 +43,79 @@ public class Game {
 		return players;
 	}
 	
+	/**
+	 * Gets the random number generator shared by the game and its players.
+	 * @return The GameRandom.
+	 */
+	public GameRandom getRandom() {
+		return random;
+	}
+	
+	/**
+	 * Restarts the game's random number generator from a seed. Calling this before
+	 * randomizeStart() and runGame() with the same seed, players and map replays the
+	 * same game. Use GameRandom.seedFor to give each game of a run its own seed.
+	 * @param s The seed.
+	 */
+	public void setSeed(long s) {
+		seed = s;
+		random.setSeed(s);
+		return;
+	}
+	
+	/**
+	 * Gets the seed the random number generator was last started from.
+	 * @return The seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * Sets the sink that gets a GameRecord at the end of every game.
+	 * @param s The sink, or null to stop recording games.
+	 */
+	public void setSink(GameSink s) {
+		sink = s;
+		return;
+	}
+	
+	public GameSink getSink() {
+		return sink;
+	}
+	
+	/**
+	 * Sets the log every move of every game is recorded to (see GameReplayer). The log
+	 * is shared with the game's players.
+	 * @param l The ActionLog, or null to stop recording moves.
+	 */
+	public void setActionLog(ActionLog l) {
+		log = l;
+		for (Player player : players)
+			player.setActionLog(l);
+		return;
+	}
+	
+	public ActionLog getActionLog() {
+		return log;
+	}
+	
+	/**
+	 * Sets the profiler that times the calls made to the players and counts the
+	 * graph's work (see Profiler). Profiling is off by default, and can be turned on
+	 * or off between games.
+	 * @param p The Profiler, or null to stop profiling.
+	 */
+	public void setProfiler(Profiler p) {
+		profiler = p;
+		graph.setProfiler(p);
+		return;
+	}
+	
+	public Profiler getProfiler() {
+		return profiler;
+	}
+	
 	public int getTelemetry(int x) {
 		return telemetry[x];
 	}
@@ -44,6 +124,19 @@ public class Game {
 		telemetry[key] = val;
 		return;
 	}
+
+	/**
+	 * Adds another game's telemetry to this game's telemetry.
+	 * @param other The game whose telemetry should be merged in.
+	 */
+	public void mergeTelemetry(Game other) {
+		telemetry[TOTAL_GAMES] += other.telemetry[TOTAL_GAMES];
+		telemetry[TOTAL_TURNS] += other.telemetry[TOTAL_TURNS];
+		telemetry[MIN_TURNS] = Math.min(telemetry[MIN_TURNS], other.telemetry[MIN_TURNS]);
+		telemetry[MAX_TURNS] = Math.max(telemetry[MAX_TURNS], other.telemetry[MAX_TURNS]);
+		telemetry[TIES] += other.telemetry[TIES];
+		return;
+	}
 	
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
@@ -82,6 +175,8 @@ public class Game {
 	public void addPlayer(Player player) {
 		players.add(player);
 		player.setGraph(graph);
+		player.setRandom(random);
+		player.setActionLog(log);
 		return;
 	}
 	
@@ -98,11 +193,8 @@ public class Game {
 	 * Randomizes the starting player.
 	 */
 	public void randomizeStart() {
-		// create rng
-		Random r = new Random();
-		
 		// get the new starting player
-		Player startPlayer = players.get(r.nextInt(players.size()));
+		Player startPlayer = players.get(random.nextInt(players.size()));
 		
 		// move all players to be behind the starting player
 		while (players.get(0) != startPlayer) {
@@ -119,22 +211,34 @@ public class Game {
 	
 	/**
 	 * Sets up the Risk map for use by connecting nodes until there are a specified
-	 * number of nodes of each degree (specifying degrees 2 through 6).
+	 * number of nodes of each degree (specifying degrees 2 through 6). The map is
+	 * checked like any other GameMap, so one-way or missing links are refused.
 	 * @param map Integer array of integer arrays specifying what to link each node to.
+	 * @throws IllegalArgumentException If the map isn't valid (see GameMap).
 	 */
 	public void setupMap(int[][] map) {
-		// add all the nodes
-		for (@SuppressWarnings("unused") int[] x : map) {
+		setupMap(new GameMap(map));
+		return;
+	}
+	
+	/**
+	 * Sets up the Risk map from a checked GameMap. The game shares the map's Topology
+	 * instead of building its own, so any number of games can be set up from one map.
+	 * @param map The GameMap.
+	 */
+	public void setupMap(GameMap map) {
+		Topology topology = map.getTopology();
+		for (int i = 0; i < topology.getNodeCount(); i++)
 			graph.addNode();
-		}
 		
-		// link the nodes
-		int index = 0;
-		for (Node node : graph.getNodes()) {
-			for (int x : map[index])
-				node.addAdj(graph.getNodes().get(x));
-			index++;
+		// link the nodes in the topology's order
+		for (int i = 0; i < topology.getNodeCount(); i++) {
+			Node node = graph.getNode(i);
+			for (int n = 0; n < topology.getDegree(i); n++)
+				node.addAdj(graph.getNode(topology.getNeighbour(i, n)));
 		}
+		
+		graph.freeze(topology);
 	}
 
 	/**
@@ -143,9 +247,19 @@ public class Game {
 	 * @param unloadMap Boolean specifying whether the graph of nodes should be reset afterwards.
 	 */
 	public void runGame(int maxTurns, boolean unloadPlayers, boolean unloadMap) {
+		// remember the players' counters, so the game's own counters can be recorded
+		if (sink != null)
+			saveStartCounts();
+		
 		// run each player's gameStart() function
-		for (Player player : players)
+		for (Player player : players) {
+			long start = (profiler != null) ? System.nanoTime() : 0;
 			player.gameStart();
+			if (profiler != null)
+				profiler.record(player, Profiler.Phase.GAME_START, System.nanoTime() - start);
+		}
+		if (log != null)
+			log.gameStart(seed, players);
 		
 		// add players. if there's an error somewhere, inPlay is set to 0.
 		int inPlay = players.size();
@@ -160,11 +274,17 @@ public class Game {
 			default: inPlay = 0; System.out.println("SETUP ERROR: Invalid number of players!");
 		}
 		
+		// on big maps, give everyone enough units to claim every node
+		if (inPlay > 0)
+			units = Math.max(units, (graph.getNodes().size() + inPlay - 1) / inPlay);
+		
 		// have the players distribute their units
 		for (int i = 0; i < units; i++) {
 			for (Player player : players)
-				graph.placeUnit(player.place(), player);
+				place(player, Profiler.Phase.SETUP);
 		}
+		if (log != null)
+			log.roundEnd();
 		
 		// turns in game thus far
 		int turns = 0;
@@ -178,13 +298,16 @@ public class Game {
 					// have the player place new units
 					int newUnits = graph.getNumOwnedNodes(player)/3;
 					for (int i = 0; i < newUnits; i++)
-						graph.placeUnit(player.place(), player);
+						place(player, Profiler.Phase.REINFORCE);
 					
 					// call the player's turn function
+					long start = (profiler != null) ? System.nanoTime() : 0;
 					player.turn();
+					if (profiler != null)
+						profiler.record(player, Profiler.Phase.TURN, System.nanoTime() - start);
 
 					// increase the player's turn counter
-					player.set("TURNS", player.get("TURNS") + 1);
+					player.add(Stat.TURNS, 1);
 				}
 			}
 			
@@ -196,6 +319,8 @@ public class Game {
 			
 			// increase the turn counter
 			turns++;
+			if (log != null)
+				log.roundEnd();
 			
 			// break out of the loop if maxTurns was exceeded
 			if (turns > maxTurns)
@@ -213,7 +338,7 @@ public class Game {
 		if (inPlay == 1) {
 			for (Player player : players) {
 				if (player.hasLost() == false)
-					player.set("GAMES_WON", player.get("GAMES_WON")+1);
+					player.add(Stat.GAMES_WON, 1);
 			}
 		}
 		else
@@ -222,9 +347,23 @@ public class Game {
 		// update player telemetry
 		for (Player player : players) {
 			if (player.hasLost())
-				player.set("GAMES_LOST", player.get("GAMES_LOST") + 1);
+				player.add(Stat.GAMES_LOST, 1);
+		}
+		
+		// finish the game's log
+		if (log != null) {
+			Player winner = null;
+			for (Player player : players) {
+				if (inPlay == 1 && !player.hasLost())
+					winner = player;
+			}
+			log.gameEnd(turns-1, winner);
 		}
 		
+		// send the game's record to the sink
+		if (sink != null)
+			sink.accept(createRecord(turns-1, inPlay == 1));
+		
 		// unload any specified assets
 		if (unloadPlayers) {
 			players.clear();
@@ -236,6 +375,60 @@ public class Game {
 			graph.restore();
 	}
 	
+	/**
+	 * Has a player place a unit, logging it if it was placed.
+	 * @param player The player placing the unit.
+	 * @param phase The phase the unit is placed in, for the profiler.
+	 */
+	private void place(Player player, Profiler.Phase phase) {
+		long start = (profiler != null) ? System.nanoTime() : 0;
+		Node node = player.place();
+		if (profiler != null)
+			profiler.record(player, phase, System.nanoTime() - start);
+		if (!graph.placeUnit(node, player) && log != null)
+			log.place(player, node);
+		return;
+	}
+	
+	/**
+	 * Copies every player's counters before a game starts.
+	 */
+	private void saveStartCounts() {
+		if (startCounts.length != players.size())
+			startCounts = new long[players.size()][Stat.COUNT];
+		for (int i = 0; i < players.size(); i++) {
+			for (Stat stat : Stat.values())
+				startCounts[i][stat.ordinal()] = players.get(i).get(stat);
+		}
+		return;
+	}
+	
+	/**
+	 * Creates the record of the game that just finished.
+	 * @param turns The number of turns the game took.
+	 * @param won True if a player won, false if the game timed out.
+	 * @return The GameRecord.
+	 */
+	private GameRecord createRecord(int turns, boolean won) {
+		int numPlayers = players.size();
+		String[] names = new String[numPlayers];
+		long[][] counts = new long[numPlayers][Stat.COUNT];
+		int[][] strategies = new int[numPlayers][];
+		int winner = -1;
+		
+		for (int i = 0; i < numPlayers; i++) {
+			Player player = players.get(i);
+			names[i] = player.getName();
+			for (Stat stat : Stat.values())
+				counts[i][stat.ordinal()] = player.get(stat) - startCounts[i][stat.ordinal()];
+			strategies[i] = player.getStrategies();
+			if (won && !player.hasLost())
+				winner = i;
+		}
+		
+		return new GameRecord(seed, turns, winner, names, counts, strategies);
+	}
+	
 	/**
 	 * Overloaded runGame() that doesn't unload anything afterwards.
 	 */
@@ -0,0 +1,202 @@
+/**
+ * A GameMap is a checked, frozen Risk map: its adjacency as a Topology, and optionally
+ * the continents its nodes are grouped into. Every link must go both ways, no node may
+ * be linked to itself or to the same node twice, every node must be reachable from
+ * every other, and no node may be in more than one continent; the constructors throw
+ * an IllegalArgumentException otherwise. All of the checks take time linear in the
+ * number of links.
+ *
+ * A GameMap never changes once it is built, so one map (and its Topology, with the
+ * hop distances worked out from it) can be shared by every game that is played on it,
+ * on any number of threads (see Game.setupMap(GameMap)). Maps can be read from and
+ * written to files with MapLoader.
+ *
+ */
+public class GameMap {
+
+	private
+		Topology topology;
+		String[] continentNames;
+		int[] continentBonuses;
+		int[][] continents;
+		int[] continentOf;
+
+	/**
+	 * Constructor for the GameMap class. Builds a map without continents from the arrays
+	 * used by Game.setupMap.
+	 * @param map Integer array of integer arrays specifying what to link each node to.
+	 */
+	public GameMap(int[][] map) {
+		this(toTopology(map), new String[0], new int[0], new int[0][]);
+	}
+
+	/**
+	 * Constructor for the GameMap class.
+	 * @param topology The adjacency of the map.
+	 * @param names The name of each continent.
+	 * @param bonuses The bonus of each continent.
+	 * @param members The nodes in each continent.
+	 */
+	public GameMap(Topology topology, String[] names, int[] bonuses, int[][] members) {
+		if (names.length != bonuses.length || names.length != members.length)
+			throw new IllegalArgumentException("MAP ERROR: Continent lists don't match!");
+		this.topology = topology;
+		continentNames = names;
+		continentBonuses = bonuses;
+		continents = members;
+		validate();
+	}
+
+	public Topology getTopology() {
+		return topology;
+	}
+
+	public int getNodeCount() {
+		return topology.getNodeCount();
+	}
+
+	public int getContinentCount() {
+		return continents.length;
+	}
+
+	public String getContinentName(int continent) {
+		return continentNames[continent];
+	}
+
+	public int getContinentBonus(int continent) {
+		return continentBonuses[continent];
+	}
+
+	/**
+	 * Gets the nodes in a continent. The array must not be modified.
+	 * @param continent The index of the continent.
+	 * @return The indexes of its nodes.
+	 */
+	public int[] getContinent(int continent) {
+		return continents[continent];
+	}
+
+	/**
+	 * Gets the continent a node is in.
+	 * @param node The index of the node.
+	 * @return The index of the continent, or -1 if the node isn't in one.
+	 */
+	public int getContinentOf(int node) {
+		return continentOf[node];
+	}
+
+	/**
+	 * Gets the map as the arrays used by Game.setupMap(int[][]).
+	 * @return Integer array of integer arrays specifying what to link each node to.
+	 */
+	public int[][] toArray() {
+		int[][] map = new int[topology.getNodeCount()][];
+		for (int i = 0; i < map.length; i++) {
+			map[i] = new int[topology.getDegree(i)];
+			for (int n = 0; n < map[i].length; n++)
+				map[i][n] = topology.getNeighbour(i, n);
+		}
+		return map;
+	}
+
+	/**
+	 * Builds a Topology from the arrays used by Game.setupMap, keeping the link order.
+	 */
+	private static Topology toTopology(int[][] map) {
+		int[] offsets = new int[map.length + 1];
+		for (int i = 0; i < map.length; i++)
+			offsets[i+1] = offsets[i] + map[i].length;
+		int[] neighbours = new int[offsets[map.length]];
+		for (int i = 0; i < map.length; i++)
+			System.arraycopy(map[i], 0, neighbours, offsets[i], map[i].length);
+		return new Topology(offsets, neighbours);
+	}
+
+	/**
+	 * Checks the map, throwing an IllegalArgumentException if it is broken.
+	 */
+	private void validate() {
+		int count = topology.getNodeCount();
+		int[] offsets = topology.getOffsets();
+		int[] neighbours = topology.getNeighbours();
+		if (count == 0)
+			throw new IllegalArgumentException("MAP ERROR: The map has no nodes!");
+		if (offsets[0] != 0 || offsets[count] != neighbours.length)
+			throw new IllegalArgumentException("MAP ERROR: Bad row offsets!");
+
+		// build the reverse links by counting sort: who links to each node
+		int[] reverseOffsets = new int[count + 1];
+		for (int i = 0; i < count; i++) {
+			if (offsets[i+1] < offsets[i])
+				throw new IllegalArgumentException("MAP ERROR: Bad row offsets!");
+			for (int e = offsets[i]; e < offsets[i+1]; e++) {
+				int j = neighbours[e];
+				if (j < 0 || j >= count)
+					throw new IllegalArgumentException("MAP ERROR: Node " + i + " links to missing node " + j + "!");
+				if (j == i)
+					throw new IllegalArgumentException("MAP ERROR: Node " + i + " links to itself!");
+				reverseOffsets[j+1]++;
+			}
+		}
+		for (int i = 0; i < count; i++)
+			reverseOffsets[i+1] += reverseOffsets[i];
+		int[] reverse = new int[neighbours.length];
+		int[] fill = new int[count];
+		for (int i = 0; i < count; i++) {
+			for (int e = offsets[i]; e < offsets[i+1]; e++) {
+				int j = neighbours[e];
+				reverse[reverseOffsets[j] + fill[j]++] = i;
+			}
+		}
+
+		// every node must link back to exactly the nodes that link to it
+		int[] stamp = new int[count];
+		for (int i = 0; i < count; i++) {
+			for (int e = offsets[i]; e < offsets[i+1]; e++) {
+				if (stamp[neighbours[e]] == i + 1)
+					throw new IllegalArgumentException("MAP ERROR: Node " + i + " links to node " + neighbours[e] + " twice!");
+				stamp[neighbours[e]] = i + 1;
+			}
+			for (int e = reverseOffsets[i]; e < reverseOffsets[i+1]; e++) {
+				if (stamp[reverse[e]] != i + 1)
+					throw new IllegalArgumentException("MAP ERROR: Node " + reverse[e] + " links to node " + i + " but not back!");
+			}
+			if (reverseOffsets[i+1] - reverseOffsets[i] != offsets[i+1] - offsets[i])
+				throw new IllegalArgumentException("MAP ERROR: Node " + i + " links to a node that doesn't link back!");
+		}
+
+		// every node must be reachable from node 0
+		boolean[] seen = new boolean[count];
+		int[] queue = new int[count];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = 0;
+		seen[0] = true;
+		while (head < tail) {
+			int i = queue[head++];
+			for (int e = offsets[i]; e < offsets[i+1]; e++) {
+				if (!seen[neighbours[e]]) {
+					seen[neighbours[e]] = true;
+					queue[tail++] = neighbours[e];
+				}
+			}
+		}
+		if (tail != count)
+			throw new IllegalArgumentException("MAP ERROR: Only " + tail + " of " + count + " nodes are connected!");
+
+		// every node is in at most one continent
+		continentOf = new int[count];
+		for (int i = 0; i < count; i++)
+			continentOf[i] = -1;
+		for (int c = 0; c < continents.length; c++) {
+			for (int i : continents[c]) {
+				if (i < 0 || i >= count)
+					throw new IllegalArgumentException("MAP ERROR: Continent " + continentNames[c] + " has missing node " + i + "!");
+				if (continentOf[i] != -1)
+					throw new IllegalArgumentException("MAP ERROR: Node " + i + " is in more than one continent!");
+				continentOf[i] = c;
+			}
+		}
+		return;
+	}
+}
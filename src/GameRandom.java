@@ -0,0 +1,121 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The GameRandom class is the random number generator used by a game, its players
+ * and its dice. It is a SplitMix64 generator: the state is a single long that is
+ * advanced by a fixed odd constant and scrambled on every draw, so it is much cheaper
+ * than java.util.Random (no atomic seed updates) and it can be reseeded in place.
+ *
+ * A GameRandom isn't thread safe; each game owns one and shares it with its players.
+ * To make a run reproducible, every game is given a seed derived from one master
+ * seed and the game's number (see seedFor), so any game can be replayed on its own
+ * and the results don't depend on which thread played which game.
+ *
+ */
+public class GameRandom {
+
+	/**
+	 * The amount the state is advanced by on every draw (the golden ratio, as an
+	 * odd 64-bit number).
+	 */
+	private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Source of seeds for generators that aren't given one.
+	 */
+	private static final AtomicLong seedUniquifier = new AtomicLong(System.nanoTime());
+
+	private
+		long state;
+
+	/**
+	 * Constructor for the GameRandom class that picks an unpredictable seed.
+	 */
+	public GameRandom() {
+		this(newSeed());
+	}
+
+	/**
+	 * Constructor for the GameRandom class.
+	 * @param seed The seed; the same seed always gives the same numbers.
+	 */
+	public GameRandom(long seed) {
+		state = seed;
+	}
+
+	/**
+	 * Picks an unpredictable seed, for runs that don't need to be reproducible.
+	 * @return The new seed.
+	 */
+	public static long newSeed() {
+		return mix(seedUniquifier.addAndGet(GAMMA) ^ System.nanoTime());
+	}
+
+	/**
+	 * Derives the seed of one game of a run from the run's master seed. Different game
+	 * numbers give unrelated seeds.
+	 * @param masterSeed The seed of the whole run.
+	 * @param game The number of the game within the run, starting at 0.
+	 * @return The game's seed.
+	 */
+	public static long seedFor(long masterSeed, long game) {
+		return mix(masterSeed + (game + 1) * GAMMA);
+	}
+
+	/**
+	 * Restarts the generator from a new seed.
+	 * @param seed The seed.
+	 */
+	public void setSeed(long seed) {
+		state = seed;
+		return;
+	}
+
+	/**
+	 * Gets the next random long; all 2^64 values are equally likely.
+	 * @return The random long.
+	 */
+	public long nextLong() {
+		state += GAMMA;
+		return mix(state);
+	}
+
+	/**
+	 * Gets a random int from 0 (inclusive) to bound (exclusive), without bias.
+	 * @param bound The number of possible values; must be positive.
+	 * @return The random int.
+	 */
+	public int nextInt(int bound) {
+		// scale a random 32-bit number up to the bound, and reject the few values
+		// that would make the low results more likely
+		long product = (nextLong() >>> 32) * bound;
+		long fraction = product & 0xFFFFFFFFL;
+		if (fraction < bound) {
+			long threshold = (0x100000000L - bound) % bound;
+			while (fraction < threshold) {
+				product = (nextLong() >>> 32) * bound;
+				fraction = product & 0xFFFFFFFFL;
+			}
+		}
+		return (int)(product >>> 32);
+	}
+
+	/**
+	 * Gets a random double from 0 (inclusive) to 1 (exclusive).
+	 * @return The random double.
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Scrambles a 64-bit value (the SplitMix64 finalizer).
+	 * @param z The value to scramble.
+	 * @return The scrambled value.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
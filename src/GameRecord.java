@@ -0,0 +1,138 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A GameRecord is the result of a single game: its seed, how many turns it took, who
+ * won, and each player's counters for that game alone. Players are listed in turn
+ * order. For EvolvingPlayers the strategies picked for the game are kept as well.
+ *
+ * Records can be written to and read from a binary stream. Each record is written
+ * as the seed, the turn count, the winner, the number of players, and then for each
+ * player its name, its counters (one long per Stat) and its strategies (a count
+ * followed by that many ints; 0 for players without strategies).
+ *
+ */
+public class GameRecord {
+
+	private
+		long seed;
+		int turns;
+		int winner;
+		String[] names;
+		long[][] counts;
+		int[][] strategies;
+
+	/**
+	 * Constructor for the GameRecord class.
+	 * @param seed The seed the game was played with.
+	 * @param turns The number of turns the game took.
+	 * @param winner The index of the winning player, or -1 if the game timed out.
+	 * @param names The names of the players, in turn order.
+	 * @param counts Each player's counters for the game, indexed by Stat.ordinal().
+	 * @param strategies Each player's strategies, or null for players without any.
+	 */
+	public GameRecord(long seed, int turns, int winner, String[] names, long[][] counts, int[][] strategies) {
+		this.seed = seed;
+		this.turns = turns;
+		this.winner = winner;
+		this.names = names;
+		this.counts = counts;
+		this.strategies = strategies;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getTurns() {
+		return turns;
+	}
+
+	/**
+	 * Gets the index of the winning player.
+	 * @return The index, or -1 if the game timed out.
+	 */
+	public int getWinner() {
+		return winner;
+	}
+
+	public int getNumPlayers() {
+		return names.length;
+	}
+
+	public String getName(int player) {
+		return names[player];
+	}
+
+	/**
+	 * Gets one of a player's counters for the game.
+	 * @param player The index of the player.
+	 * @param stat The counter.
+	 * @return The value of the counter.
+	 */
+	public long get(int player, Stat stat) {
+		return counts[player][stat.ordinal()];
+	}
+
+	/**
+	 * Gets the strategies a player used for the game.
+	 * @param player The index of the player.
+	 * @return The strategies, or null if the player doesn't have any.
+	 */
+	public int[] getStrategies(int player) {
+		return strategies[player];
+	}
+
+	/**
+	 * Writes the record to a binary stream.
+	 * @param out The stream to write to.
+	 * @throws IOException If the stream can't be written to.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeLong(seed);
+		out.writeInt(turns);
+		out.writeInt(winner);
+		out.writeInt(names.length);
+		for (int i = 0; i < names.length; i++) {
+			out.writeUTF(names[i]);
+			for (int j = 0; j < Stat.COUNT; j++)
+				out.writeLong(counts[i][j]);
+			int[] strats = strategies[i];
+			out.writeInt((strats == null) ? 0 : strats.length);
+			if (strats != null) {
+				for (int strat : strats)
+					out.writeInt(strat);
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Reads a record written by write().
+	 * @param in The stream to read from.
+	 * @return The record.
+	 * @throws IOException If the stream can't be read from.
+	 */
+	public static GameRecord read(DataInput in) throws IOException {
+		long seed = in.readLong();
+		int turns = in.readInt();
+		int winner = in.readInt();
+		int players = in.readInt();
+		String[] names = new String[players];
+		long[][] counts = new long[players][Stat.COUNT];
+		int[][] strategies = new int[players][];
+		for (int i = 0; i < players; i++) {
+			names[i] = in.readUTF();
+			for (int j = 0; j < Stat.COUNT; j++)
+				counts[i][j] = in.readLong();
+			int numStrats = in.readInt();
+			if (numStrats > 0) {
+				strategies[i] = new int[numStrats];
+				for (int j = 0; j < numStrats; j++)
+					strategies[i][j] = in.readInt();
+			}
+		}
+		return new GameRecord(seed, turns, winner, names, counts, strategies);
+	}
+}
@@ -0,0 +1,248 @@
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * The GameReplayer rebuilds games from an ActionLog. It applies the logged moves to
+ * a fresh board one by one, without asking any players, so it can show the board of
+ * any logged game as it was at the end of any round. The nodes of a replayed board
+ * are owned by stand-in players with the names of the original players.
+ *
+ * The log is streamed through once to find where each game's moves start and end,
+ * and only the moves of the game being replayed are mapped into memory, so logs of
+ * any size can be replayed.
+ *
+ */
+public class GameReplayer {
+
+	private
+		GameMap map;
+		File file;
+		ArrayList<Long> moveStarts = new ArrayList<Long>(0);
+		ArrayList<Long> moveEnds = new ArrayList<Long>(0);
+		ArrayList<Long> seeds = new ArrayList<Long>(0);
+		ArrayList<String[]> names = new ArrayList<String[]>(0);
+
+	/**
+	 * Constructor for the GameReplayer class. Reads through the log and finds where
+	 * each game starts.
+	 * @param map Integer array of integer arrays specifying the map the games were
+	 * played on (see Game.setupMap).
+	 * @param file The log file.
+	 * @throws IOException If the file can't be read or isn't an action log.
+	 * @throws IllegalArgumentException If the map isn't a valid map.
+	 */
+	public GameReplayer(int[][] map, File file) throws IOException {
+		this(new GameMap(map), file);
+	}
+
+	/**
+	 * Constructor for the GameReplayer class. Reads through the log and finds where
+	 * each game starts.
+	 * @param map The map the games were played on, such as one read with MapLoader.
+	 * @param file The log file.
+	 * @throws IOException If the file can't be read or isn't an action log.
+	 */
+	public GameReplayer(GameMap map, File file) throws IOException {
+		this.map = map;
+		this.file = file;
+
+		// read through the entries, noting where each game's moves start and end
+		DataInputStream in = ActionLog.open(file);
+		try {
+			long position = ActionLog.HEADER_SIZE;
+			long length = file.length();
+			while (position + 4 <= length) {
+				int header = in.readInt();
+				int type = header & 0xFF;
+				if (type == ActionLog.GAME_START) {
+					if (!moveStarts.isEmpty())
+						moveEnds.add(position);
+					seeds.add(in.readLong());
+					String[] players = readNames(in);
+					names.add(players);
+					position += 16;
+					for (String name : players)
+						position += 2 + 2*name.length();
+					moveStarts.add(position);
+				}
+				else {
+					int ints = getIntCount(type);
+					for (int i = 0; i < ints; i++)
+						in.readInt();
+					position += 4 + 4*ints;
+				}
+			}
+			if (!moveStarts.isEmpty())
+				moveEnds.add(Math.min(position, length));
+		}
+		catch (EOFException e) {
+			throw new IOException("LOG ERROR: " + file + " ends partway through an entry!", e);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Gets the number of games in the log.
+	 * @return The number of games.
+	 */
+	public int getNumGames() {
+		return seeds.size();
+	}
+
+	/**
+	 * Gets the seed a game was played with.
+	 * @param game The index of the game in the log.
+	 * @return The seed.
+	 */
+	public long getSeed(int game) {
+		return seeds.get(game);
+	}
+
+	/**
+	 * Finds a game by its seed (see GameRandom.seedFor).
+	 * @param seed The seed of the game.
+	 * @return The index of the game in the log, or -1 if it isn't there.
+	 */
+	public int findGame(long seed) {
+		return seeds.indexOf(seed);
+	}
+
+	/**
+	 * Gets the names of a game's players.
+	 * @param game The index of the game in the log.
+	 * @return The names, in turn order.
+	 */
+	public String[] getPlayerNames(int game) {
+		return names.get(game).clone();
+	}
+
+	/**
+	 * Rebuilds the board of a game.
+	 * @param game The index of the game in the log.
+	 * @param rounds The number of rounds to replay; 0 gives the board right after the
+	 * starting units are placed, and anything past the end of the game gives the final
+	 * board.
+	 * @return The Graph of the rebuilt board.
+	 */
+	public Graph replay(int game, int rounds) {
+		ByteBuffer entries;
+		try {
+			entries = ActionLog.read(file, moveStarts.get(game), moveEnds.get(game) - moveStarts.get(game));
+		}
+		catch (IOException e) {
+			throw new RuntimeException("LOG ERROR: Couldn't read game " + game + " of the log!", e);
+		}
+
+		// set up the board and the stand-in players
+		Game board = new Game();
+		board.setupMap(map);
+		Graph graph = board.getGraph();
+		String[] names = this.names.get(game);
+		Player[] players = new Player[names.length];
+		for (int i = 0; i < names.length; i++)
+			players[i] = new StandIn(names[i]);
+
+		// the first round end marks the end of the setup
+		int roundEnds = 0;
+		while (entries.remaining() >= 4 && roundEnds <= rounds) {
+			int header = entries.getInt();
+			int type = header & 0xFF;
+			if (type == ActionLog.GAME_START || type == ActionLog.GAME_END)
+				break;
+			Player player = players[header >>> 8];
+
+			switch (type) {
+				case ActionLog.PLACE:
+					Node node = graph.getNode(entries.getInt());
+					node.addUnits(1);
+					node.setOwner(player);
+					break;
+				case ActionLog.ATTACK:
+					Node from = graph.getNode(entries.getInt());
+					Node to = graph.getNode(entries.getInt());
+					from.addUnits(-entries.getInt());
+					to.addUnits(-entries.getInt());
+					break;
+				case ActionLog.OCCUPY:
+					Node attacker = graph.getNode(entries.getInt());
+					Node captured = graph.getNode(entries.getInt());
+					int units = entries.getInt();
+					captured.setOwner(player);
+					captured.setUnits(0);
+					graph.moveUnits(attacker, captured, units);
+					break;
+				case ActionLog.FORTIFY:
+					Node source = graph.getNode(entries.getInt());
+					Node target = graph.getNode(entries.getInt());
+					graph.moveUnits(source, target, entries.getInt());
+					break;
+				case ActionLog.ROUND_END:
+					roundEnds++;
+					break;
+			}
+		}
+
+		return graph;
+	}
+
+	/**
+	 * Reads the player count and names of a GAME_START entry.
+	 */
+	private String[] readNames(DataInputStream in) throws IOException {
+		String[] names = new String[in.readInt()];
+		for (int i = 0; i < names.length; i++) {
+			char[] chars = new char[in.readShort()];
+			for (int j = 0; j < chars.length; j++)
+				chars[j] = in.readChar();
+			names[i] = new String(chars);
+		}
+		return names;
+	}
+
+	/**
+	 * Gets the number of ints that follow the header of an entry (other than
+	 * GAME_START).
+	 */
+	private int getIntCount(int type) {
+		switch (type) {
+			case ActionLog.PLACE: return 1;
+			case ActionLog.ATTACK: return 4;
+			case ActionLog.OCCUPY: return 3;
+			case ActionLog.FORTIFY: return 3;
+			case ActionLog.GAME_END: return 2;
+		}
+		return 0;
+	}
+
+	/**
+	 * A stand-in for a logged player. It only carries the name, and is never asked to
+	 * play.
+	 */
+	private static class StandIn extends Player {
+		StandIn(String n) {
+			super(n);
+		}
+
+		int defend(Node from, Node to, int num) {
+			return 1;
+		}
+
+		int occupy(Node from, Node to) {
+			return 1;
+		}
+
+		Node place() {
+			return null;
+		}
+
+		void turn() {
+			return;
+		}
+	}
+}
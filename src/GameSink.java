@@ -0,0 +1,22 @@
+import java.io.IOException;
+
+/**
+ * A GameSink receives a GameRecord at the end of every game it is given to (see
+ * Game.setSink). Runners that play games on several threads share one sink between
+ * all their games, so a sink must accept records from any thread.
+ *
+ */
+public interface GameSink {
+	/**
+	 * Takes the record of a finished game. Should return quickly, since the game's
+	 * thread waits for it.
+	 * @param record The record of the game.
+	 */
+	void accept(GameRecord record);
+
+	/**
+	 * Finishes handling every record accepted so far and releases the sink.
+	 * @throws IOException If the records couldn't be written.
+	 */
+	void close() throws IOException;
+}
@@ -1,4 +1,5 @@
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 
 /**
  * The Graph class acts as a container for the nodes that form the Risk map.
@@ -12,12 +13,31 @@ public class Graph {
 
 	private
 		ArrayList<Node> nodes;	
+		Topology topology = null;
+		Node[] nodeArray = new Node[0];
+		IdentityHashMap<Player, Integer> slots = new IdentityHashMap<Player, Integer>();
+		ArrayList<Player> slotPlayers = new ArrayList<Player>(0);
+		ArrayList<NodeSet> slotNodes = new ArrayList<NodeSet>(0);
+		int[] ownerSlots = new int[0];
+		int[] unitCounts = new int[0];
+		ThreadLocal<ThreatSearch> threatSearches = new ThreadLocal<ThreatSearch>();
+		ThreatCache threatCache = null;
+		boolean threatCaching = true;
+		int[] degreeOffsets = new int[1];
+		int[] degreeNodes = new int[0];
+		NodeSet[] unownedByDegree = new NodeSet[0];
+		int[] unownedCursors = new int[0];
+		FrontierIndex frontierIndex = null;
+		ArrayList<NodeHeap> unitOrders = new ArrayList<NodeHeap>(0);
+		ArrayList<ThreatOrder> threatOrders = new ArrayList<ThreatOrder>(0);
+		Profiler profiler = null;
 	
 	/**
 	 * Constructor for the Graph class.
 	 */
 	public Graph() {
 		nodes = new ArrayList<Node>(0);
+		resetSlots();
 	}
 	
 	/**
@@ -28,12 +48,125 @@ public class Graph {
 		return nodes;
 	}
 	
+	/**
+	 * Gets a node by its index.
+	 * @param index The index of the node.
+	 * @return The node.
+	 */
+	public Node getNode(int index) {
+		return nodes.get(index);
+	}
+	
+	/**
+	 * Gets the frozen adjacency of the graph, freezing it first if the map has changed.
+	 * @return The graph's Topology.
+	 */
+	public Topology getTopology() {
+		if (topology == null)
+			freeze();
+		return topology;
+	}
+	
+	/**
+	 * Freezes the current adjacency into a compressed-sparse-row Topology. This is done
+	 * automatically when the map is set up, and should be done again if nodes are linked
+	 * directly through Node.addAdj afterwards.
+	 */
+	public void freeze() {
+		freeze(new Topology(nodes));
+		return;
+	}
+	
+	/**
+	 * Freezes the graph with a topology that was built beforehand, so games on the same
+	 * map can share one (see GameMap). The nodes must already be linked the same way.
+	 * Maps of at most 64 nodes keep their frontiers and targets in a Bitboard.
+	 * @param t The Topology, with the same number of nodes as the graph.
+	 */
+	public void freeze(Topology t) {
+		if (t.getNodeCount() != nodes.size())
+			throw new IllegalArgumentException("GRAPH ERROR: Topology doesn't match the graph!");
+		topology = t;
+		nodeArray = nodes.toArray(new Node[nodes.size()]);
+		threatCache = threatCaching ? new ThreatCache(topology) : null;
+
+		buildDegreeIndex();
+		if (Bitboard.fits(topology.getNodeCount()))
+			frontierIndex = new Bitboard(topology, ownerSlots);
+		else
+			frontierIndex = new FrontierIndex(topology, ownerSlots);
+		unitOrders.clear();
+		threatOrders.clear();
+		return;
+	}
+	
+	/**
+	 * Groups the nodes by degree, in index order, and indexes the unowned nodes of each
+	 * degree. The groups never change; the unowned sets are kept up to date as nodes
+	 * change hands.
+	 */
+	private void buildDegreeIndex() {
+		int count = topology.getNodeCount();
+		int maxDegree = 0;
+		for (int i = 0; i < count; i++)
+			maxDegree = Math.max(maxDegree, topology.getDegree(i));
+		
+		// counting sort of the nodes by degree
+		degreeOffsets = new int[maxDegree + 2];
+		for (int i = 0; i < count; i++)
+			degreeOffsets[topology.getDegree(i) + 1]++;
+		for (int d = 0; d <= maxDegree; d++)
+			degreeOffsets[d+1] += degreeOffsets[d];
+		degreeNodes = new int[count];
+		int[] fill = new int[maxDegree + 1];
+		for (int i = 0; i < count; i++)
+			degreeNodes[degreeOffsets[topology.getDegree(i)] + fill[topology.getDegree(i)]++] = i;
+		
+		unownedByDegree = new NodeSet[maxDegree + 1];
+		unownedCursors = new int[maxDegree + 1];
+		for (int d = 0; d <= maxDegree; d++)
+			unownedByDegree[d] = new NodeSet(count);
+		for (int i = 0; i < count; i++) {
+			if (ownerSlots[i] == 0)
+				unownedByDegree[topology.getDegree(i)].add(i);
+		}
+		return;
+	}
+	
+	/**
+	 * Creates a new graph with the same nodes and links as this one, but with nothing
+	 * on it. Used to play out positions without touching the real board.
+	 * @return The new Graph, already frozen.
+	 */
+	public Graph copyMap() {
+		Topology t = getTopology();
+		Graph copy = new Graph();
+		for (int i = 0; i < t.getNodeCount(); i++)
+			copy.addNode();
+		for (int i = 0; i < t.getNodeCount(); i++) {
+			Node node = copy.getNode(i);
+			for (int n = 0; n < t.getDegree(i); n++)
+				node.addAdj(copy.getNode(t.getNeighbour(i, n)));
+		}
+		copy.freeze(t);
+		return copy;
+	}
+	
 	/**
 	 * Clears all nodes from the graph.
 	 */
 	public void clear() {
 		nodes.clear();
 		nodes.trimToSize();
+		topology = null;
+		nodeArray = new Node[0];
+		threatCache = null;
+		frontierIndex = null;
+		unitOrders.clear();
+		threatOrders.clear();
+		ownerSlots = new int[0];
+		unitCounts = new int[0];
+		resetSlots();
 	}
 	
 	/**
@@ -44,13 +177,87 @@ public class Graph {
 			node.setOwner(null);
 			node.setUnits(0);
 		}
+		
+		// every set is empty now, so forget the players
+		NodeSet unownedNodes = slotNodes.get(0);
+		resetSlots();
+		slotNodes.set(0, unownedNodes);
+		
+		// the whole board changed, so drop every cached threat at once
+		if (threatCache != null)
+			threatCache.clear();
+	}
+	
+	/**
+	 * Takes a copy of the board.
+	 * @return A new BoardState holding the owner and units of every node.
+	 */
+	public BoardState snapshot() {
+		BoardState state = new BoardState(nodes.size());
+		copyInto(state);
+		return state;
+	}
+	
+	/**
+	 * Copies the board into an existing BoardState, so taking copies over and over
+	 * allocates nothing.
+	 * @param state The BoardState to overwrite.
+	 */
+	public void copyInto(BoardState state) {
+		state.copyFrom(nodes.size(), ownerSlots, unitCounts);
+		return;
+	}
+	
+	/**
+	 * Puts the board back the way it was when a BoardState was taken. Only the nodes
+	 * that differ are changed, and the ownership sets and threat cache are kept up to
+	 * date as they are. The whole state is checked before anything is changed, so a
+	 * bad state leaves the board as it was.
+	 * @param state The BoardState to restore, taken from this graph.
+	 * @throws IllegalArgumentException If the state is of a different size, or has a
+	 * player slot the graph doesn't know.
+	 */
+	public void restore(BoardState state) {
+		if (state.getNodeCount() != nodes.size())
+			throw new IllegalArgumentException("BOARD ERROR: Tried to restore a board of a different size!");
+		for (int i = 0; i < state.getNodeCount(); i++) {
+			if (state.getOwner(i) < 0 || state.getOwner(i) >= slotPlayers.size())
+				throw new IllegalArgumentException("BOARD ERROR: Tried to restore a player the graph doesn't know!");
+		}
+		
+		for (int i = 0; i < state.getNodeCount(); i++) {
+			int slot = state.getOwner(i);
+			if (slot != ownerSlots[i])
+				nodes.get(i).setOwner(slotPlayers.get(slot));
+			if (state.getUnits(i) != unitCounts[i])
+				nodes.get(i).setUnits(state.getUnits(i));
+		}
+		return;
 	}
 	
 	/**
 	 * Adds a new node to the graph.
 	 */
 	public void addNode() {
-		nodes.add(new Node());
+		int index = nodes.size();
+		
+		// make room in the board arrays, doubling so a big map loads in linear time
+		if (index == ownerSlots.length) {
+			int size = Math.max(index * 2, 16);
+			int[] newOwners = new int[size];
+			int[] newUnits = new int[size];
+			System.arraycopy(ownerSlots, 0, newOwners, 0, index);
+			System.arraycopy(unitCounts, 0, newUnits, 0, index);
+			ownerSlots = newOwners;
+			unitCounts = newUnits;
+		}
+		
+		nodes.add(new Node(this, index));
+		slotNodes.get(0).add(index);
+		topology = null;
+		frontierIndex = null;
+		unitOrders.clear();
+		threatOrders.clear();
 		return;
 	}
 	
@@ -62,9 +269,40 @@ public class Graph {
 	public void addAdj(Node n1, Node n2) {
 		n1.addAdj(n2);
 		n2.addAdj(n1);
+		topology = null;
 		return;
 	}
 	
+	/**
+	 * Gets the number of nodes adjacent to a node, without copying them.
+	 * @param node The node to check.
+	 * @return The number of adjacent nodes.
+	 */
+	public int getDegree(Node node) {
+		return getTopology().getDegree(node.getIndex());
+	}
+	
+	/**
+	 * Gets one of the nodes adjacent to a node, without copying the adjacency list.
+	 * Loop from 0 to getDegree(node)-1 to visit every adjacent node.
+	 * @param node The node whose neighbour to get.
+	 * @param n Which neighbour to get, in the order they were linked.
+	 * @return The adjacent node.
+	 */
+	public Node getAdjNode(Node node, int n) {
+		return nodeArray[getTopology().getNeighbour(node.getIndex(), n)];
+	}
+	
+	/**
+	 * Checks if two nodes are adjacent.
+	 * @param n1 The first node.
+	 * @param n2 The second node.
+	 * @return True if the nodes are adjacent, false if they aren't.
+	 */
+	public boolean isAdjacent(Node n1, Node n2) {
+		return getTopology().isAdjacent(n1.getIndex(), n2.getIndex());
+	}
+	
 	/**
 	 * Attempts to find the nth node with the specified number of adjacent nodes.
 	 * @param adj The number of required adjacent nodes.
@@ -72,18 +310,9 @@ public class Graph {
 	 * @return The nth suitable node, or null if less than n were found.
 	 */
 	public Node getNodeWithAdj(int adj, int n) {
-		for (Node node : nodes) {
-			if (node.getAdj().size() == adj) {
-				if (n == 1) {
-					return node;
-				}
-				else {
-					n -= 1;
-				}
-			}
-		}
-		
-		return null;
+		if (n < 1 || n > getNumNodesWithDegree(adj))
+			return null;
+		return nodeArray[degreeNodes[degreeOffsets[adj] + n - 1]];
 	}
 	
 	/**
@@ -92,12 +321,10 @@ public class Graph {
 	 * @return Number of nodes with the specified degree.
 	 */
 	public int getNumNodesWithDegree(int d) {
-		int num = 0;
-		for (Node node : nodes) {
-			if (node.getAdj().size() == d)
-				num++;
-		}
-		return num;
+		getTopology();
+		if (d < 0 || d + 1 >= degreeOffsets.length)
+			return 0;
+		return degreeOffsets[d+1] - degreeOffsets[d];
 	}
 	
 	/**
@@ -106,27 +333,82 @@ public class Graph {
 	 * @return ArrayList<Node> of the nodes.
 	 */
 	public ArrayList<Node> getNodesWithDegree(int d) {
-		ArrayList<Node> toReturn = new ArrayList<Node>(0);
-		for (Node node : nodes) {
-			if (node.getAdj().size() == d)
-				toReturn.add(node);
-		}
+		if (profiler != null)
+			profiler.count(Profiler.Counter.NODE_LIST_COPIES, 1);
+		int num = getNumNodesWithDegree(d);
+		ArrayList<Node> toReturn = new ArrayList<Node>(num);
+		for (int k = 0; k < num; k++)
+			toReturn.add(nodeArray[degreeNodes[degreeOffsets[d] + k]]);
 		return toReturn;
 	}
 	
 	/**
-	 * Counts the nodes owned by a given player.
+	 * Counts the unowned nodes with a specified degree. Takes constant time.
+	 * @param d Integer degree for the nodes to have.
+	 * @return Number of unowned nodes with the specified degree.
+	 */
+	public int getNumUnownedNodesWithDegree(int d) {
+		getTopology();
+		return (d >= 0 && d < unownedByDegree.length) ? unownedByDegree[d].size() : 0;
+	}
+	
+	/**
+	 * Gets the live set of indexes of the unowned nodes with a specified degree, for
+	 * visiting them without making a list. The set must not be modified.
+	 * @param d Integer degree for the nodes to have.
+	 * @return The NodeSet of the nodes.
+	 */
+	public NodeSet getUnownedNodeSetWithDegree(int d) {
+		getTopology();
+		return (d >= 0 && d < unownedByDegree.length) ? unownedByDegree[d] : new NodeSet(0);
+	}
+	
+	/**
+	 * Gets the unowned node with a specified degree that has the lowest index. While
+	 * nodes are only being claimed, as in the setup, this takes amortized constant time.
+	 * @param d Integer degree for the node to have.
+	 * @return The node, or null if every node of that degree is owned.
+	 */
+	public Node getFirstUnownedNodeWithDegree(int d) {
+		if (getNumUnownedNodesWithDegree(d) == 0)
+			return null;
+		int i = unownedByDegree[d].next(unownedCursors[d]);
+		unownedCursors[d] = i;
+		return nodeArray[i];
+	}
+	
+	/**
+	 * Finds the unowned node with a specified degree with the most (or least) adjacency
+	 * threat, without making a list. Ties go to the node with the lowest index.
+	 * @param d Integer degree for the node to have.
+	 * @param range The range of the threat (see getAdjThreat).
+	 * @param most True to find the most threatened node, false for the least.
+	 * @return The node, or null if every node of that degree is owned.
+	 */
+	public Node getUnownedNodeByAdjThreat(int d, int range, boolean most) {
+		Node best = null;
+		int bestThreat = 0;
+		NodeSet unowned = getUnownedNodeSetWithDegree(d);
+		for (int i = unowned.next(0); i >= 0; i = unowned.next(i+1)) {
+			int threat = getAdjThreat(range, nodeArray[i]);
+			if (best == null || (most ? threat > bestThreat : threat < bestThreat)) {
+				best = nodeArray[i];
+				bestThreat = threat;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Counts the nodes owned by a given player. Takes constant time.
 	 * @param player The player making the request.
 	 * @return The number of nodes owned by the player.
 	 */
 	public int getNumOwnedNodes(Player player) {
-		int ownedNodes = 0;
-		for (Node node : nodes) {
-			if (node.getOwner() == player) {
-				ownedNodes++;
-			}
-		}
-		return ownedNodes;
+		Integer slot = (player == null) ? Integer.valueOf(0) : slots.get(player);
+		if (slot == null)
+			return 0;
+		return slotNodes.get(slot).size();
 	}
 	
 	/**
@@ -135,13 +417,389 @@ public class Graph {
 	 * @return An ArrayList<Node> of the nodes owned.
 	 */
 	public ArrayList<Node> getOwnedNodes(Player player) {
-		ArrayList<Node> ownedNodes = new ArrayList<Node>(0);
-		for (Node node : nodes) {
-			if (node.getOwner() == player) {
-				ownedNodes.add(node);
+		if (profiler != null)
+			profiler.count(Profiler.Counter.NODE_LIST_COPIES, 1);
+		NodeSet owned = getOwnedNodeSet(player);
+		ArrayList<Node> ownedNodes = new ArrayList<Node>(owned.size());
+		for (int i = owned.next(0); i >= 0; i = owned.next(i+1))
+			ownedNodes.add(nodes.get(i));
+		return ownedNodes;
+	}
+	
+	/**
+	 * Gets the live set of indexes of the nodes owned by a given player, for visiting
+	 * them without making a list. The set must not be modified.
+	 * @param player The player making the request, or null for the unowned nodes.
+	 * @return The NodeSet of the nodes owned.
+	 */
+	public NodeSet getOwnedNodeSet(Player player) {
+		return slotNodes.get(getPlayerSlot(player));
+	}
+	
+	/**
+	 * Returns an ArrayList<Node> of the nodes a player owns that are adjacent to a node
+	 * it doesn't own, in index order.
+	 * @param player The player making the request.
+	 * @return An ArrayList<Node> of the player's frontier nodes.
+	 */
+	public ArrayList<Node> getFrontierNodes(Player player) {
+		if (profiler != null)
+			profiler.count(Profiler.Counter.NODE_LIST_COPIES, 1);
+		NodeSet set = getFrontierNodeSet(player);
+		ArrayList<Node> frontier = new ArrayList<Node>(set.size());
+		for (int i = set.next(0); i >= 0; i = set.next(i+1))
+			frontier.add(nodeArray[i]);
+		return frontier;
+	}
+	
+	/**
+	 * Gets the live set of a player's frontier nodes, kept up to date as nodes change
+	 * hands, so it can be walked without copying.
+	 * @param player The player.
+	 * @return The NodeSet of the player's frontier nodes, which must not be modified.
+	 */
+	public NodeSet getFrontierNodeSet(Player player) {
+		getTopology();
+		return frontierIndex.getFrontier(getPlayerSlot(player));
+	}
+	
+	/**
+	 * Gets the live set of the nodes other players own that are adjacent to one of a
+	 * player's nodes, kept up to date as nodes change hands. Unowned nodes aren't in it.
+	 * @param player The player.
+	 * @return The NodeSet of the player's targets, which must not be modified.
+	 */
+	public NodeSet getTargetNodeSet(Player player) {
+		getTopology();
+		return frontierIndex.getTargets(getPlayerSlot(player));
+	}
+	
+	/**
+	 * Gets the bitboard keeping the frontiers and targets, which only maps of at most
+	 * Bitboard.MAX_NODES nodes have.
+	 * @return The Bitboard, or null if the map is too big for one.
+	 */
+	public Bitboard getBitboard() {
+		getTopology();
+		return (frontierIndex instanceof Bitboard) ? (Bitboard)frontierIndex : null;
+	}
+	
+	/**
+	 * Checks if a node is adjacent to a node with a different owner.
+	 * @param node The node.
+	 * @return True if it is, false if it isn't.
+	 */
+	public boolean isFrontier(Node node) {
+		getTopology();
+		return frontierIndex.isFrontier(node.getIndex());
+	}
+	
+	/**
+	 * Returns an ArrayList<Node> of a player's frontier nodes, from the most units to the
+	 * fewest and in index order among equals. The order is kept in a heap as units
+	 * change, from the first time it is asked for, so listing it takes O(n log n) time.
+	 * @param player The player making the request.
+	 * @return An ArrayList<Node> of the player's frontier nodes.
+	 */
+	public ArrayList<Node> getFrontierNodesByUnits(Player player) {
+		if (profiler != null)
+			profiler.count(Profiler.Counter.NODE_LIST_COPIES, 1);
+		getTopology();
+		return toNodes(getUnitOrder(getPlayerSlot(player), true).toSortedArray());
+	}
+	
+	/**
+	 * Gets a player's most threatened frontier node, the one with the lowest index
+	 * among equals. Only the nodes near changes since the last call are looked at again.
+	 * @param player The player making the request.
+	 * @param range How many nodes out to check.
+	 * @return The node, or null if the player has no frontier.
+	 */
+	public Node getMostThreatenedNode(Player player, int range) {
+		int index = getThreatOrder(getPlayerSlot(player), range).peek();
+		return (index >= 0) ? nodeArray[index] : null;
+	}
+	
+	/**
+	 * Returns an ArrayList<Node> of the nodes adjacent to a node that its owner doesn't
+	 * own, in adjacency order.
+	 * @param node The node.
+	 * @return An ArrayList<Node> of the enemy neighbours.
+	 */
+	public ArrayList<Node> getEnemyNeighbours(Node node) {
+		Topology t = getTopology();
+		int index = node.getIndex();
+		int slot = ownerSlots[index];
+		ArrayList<Node> enemies = new ArrayList<Node>(t.getDegree(index));
+		for (int n = 0; n < t.getDegree(index); n++) {
+			int adj = t.getNeighbour(index, n);
+			if (ownerSlots[adj] != slot)
+				enemies.add(nodeArray[adj]);
+		}
+		return enemies;
+	}
+	
+	/**
+	 * Returns an ArrayList<Node> of the nodes adjacent to a node that its owner doesn't
+	 * own, from the fewest units to the most and in adjacency order among equals. A
+	 * node has only a few neighbours, so they are simply sorted in place.
+	 * @param node The node.
+	 * @return An ArrayList<Node> of the enemy neighbours.
+	 */
+	public ArrayList<Node> getEnemyNeighboursByUnits(Node node) {
+		Topology t = getTopology();
+		int index = node.getIndex();
+		int slot = ownerSlots[index];
+		ArrayList<Node> enemies = new ArrayList<Node>(t.getDegree(index));
+		for (int n = 0; n < t.getDegree(index); n++) {
+			int adj = t.getNeighbour(index, n);
+			if (ownerSlots[adj] == slot)
+				continue;
+			
+			// insert it after every neighbour with as few units or fewer
+			int at = enemies.size();
+			while (at > 0 && unitCounts[enemies.get(at-1).getIndex()] > unitCounts[adj])
+				at--;
+			enemies.add(at, nodeArray[adj]);
+		}
+		return enemies;
+	}
+	
+	/**
+	 * Returns an ArrayList<Node> of the nodes a player owns that are adjacent to another
+	 * node it owns, in index order.
+	 * @param player The player making the request.
+	 * @return An ArrayList<Node> of the player's linked nodes.
+	 */
+	public ArrayList<Node> getLinkedNodes(Player player) {
+		if (profiler != null)
+			profiler.count(Profiler.Counter.NODE_LIST_COPIES, 1);
+		getTopology();
+		
+		// a node has an owned neighbour when not every neighbour is foreign
+		NodeSet owned = getOwnedNodeSet(player);
+		ArrayList<Node> linked = new ArrayList<Node>(owned.size());
+		for (int i = owned.next(0); i >= 0; i = owned.next(i+1)) {
+			if (frontierIndex.getForeignCount(i) < topology.getDegree(i))
+				linked.add(nodeArray[i]);
+		}
+		return linked;
+	}
+	
+	/**
+	 * Turns an array of node indexes into a list of nodes, in the same order.
+	 */
+	private ArrayList<Node> toNodes(int[] indexes) {
+		ArrayList<Node> list = new ArrayList<Node>(indexes.length);
+		for (int i : indexes)
+			list.add(nodeArray[i]);
+		return list;
+	}
+	
+	/**
+	 * Gets the heap ordering a slot's frontier nodes by units.
+	 * @param slot The slot.
+	 * @param create True to create and fill the heap if the slot doesn't have one yet.
+	 * @return The NodeHeap, or null if there isn't one and none was created.
+	 */
+	private NodeHeap getUnitOrder(int slot, boolean create) {
+		if (slot < unitOrders.size() && unitOrders.get(slot) != null)
+			return unitOrders.get(slot);
+		if (!create)
+			return null;
+		
+		NodeHeap order = new NodeHeap(topology.getNodeCount(), true);
+		NodeSet frontier = frontierIndex.getFrontier(slot);
+		for (int i = frontier.next(0); i >= 0; i = frontier.next(i+1))
+			order.put(i, unitCounts[i]);
+		while (unitOrders.size() <= slot)
+			unitOrders.add(null);
+		unitOrders.set(slot, order);
+		return order;
+	}
+	
+	/**
+	 * Puts a node in its owner's unit order with its current units if it is on the
+	 * frontier, or takes it out if it isn't.
+	 */
+	private void updateUnitOrder(int index) {
+		NodeHeap order = getUnitOrder(ownerSlots[index], false);
+		if (order == null)
+			return;
+		if (frontierIndex.isFrontier(index))
+			order.put(index, unitCounts[index]);
+		else
+			order.remove(index);
+		return;
+	}
+	
+	/**
+	 * Gets the threat order of a slot for a range, creating it the first time.
+	 */
+	private ThreatOrder getThreatOrder(int slot, int range) {
+		getTopology();
+		for (ThreatOrder order : threatOrders) {
+			if (order.getSlot() == slot && order.getRange() == range)
+				return order;
+		}
+		ThreatOrder order = new ThreatOrder(this, slot, range);
+		threatOrders.add(order);
+		return order;
+	}
+	
+	/**
+	 * Gets the slot number of a player, giving it the next free slot if it doesn't have
+	 * one yet. Slot 0 always means unowned. Slots last until the graph is restored.
+	 * @param player The player, or null for unowned.
+	 * @return The player's slot.
+	 */
+	public int getPlayerSlot(Player player) {
+		if (player == null)
+			return 0;
+		Integer slot = slots.get(player);
+		if (slot == null) {
+			slot = slotPlayers.size();
+			slots.put(player, slot);
+			slotPlayers.add(player);
+			slotNodes.add(new NodeSet(nodes.size()));
+		}
+		return slot;
+	}
+	
+	/**
+	 * Gets the player in a slot.
+	 * @param slot The slot number.
+	 * @return The player, or null for slot 0.
+	 */
+	public Player getSlotPlayer(int slot) {
+		return slotPlayers.get(slot);
+	}
+	
+	/**
+	 * Gets the number of slots handed out so far, including the unowned slot.
+	 * @return The number of slots.
+	 */
+	public int getNumSlots() {
+		return slotPlayers.size();
+	}
+	
+	/**
+	 * Gets the owner slot of every node, indexed by node. The array may be longer than
+	 * the number of nodes, and must not be modified.
+	 * @return The owner slots.
+	 */
+	public int[] getOwnerSlots() {
+		return ownerSlots;
+	}
+	
+	/**
+	 * Gets the number of units in every node, indexed by node. The array may be longer
+	 * than the number of nodes, and must not be modified.
+	 * @return The unit counts.
+	 */
+	public int[] getUnitCounts() {
+		return unitCounts;
+	}
+	
+	/**
+	 * Forgets every player, leaving only the (empty) unowned slot.
+	 */
+	private void resetSlots() {
+		slots.clear();
+		slotPlayers.clear();
+		slotNodes.clear();
+		slotPlayers.add(null);
+		slotNodes.add(new NodeSet(nodes.size()));
+		return;
+	}
+	
+	/**
+	 * Updates the ownership index when a node changes hands. Called by the node itself.
+	 * @param node The node changing hands.
+	 * @param oldOwner The player who owned the node, or null.
+	 * @param newOwner The player who now owns the node, or null.
+	 */
+	void ownerChanged(Node node, Player oldOwner, Player newOwner) {
+		int newSlot = getPlayerSlot(newOwner);
+		getOwnedNodeSet(oldOwner).remove(node.getIndex());
+		slotNodes.get(newSlot).add(node.getIndex());
+		if (topology != null && (ownerSlots[node.getIndex()] == 0) != (newSlot == 0)) {
+			int i = node.getIndex();
+			int d = topology.getDegree(i);
+			if (newSlot == 0) {
+				unownedByDegree[d].add(i);
+				unownedCursors[d] = Math.min(unownedCursors[d], i);
 			}
+			else
+				unownedByDegree[d].remove(i);
 		}
-		return ownedNodes;
+		if (frontierIndex != null)
+			frontierIndex.setOwner(node.getIndex(), ownerSlots[node.getIndex()], newSlot);
+		NodeHeap oldOrder = getUnitOrder(ownerSlots[node.getIndex()], false);
+		ownerSlots[node.getIndex()] = newSlot;
+		if (!unitOrders.isEmpty()) {
+			// the node leaves its old owner's order, and it and its neighbours may have
+			// moved on or off a frontier
+			if (oldOrder != null)
+				oldOrder.remove(node.getIndex());
+			updateUnitOrder(node.getIndex());
+			for (int n = 0; n < topology.getDegree(node.getIndex()); n++)
+				updateUnitOrder(topology.getNeighbour(node.getIndex(), n));
+		}
+		for (int t = 0; t < threatOrders.size(); t++)
+			threatOrders.get(t).markDirty(node.getIndex());
+		if (threatCache != null)
+			threatCache.markDirty(node.getIndex());
+		return;
+	}
+	
+	/**
+	 * Updates the unit counts and the threat cache when a node's units change. Called by
+	 * the node itself, after the change.
+	 * @param node The node whose units changed.
+	 */
+	void unitsChanged(Node node) {
+		unitCounts[node.getIndex()] = node.getUnits();
+		if (threatCache != null)
+			threatCache.markDirty(node.getIndex());
+		if (!unitOrders.isEmpty())
+			updateUnitOrder(node.getIndex());
+		for (int t = 0; t < threatOrders.size(); t++)
+			threatOrders.get(t).markDirty(node.getIndex());
+		return;
+	}
+	
+	/**
+	 * Sets the profiler that counts the graph's threat searches and list copies. The
+	 * counts aren't kept safely across threads, so only profile a graph used by one.
+	 * @param p The Profiler, or null to stop counting.
+	 */
+	public void setProfiler(Profiler p) {
+		profiler = p;
+		return;
+	}
+	
+	public Profiler getProfiler() {
+		return profiler;
+	}
+	
+	/**
+	 * Turns the threat cache on or off. The cache is on by default; turn it off to
+	 * query the same graph from several threads at once.
+	 * @param enabled True to cache threat values, false to always recalculate them.
+	 */
+	public void setThreatCaching(boolean enabled) {
+		threatCaching = enabled;
+		threatCache = (enabled && topology != null) ? new ThreatCache(topology) : null;
+		return;
+	}
+	
+	/**
+	 * Gets the threat cache, for reading its hit and miss counters.
+	 * @return The ThreatCache, or null if caching is off or the map isn't frozen.
+	 */
+	public ThreatCache getThreatCache() {
+		return threatCache;
 	}
 	
 	/**
@@ -180,7 +838,54 @@ public class Graph {
 	}
 	
 	/**
-	 * Wrapper for the node threat calculation.
+	 * Gets the calling thread's ThreatSearch for this graph.
+	 * @return The ThreatSearch, sized for the current map.
+	 */
+	private ThreatSearch getThreatSearch() {
+		ThreatSearch search = threatSearches.get();
+		if (search == null || search.getCapacity() < nodeArray.length) {
+			search = new ThreatSearch(nodeArray.length);
+			threatSearches.set(search);
+		}
+		return search;
+	}
+	
+	/**
+	 * Calculates the threat and adjacency threat to a node in one walk, storing both in
+	 * the cache.
+	 * @param range How many nodes out to check; must be at least 1.
+	 * @param index The index of the node.
+	 * @return The ThreatSearch holding the results.
+	 */
+	private ThreatSearch search(int range, int index) {
+		ThreatSearch search = getThreatSearch();
+		Bitboard board = getBitboard();
+		if (board != null)
+			search.search(topology, board, ownerSlots, unitCounts, index, range);
+		else
+			search.search(topology, ownerSlots, unitCounts, index, range);
+		if (profiler != null) {
+			profiler.count(Profiler.Counter.THREAT_SEARCHES, 1);
+			profiler.count(Profiler.Counter.THREAT_NODES_VISITED, search.getVisited());
+		}
+		if (threatCache != null) {
+			threatCache.putThreat(range, index, clampThreat(search.getThreat(), range, index));
+			threatCache.putAdjThreat(range, index, search.getAdjThreat());
+		}
+		return search;
+	}
+	
+	private int clampThreat(int threat, int range, int index) {
+		return Math.max(threat - unitCounts[index]*range, 0);
+	}
+	
+	/**
+	 * Calculates the threat to a node. The value is based on the relative distance of
+	 * and number of units within other players' nodes; a node's contribution is its
+	 * number of units times the range left when it is reached. The node's own units
+	 * times the range are subtracted. Results are cached (see setThreatCaching); with
+	 * caching off, any number of threads can query the same graph as long as nobody is
+	 * changing it.
 	 * @param range How many nodes out to check.
 	 * @param node The node to start at.
 	 * @return The threat level of the node.
@@ -189,22 +894,36 @@ public class Graph {
 		// if the range is less than 1, automatically return 0
 		if (range <= 0)
 			return 0;
-		int threat = node.getThreat(range);
-		for (Node n : nodes)
-			n.setChecked(false);
-		return Math.max(threat - node.getUnits()*(range), 0);
+		if (profiler != null)
+			profiler.count(Profiler.Counter.THREAT_QUERIES, 1);
+		getTopology();
+		if (threatCache != null) {
+			int cached = threatCache.getThreat(range, node.getIndex());
+			if (cached >= 0)
+				return cached;
+		}
+		return clampThreat(search(range, node.getIndex()).getThreat(), range, node.getIndex());
 	}
 	
 	/**
-	 * Wrapper for the node adjacency threat calculation.
+	 * Calculates the adjacency threat to a node. The value is based on the relative
+	 * distance of nodes not belonging to the node's player; a node's contribution is
+	 * the range left when it is reached.
 	 * @param range How many nodes out to check.
 	 * @param node The node to start at.
 	 * @return The threat level of the node.
 	 */
 	public int getAdjThreat(int range, Node node) {
-		int threat = node.getAdjThreat(range);
-		for (Node n : nodes)
-			n.setChecked(false);
-		return threat;
+		if (range <= 0)
+			return 0;
+		if (profiler != null)
+			profiler.count(Profiler.Counter.THREAT_QUERIES, 1);
+		getTopology();
+		if (threatCache != null) {
+			int cached = threatCache.getAdjThreat(range, node.getIndex());
+			if (cached >= 0)
+				return cached;
+		}
+		return search(range, node.getIndex()).getAdjThreat();
 	}
-}
\ No newline at end of file
+}
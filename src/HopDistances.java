@@ -0,0 +1,107 @@
+import java.util.Arrays;
+
+/**
+ * The HopDistances class holds a "ball" for each node of a map: the nodes within a
+ * fixed number of hops, in breadth-first order, stored compressed-sparse-row style
+ * like the Topology. The balls are what the ThreatCache and ThreatOrder use to find
+ * the nodes near a change, so they are built the first time one of them needs them
+ * (see Topology.getHopDistances).
+ *
+ */
+public class HopDistances {
+
+	private
+		int nodeCount;
+		int ballHops;
+		int[] ballOffsets;
+		int[] ballNodes;
+		byte[] ballDistances;
+
+	/**
+	 * Constructor for the HopDistances class.
+	 * @param topology The adjacency of the map.
+	 * @param hops The radius of each node's ball.
+	 */
+	public HopDistances(Topology topology, int hops) {
+		nodeCount = topology.getNodeCount();
+		ballHops = hops;
+
+		int[] offsets = topology.getOffsets();
+		int[] neighbours = topology.getNeighbours();
+		int[] queue = new int[nodeCount];
+		int[] distance = new int[nodeCount];
+		int[] seen = new int[nodeCount];
+
+		// grow the ball arrays as needed, starting at a few nodes per ball
+		ballOffsets = new int[nodeCount + 1];
+		ballNodes = new int[Math.max(nodeCount * 8, 1)];
+		ballDistances = new byte[ballNodes.length];
+		int ballSize = 0;
+
+		for (int start = 0; start < nodeCount; start++) {
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = start;
+			seen[start] = start + 1;
+			distance[start] = 0;
+			while (head < tail) {
+				int node = queue[head++];
+				int d = distance[node];
+				if (ballSize == ballNodes.length) {
+					ballNodes = Arrays.copyOf(ballNodes, ballSize * 2);
+					ballDistances = Arrays.copyOf(ballDistances, ballSize * 2);
+				}
+				ballNodes[ballSize] = node;
+				ballDistances[ballSize] = (byte)d;
+				ballSize++;
+
+				if (d < ballHops) {
+					for (int i = offsets[node]; i < offsets[node+1]; i++) {
+						int next = neighbours[i];
+						if (seen[next] != start + 1) {
+							seen[next] = start + 1;
+							distance[next] = d + 1;
+							queue[tail++] = next;
+						}
+					}
+				}
+			}
+			ballOffsets[start+1] = ballSize;
+		}
+	}
+
+	/**
+	 * Gets the radius of the balls.
+	 * @return The number of hops each ball reaches.
+	 */
+	public int getBallHops() {
+		return ballHops;
+	}
+
+	/**
+	 * Gets the ball offsets. The ball of node i starts at offsets[i] and ends before
+	 * offsets[i+1]. The array must not be modified.
+	 * @return The ball offsets.
+	 */
+	public int[] getBallOffsets() {
+		return ballOffsets;
+	}
+
+	/**
+	 * Gets the nodes of every ball, each ball in breadth-first order starting with the
+	 * node itself. The array must not be modified.
+	 * @return The ball nodes.
+	 */
+	public int[] getBallNodes() {
+		return ballNodes;
+	}
+
+	/**
+	 * Gets the distance of each ball node from the ball's centre. The array must not
+	 * be modified.
+	 * @return The ball distances.
+	 */
+	public byte[] getBallDistances() {
+		return ballDistances;
+	}
+}
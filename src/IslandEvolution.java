@@ -0,0 +1,343 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * IslandEvolution evolves EvolvingPlayer strategies on several islands at once. Each
+ * island is a small population of EvolvingPlayers, each with its own Game against a
+ * line-up of opponents, and the islands play their games on separate threads.
+ *
+ * The run goes in epochs. In an epoch every player on every island plays a fixed
+ * number of games, learning from its wins as usual. Then, on each island, the player
+ * that won the fewest games that epoch takes on the genome (see
+ * EvolvingPlayer.getGenome) of the one that won the most; every few epochs, instead,
+ * the best genome of each island migrates to the next island in a ring and replaces
+ * its worst. A genome only replaces one that won fewer games, so even with one player
+ * per island the islands still select. The run stops as soon as a player has fully
+ * evolved, or after a maximum number of epochs.
+ *
+ * Game n of player j on island i is played with the seed
+ * GameRandom.seedFor(GameRandom.seedFor(seed, i*populationSize + j), n), and genomes
+ * only move between epochs, so a run with a given seed always evolves the same way,
+ * whatever the number of threads.
+ *
+ */
+public class IslandEvolution {
+
+	private
+		int islandCount;
+		int populationSize;
+		LineUp opponents;
+		double learningRate = 0.01;
+		double mutationRate = 3;
+		int epochGames = 10;
+		int migrationInterval = 1;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long seed = GameRandom.newSeed();
+		Island[] islands = null;
+		EvolvingPlayer best = null;
+		boolean evolved = false;
+		int epochs = 0;
+
+	/**
+	 * Constructor for the IslandEvolution class.
+	 * @param islandCount The number of islands.
+	 * @param populationSize The number of EvolvingPlayers on each island.
+	 * @param opponents The line-up every EvolvingPlayer plays against.
+	 */
+	public IslandEvolution(int islandCount, int populationSize, LineUp opponents) {
+		if (islandCount < 1 || populationSize < 1)
+			throw new IllegalArgumentException("EVOLUTION ERROR: Need at least one island and one player!");
+		this.islandCount = islandCount;
+		this.populationSize = populationSize;
+		this.opponents = opponents;
+	}
+
+	/**
+	 * Sets the learning and mutation rates of every EvolvingPlayer.
+	 * @param learning The learning rate.
+	 * @param mutation The mutation rate.
+	 */
+	public void setRates(double learning, double mutation) {
+		learningRate = learning;
+		mutationRate = mutation;
+		return;
+	}
+
+	/**
+	 * Sets how many games each player plays per epoch.
+	 * @param games The number of games, at least 1.
+	 */
+	public void setEpochGames(int games) {
+		epochGames = Math.max(1, games);
+		return;
+	}
+
+	public int getEpochGames() {
+		return epochGames;
+	}
+
+	/**
+	 * Sets how often genomes migrate between islands.
+	 * @param interval The number of epochs between migrations, at least 1.
+	 */
+	public void setMigrationInterval(int interval) {
+		migrationInterval = Math.max(1, interval);
+		return;
+	}
+
+	public int getMigrationInterval() {
+		return migrationInterval;
+	}
+
+	/**
+	 * Sets the number of threads the islands are played on.
+	 * @param t The number of threads, at least 1.
+	 */
+	public void setThreads(int t) {
+		threads = Math.max(1, t);
+		return;
+	}
+
+	/**
+	 * Sets the seed the seed of each game is derived from.
+	 * @param s The seed of the run.
+	 */
+	public void setSeed(long s) {
+		seed = s;
+		return;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Gets the best player of the last epoch, or the one that fully evolved.
+	 * @return The EvolvingPlayer, or null if the run hasn't been started.
+	 */
+	public EvolvingPlayer getBest() {
+		return best;
+	}
+
+	/**
+	 * Checks if the run stopped because a player fully evolved.
+	 * @return True if one did, false if the run ran out of epochs or hasn't been run.
+	 */
+	public boolean hasEvolved() {
+		return evolved;
+	}
+
+	public int getEpochs() {
+		return epochs;
+	}
+
+	/**
+	 * Gets the number of games played on every island together.
+	 * @return The number of games played.
+	 */
+	public long getGamesPlayed() {
+		long games = 0;
+		if (islands != null) {
+			for (Island island : islands)
+				games += island.getGamesPlayed();
+		}
+		return games;
+	}
+
+	/**
+	 * Evolves the islands until a player fully evolves or the epochs run out.
+	 * @param map Integer array of integer arrays specifying the Risk map (see Game.setupMap).
+	 * @param maxEpochs The maximum number of epochs.
+	 * @return The best player (see getBest).
+	 */
+	public EvolvingPlayer run(int[][] map, int maxEpochs) {
+		return run(new GameMap(map), maxEpochs);
+	}
+
+	/**
+	 * Evolves the islands on a map that every island's games share.
+	 * @param map The map to play on.
+	 * @param maxEpochs The maximum number of epochs.
+	 * @return The best player (see getBest).
+	 */
+	public EvolvingPlayer run(GameMap map, int maxEpochs) {
+		islands = new Island[islandCount];
+		for (int i = 0; i < islandCount; i++)
+			islands[i] = new Island(map, i);
+		best = null;
+		evolved = false;
+		epochs = 0;
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, islandCount), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "island");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			ArrayList<Island> tasks = new ArrayList<Island>(islandCount);
+			for (Island island : islands)
+				tasks.add(island);
+
+			while (epochs < maxEpochs && !evolved) {
+				// play the epoch on every island at once, and wait for all of them
+				List<Future<Object>> results = pool.invokeAll(tasks);
+				for (Future<Object> result : results)
+					result.get();
+				epochs++;
+
+				// stop at the first player to fully evolve, in island order
+				for (Island island : islands) {
+					EvolvingPlayer player = island.getEvolvedPlayer();
+					if (player != null && !evolved) {
+						best = player;
+						evolved = true;
+					}
+				}
+				if (evolved)
+					break;
+
+				// otherwise move genomes around, and remember the best player so far
+				int[] bestOf = new int[islandCount];
+				for (int i = 0; i < islandCount; i++)
+					bestOf[i] = islands[i].getBestIndex();
+				best = null;
+				int bestWins = -1;
+				for (int i = 0; i < islandCount; i++) {
+					if (islands[i].getEpochWins(bestOf[i]) > bestWins) {
+						best = islands[i].getPlayer(bestOf[i]);
+						bestWins = islands[i].getEpochWins(bestOf[i]);
+					}
+				}
+				if (islandCount > 1 && epochs % migrationInterval == 0) {
+					double[][][] migrants = new double[islandCount][][];
+					for (int i = 0; i < islandCount; i++)
+						migrants[i] = islands[i].getPlayer(bestOf[i]).getGenome();
+					for (int i = 0; i < islandCount; i++)
+						islands[(i + 1) % islandCount].replaceWorst(migrants[i], islands[i].getEpochWins(bestOf[i]));
+				}
+				else {
+					for (int i = 0; i < islandCount; i++)
+						islands[i].replaceWorst(islands[i].getPlayer(bestOf[i]).getGenome(), islands[i].getEpochWins(bestOf[i]));
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			throw new RuntimeException("EVOLUTION ERROR: An island failed!", e.getCause());
+		}
+		finally {
+			pool.shutdown();
+		}
+		return best;
+	}
+
+	/**
+	 * One island: a population of EvolvingPlayers, each with its own game. Calling it
+	 * plays one epoch.
+	 */
+	private class Island implements Callable<Object> {
+		private
+			Game[] games;
+			EvolvingPlayer[] players;
+			long[] seeds;
+			int[] gamesPlayed;
+			int[] epochWins;
+
+		Island(GameMap map, int index) {
+			games = new Game[populationSize];
+			players = new EvolvingPlayer[populationSize];
+			seeds = new long[populationSize];
+			gamesPlayed = new int[populationSize];
+			epochWins = new int[populationSize];
+			for (int j = 0; j < populationSize; j++) {
+				games[j] = new Game();
+				games[j].setupMap(map);
+				for (Player player : opponents.createPlayers())
+					games[j].addPlayer(player);
+				players[j] = new EvolvingPlayer("Evolving");
+				players[j].learningRate = learningRate;
+				players[j].mutationRate = mutationRate;
+				games[j].addPlayer(players[j]);
+				seeds[j] = GameRandom.seedFor(seed, (long)index*populationSize + j);
+			}
+		}
+
+		public Object call() {
+			for (int j = 0; j < populationSize; j++) {
+				long wonBefore = players[j].get(Stat.GAMES_WON);
+				for (int g = 0; g < epochGames; g++) {
+					games[j].setSeed(GameRandom.seedFor(seeds[j], gamesPlayed[j]++));
+					games[j].randomizeStart();
+					games[j].runGame();
+					if (players[j].isFullyEvolved())
+						break;
+				}
+				epochWins[j] = (int)(players[j].get(Stat.GAMES_WON) - wonBefore);
+			}
+			return null;
+		}
+
+		EvolvingPlayer getPlayer(int j) {
+			return players[j];
+		}
+
+		int getEpochWins(int j) {
+			return epochWins[j];
+		}
+
+		long getGamesPlayed() {
+			long games = 0;
+			for (int g : gamesPlayed)
+				games += g;
+			return games;
+		}
+
+		/**
+		 * Gets the first player that has fully evolved, or null if none has.
+		 */
+		EvolvingPlayer getEvolvedPlayer() {
+			for (EvolvingPlayer player : players) {
+				if (player.isFullyEvolved())
+					return player;
+			}
+			return null;
+		}
+
+		/**
+		 * Gets the index of the player that won the most games this epoch.
+		 */
+		int getBestIndex() {
+			int b = 0;
+			for (int j = 1; j < populationSize; j++) {
+				if (epochWins[j] > epochWins[b])
+					b = j;
+			}
+			return b;
+		}
+
+		/**
+		 * Gives a genome to the player that won the fewest games this epoch, if the
+		 * genome's player won more.
+		 */
+		void replaceWorst(double[][] genome, int wins) {
+			int w = 0;
+			for (int j = 1; j < populationSize; j++) {
+				if (epochWins[j] < epochWins[w])
+					w = j;
+			}
+			if (wins > epochWins[w])
+				players[w].setGenome(genome);
+			return;
+		}
+	}
+}
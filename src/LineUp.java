@@ -0,0 +1,14 @@
+/**
+ * A LineUp creates a fresh set of players for a single game. Runners that play
+ * games on several threads use it so that every game gets its own player
+ * instances instead of sharing them.
+ *
+ */
+public interface LineUp {
+	/**
+	 * Creates new instances of every player in the line-up. The players should
+	 * always be returned in the same order, since results are merged by seat.
+	 * @return Array of newly created players (between 3 and 6).
+	 */
+	Player[] createPlayers();
+}
@@ -1,5 +1,7 @@
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 
 import jxl.Workbook;
@@ -20,8 +22,6 @@ public class Main {
 	 * @param args
 	 */
 	public static void main(String[] args) throws BiffException, IOException, WriteException {
-		Game game = new Game();
-
 		// set up the game map
 		int[][] riskMap = { {1, 3, 23}, {0, 2, 3, 4}, {1, 4, 5, 13}, {0, 1, 4, 6}, {1, 2, 3, 5, 7}, 
 				{2, 4, 7}, {3, 7, 8}, {4, 5, 6, 8}, {6, 7, 9}, {8, 10, 11}, {9, 11, 12}, {9, 10, 12, 33}, 
@@ -32,13 +32,101 @@ public class Main {
 				{25, 28, 29, 31}, {29, 30, 38}, {19, 28, 33, 34}, {11, 18, 19, 32, 34, 35}, {28, 32, 33, 35, 37}, 
 				{33, 34, 36}, {35, 37}, {34, 36}, {31, 39, 40}, {38, 40, 41}, {38, 39, 41}, {39, 40} };
 		
-		game.setupMap(riskMap);
+		// or load one from a file if asked to (java -Dmap=world.txt Main, see MapLoader)
+		GameMap map = (System.getProperty("map") != null) ? MapLoader.load(new File(System.getProperty("map")))
+				: new GameMap(riskMap);
 		
 		// do each mutation/learning rate thing
 		// L = 0.01, M from 3 to 10 (25 runs)
 		// M = 3, L from 0.12 to 3 (25 runs)
 		// also, record it
 		
+		// the opponents of the evolving player (between 2 and 5)
+		LineUp opponents = new LineUp() {
+			public Player[] createPlayers() {
+				return new Player[] { new DefensivePlayer("Defensive"), new AggressivePlayer("Aggressive"),
+						new BalancedPlayer("Balanced"), new WallPlayer("Wall") };
+			}
+		};
+		
+		// pick the master seed; pass one in to repeat an earlier sweep
+		long seed = (args.length > 0) ? Long.parseLong(args[0]) : GameRandom.newSeed();
+		System.out.println("Sweep seed: " + seed);
+		
+		// evolve players on islands instead of sweeping, if asked to (java -Dislands=8
+		// -Dpopulation=1 -Dthreads=8 -Depochs=1000 Main, see IslandEvolution)
+		if (System.getProperty("islands") != null) {
+			IslandEvolution evolution = new IslandEvolution(Integer.parseInt(System.getProperty("islands")),
+					Integer.parseInt(System.getProperty("population", "1")), opponents);
+			evolution.setSeed(seed);
+			if (System.getProperty("threads") != null)
+				evolution.setThreads(Integer.parseInt(System.getProperty("threads")));
+			evolution.run(map, Integer.parseInt(System.getProperty("epochs", "1000")));
+			System.out.println("Island evolution: " + (evolution.hasEvolved() ? "evolved" : "didn't evolve") + " after "
+					+ evolution.getEpochs() + " epochs and " + evolution.getGamesPlayed() + " games");
+			System.out.print(evolution.getBest());
+			return;
+		}
+		
+		// set up the two sweeps
+		SweepGrid mGrid = new SweepGrid(new double[] {0.01}, SweepGrid.range(0, 5.2, 5/25.0),
+				new LineUp[] {opponents}, 10000);
+		SweepGrid lGrid = new SweepGrid(SweepGrid.range(0, 3.1, 3/25.0), new double[] {3},
+				new LineUp[] {opponents}, 10000);
+		mGrid.setSeed(GameRandom.seedFor(seed, 0));
+		lGrid.setSeed(GameRandom.seedFor(seed, 1));
+		ArrayList<SweepPoint> mPoints = mGrid.getPoints();
+		ArrayList<SweepPoint> lPoints = lGrid.getPoints();
+		
+		// profile the games if asked to (java -Dprofile=true Main)
+		boolean profiling = Boolean.getBoolean("profile");
+		for (SweepPoint point : mPoints)
+			point.setProfiling(profiling);
+		for (SweepPoint point : lPoints)
+			point.setProfiling(profiling);
+		
+		// stop points early once their win rates are known to a given precision, if
+		// asked to (java -Dprecision=0.02 Main)
+		StoppingRule rule = null;
+		if (System.getProperty("precision") != null)
+			rule = StoppingRule.precision(Double.parseDouble(System.getProperty("precision")), 0.95);
+		for (SweepPoint point : mPoints)
+			point.setStoppingRule(rule);
+		for (SweepPoint point : lPoints)
+			point.setStoppingRule(rule);
+		
+		// record every game to a file if asked to (java -Drecords=games.bin Main, see
+		// BinaryGameSink.readAll)
+		BinaryGameSink sink = null;
+		if (System.getProperty("records") != null)
+			sink = new BinaryGameSink(new File(System.getProperty("records")));
+		for (SweepPoint point : mPoints)
+			point.setSink(sink);
+		for (SweepPoint point : lPoints)
+			point.setSink(sink);
+		
+		// run all the points of both sweeps together
+		ArrayList<SweepPoint> points = new ArrayList<SweepPoint>(mPoints);
+		points.addAll(lPoints);
+		SweepScheduler scheduler = new SweepScheduler(map);
+		scheduler.run(points);
+		scheduler.shutdown();
+		if (sink != null)
+			sink.close();
+		
+		// report how many games the points needed
+		if (rule != null) {
+			long played = 0;
+			int converged = 0;
+			for (SweepPoint point : points) {
+				played += point.getGamesPlayed();
+				if (point.hasConverged())
+					converged++;
+			}
+			System.out.println("Stopping rule " + rule + ": " + played + " games played of " + 10000L*points.size()
+					+ " allowed, " + converged + " of " + points.size() + " points converged");
+		}
+		
 		// open the spreadsheet
 		WritableWorkbook alleleWorkbook;
 		alleleWorkbook = Workbook.createWorkbook(new File("alleles.xls"));
@@ -54,141 +142,42 @@ public class Main {
 		awsheet.addCell(new Label(4, 0, "Games"));
 		awsheet.addCell(new Label(5, 0, "Wins"));
 		
+		// add one row per point
 		int yy = 0;
-		
-		for (double m = 0; m <= 5.2; m += 5/25.0) {
-			game.setTelemetry(0, 0);
-			System.out.println("m = " + m);
-			// Add the players (between 3 and 6)
-			game.addPlayer(new DefensivePlayer("Defensive"));
-			game.addPlayer(new AggressivePlayer("Aggressive"));
-			game.addPlayer(new BalancedPlayer("Balanced"));
-			game.addPlayer(new WallPlayer("Wall"));
-			EvolvingPlayer e = new EvolvingPlayer("Evolving");
-			game.addPlayer(e);
-			
-			e.learningRate = 0.01;
-			e.mutationRate = m;
-			
+		for (SweepPoint point : mPoints) {
 			yy++;
-			awsheet.addCell(new Number(0, yy, m));
-			
-			for (int i = 0; i < 10000; i++) {
-				game.randomizeStart();
-				game.runGame();
-				
-				// break out of the game if the evolving player has fully evolved
-				boolean fullyEvolved = true;
-				for (double[] strat : e.masterStrats) {
-					double highest = 0;
-					double lowest = 0;
-					
-					// find the highest and lowest values
-					for (double val : strat) {
-						if (val > highest)
-							highest = val;
-						else if (val >= 0 && val < lowest)
-							lowest = val;
-					}
-					
-					// if the highest and the lowest are equal, it is not fully evolved
-					if (highest == lowest) {
-						fullyEvolved = false;
-						break;
-					}
-					
-					// see if it exceeds all of the others by the mutation rate
-					for (double val : strat) {
-						if (val < highest && val >= 0 && val + e.mutationRate >= highest) {
-							fullyEvolved = false;
-							break;
-						}
-					}
-					
-					// break out of the loop if we're able to
-					if (!fullyEvolved)
-						break;
-				}
-				
-				// finish the game if necessary
-				if (fullyEvolved)
-					break;
-			}
-			
-			awsheet.addCell(new Number(1, yy, game.getTelemetry(0)));
-			awsheet.addCell(new Number(2, yy, e.getTelemetry("GAMES_WON")));
-			game.clearPlayers();
+			awsheet.addCell(new Number(0, yy, point.getMutationRate()));
+			awsheet.addCell(new Number(1, yy, point.getGamesPlayed()));
+			awsheet.addCell(new Number(2, yy, point.getGamesWon()));
 		}
 		
 		yy = 0;
-		
-		for (double l = 0; l <= 3.1; l += 3/25.0) {
-			game.setTelemetry(0, 0);
-			System.out.println("l = " + l);
-			// Add the players (between 3 and 6)
-			game.addPlayer(new DefensivePlayer("Defensive"));
-			game.addPlayer(new AggressivePlayer("Aggressive"));
-			game.addPlayer(new BalancedPlayer("Balanced"));
-			game.addPlayer(new WallPlayer("Wall"));
-			EvolvingPlayer e = new EvolvingPlayer("Evolving");
-			game.addPlayer(e);
-			
-			e.learningRate = l;
-			e.mutationRate = 3;
-			
+		for (SweepPoint point : lPoints) {
 			yy++;
-			awsheet.addCell(new Number(3, yy, l));
-			
-			for (int i = 0; i < 10000; i++) {
-				game.randomizeStart();
-				game.runGame();
-				
-				// break out of the game if the evolving player has fully evolved
-				boolean fullyEvolved = true;
-				for (double[] strat : e.masterStrats) {
-					double highest = 0;
-					double lowest = 0;
-					
-					// find the highest and lowest values
-					for (double val : strat) {
-						if (val > highest)
-							highest = val;
-						else if (val >= 0 && val < lowest)
-							lowest = val;
-					}
-					
-					// if the highest and the lowest are equal, it is not fully evolved
-					if (highest == lowest) {
-						fullyEvolved = false;
-						break;
-					}
-					
-					// see if it exceeds all of the others by the mutation rate
-					for (double val : strat) {
-						if (val < highest && val >= 0 && val + e.mutationRate >= highest) {
-							fullyEvolved = false;
-							break;
-						}
-					}
-					
-					// break out of the loop if we're able to
-					if (!fullyEvolved)
-						break;
-				}
-				
-				// finish the game if necessary
-				if (fullyEvolved)
-					break;
-			}
-			
-			awsheet.addCell(new Number(4, yy, game.getTelemetry(0)));
-			awsheet.addCell(new Number(5, yy, e.getTelemetry("GAMES_WON")));
-			game.clearPlayers();
+			awsheet.addCell(new Number(3, yy, point.getLearningRate()));
+			awsheet.addCell(new Number(4, yy, point.getGamesPlayed()));
+			awsheet.addCell(new Number(5, yy, point.getGamesWon()));
 		}
 		
 		alleleWorkbook.write();
 		alleleWorkbook.close();
 		
+		// write the profile of every point next to the spreadsheet
+		if (profiling) {
+			PrintWriter profile = new PrintWriter(new FileWriter("profile.csv"));
+			Profiler.writeHeader(profile);
+			for (SweepPoint point : mPoints)
+				point.getProfiler().write(profile, "M=" + point.getMutationRate());
+			for (SweepPoint point : lPoints)
+				point.getProfiler().write(profile, "L=" + point.getLearningRate());
+			profile.close();
+		}
+		
+		// report on the games of every point of both sweeps together
+		Game game = new Game();
+		for (SweepPoint point : points)
+			game.mergeTelemetry(point.getGame());
+		
 		// get the list of players
 		ArrayList<Player> players = game.getPlayers();
 		
@@ -243,21 +232,21 @@ public class Main {
 			// add their data
 			for (y = 1;  y <= labels.length; y++) {
 				
-				double totalGames = player.get("GAMES_WON") + player.get("GAMES_LOST");
-				double turns = (double)(player.get("TURNS"));
+				double totalGames = player.get(Stat.GAMES_WON) + player.get(Stat.GAMES_LOST);
+				double turns = (double)(player.get(Stat.TURNS));
 				double out = 0;
 				
 				switch (y) {
-					case 1: 	out = (player.get("ATTACKS")/turns);	break;
-					case 2: 	out = (player.get("NODES_WON")/totalGames); break;
-					case 3: 	out = (player.get("NODES_WON")/turns); break;
-					case 4:		out = (player.get("NODES_LOST")/totalGames); break;
-					case 5: 	out = (player.get("NODES_LOST")/turns); break;
-					case 6:		out = (player.get("PLAYERS_KILLED")/totalGames); break;
-					case 7: 	out = (player.get("UNITS_KILLED")/turns); break;
-					case 8:		out = (player.get("UNITS_LOST")/turns); break;
-					case 9: 	out = (player.get("TURNS")/totalGames); break;
-					case 10:	out = player.get("GAMES_WON")/totalGames; break;
+					case 1: 	out = (player.get(Stat.ATTACKS)/turns);	break;
+					case 2: 	out = (player.get(Stat.NODES_WON)/totalGames); break;
+					case 3: 	out = (player.get(Stat.NODES_WON)/turns); break;
+					case 4:		out = (player.get(Stat.NODES_LOST)/totalGames); break;
+					case 5: 	out = (player.get(Stat.NODES_LOST)/turns); break;
+					case 6:		out = (player.get(Stat.PLAYERS_KILLED)/totalGames); break;
+					case 7: 	out = (player.get(Stat.UNITS_KILLED)/turns); break;
+					case 8:		out = (player.get(Stat.UNITS_LOST)/turns); break;
+					case 9: 	out = (player.get(Stat.TURNS)/totalGames); break;
+					case 10:	out = player.get(Stat.GAMES_WON)/totalGames; break;
 				}
 				
 				// add the data point
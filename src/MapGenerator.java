@@ -0,0 +1,384 @@
+import java.util.Arrays;
+
+/**
+ * The MapGenerator makes synthetic maps of any size, for seeing how the players scale
+ * past the 42-node map. There are three shapes:
+ *
+ * LATTICE is a square grid, with some of its cells also split along one diagonal at
+ * random, so it stays planar like a real map. Only as many cells are split as it
+ * takes to bring the grid's own average degree (just under 4, for the nodes on its
+ * edges) up to the mean degree: at the default mean of 4 it is almost a plain grid,
+ * at 5 about half the cells are split and at 6 all of them (leaving out diagonals
+ * that would take a node past the largest degree), giving interior nodes from 4 to
+ * 6 neighbours.
+ *
+ * GEOMETRIC scatters the nodes over a square and links each to its nearest
+ * neighbours, like countries on a continent.
+ *
+ * POWER_LAW grows the map one node at a time, linking each new node to existing
+ * nodes picked in proportion to their degree, so a few hubs gather many links and
+ * most nodes have few.
+ *
+ * Every map keeps each node's degree within a range (2 to 6 by default, which the
+ * players assume), is connected, and is built from a seed, so the same seed, shape
+ * and size always give the same map. Maps are returned as GameMaps, ready for
+ * Game.setupMap(GameMap) or MapLoader.save.
+ *
+ */
+public class MapGenerator {
+
+	/**
+	 * The shapes of map the generator makes.
+	 */
+	public enum Shape {
+		/** A planar grid, with random diagonals above a mean degree of 4. */
+		LATTICE,
+		/** Random points linked to their nearest neighbours. */
+		GEOMETRIC,
+		/** Preferential attachment, with degrees falling off like a power law. */
+		POWER_LAW
+	}
+
+	private
+		GameRandom random;
+		int minDegree = 2;
+		int maxDegree = 6;
+		double meanDegree = 4;
+		int[][] adjacency;
+		int[] degree;
+		int[] parent;
+
+	/**
+	 * Constructor for the MapGenerator class.
+	 * @param seed The seed the maps are built from.
+	 */
+	public MapGenerator(long seed) {
+		random = new GameRandom(seed);
+	}
+
+	/**
+	 * Sets the range every node's degree is kept within.
+	 * @param min The smallest degree, at least 1.
+	 * @param max The largest degree, at least min + 1.
+	 */
+	public void setDegreeRange(int min, int max) {
+		if (min < 1 || max <= min)
+			throw new IllegalArgumentException("GENERATOR ERROR: Invalid degree range!");
+		minDegree = min;
+		maxDegree = max;
+		return;
+	}
+
+	/**
+	 * Sets the average degree aimed for. Lattices add diagonals and geometric maps add
+	 * nearest neighbours until they get close to it; power-law maps link each new node
+	 * to half of it, rounded, and so average about that much.
+	 * @param mean The average degree, within the degree range.
+	 */
+	public void setMeanDegree(double mean) {
+		if (mean < minDegree || mean > maxDegree)
+			throw new IllegalArgumentException("GENERATOR ERROR: Mean degree outside the degree range!");
+		meanDegree = mean;
+		return;
+	}
+
+	public int getMinDegree() {
+		return minDegree;
+	}
+
+	public int getMaxDegree() {
+		return maxDegree;
+	}
+
+	public double getMeanDegree() {
+		return meanDegree;
+	}
+
+	/**
+	 * Makes a map.
+	 * @param shape The shape of the map.
+	 * @param nodes The number of nodes, at least maxDegree + 1.
+	 * @return The new GameMap.
+	 */
+	public GameMap generate(Shape shape, int nodes) {
+		if (nodes <= maxDegree)
+			throw new IllegalArgumentException("GENERATOR ERROR: Too few nodes for the degree range!");
+		adjacency = new int[nodes][maxDegree];
+		degree = new int[nodes];
+
+		// the order nodes are linked to fix them up afterwards; neighbours in it are close
+		int[] order;
+		switch (shape) {
+			case LATTICE: order = lattice(nodes); break;
+			case GEOMETRIC: order = geometric(nodes); break;
+			default: order = powerLaw(nodes); break;
+		}
+
+		connect(order);
+		fillDegrees(order);
+
+		// copy the links into a topology, which GameMap checks
+		int[] offsets = new int[nodes + 1];
+		for (int i = 0; i < nodes; i++)
+			offsets[i+1] = offsets[i] + degree[i];
+		int[] neighbours = new int[offsets[nodes]];
+		for (int i = 0; i < nodes; i++)
+			System.arraycopy(adjacency[i], 0, neighbours, offsets[i], degree[i]);
+		adjacency = null;
+		degree = null;
+		parent = null;
+		return new GameMap(new Topology(offsets, neighbours), new String[0], new int[0], new int[0][]);
+	}
+
+	/**
+	 * Links a square grid, with a random diagonal in enough of its cells to reach the
+	 * mean degree.
+	 * @return The nodes in row order.
+	 */
+	private int[] lattice(int nodes) {
+		int side = (int)Math.ceil(Math.sqrt(nodes));
+		int links = 0;
+		int cells = 0;
+		for (int i = 0; i < nodes; i++) {
+			int col = i % side;
+			if (col + 1 < side && i + 1 < nodes && link(i, i + 1))
+				links++;
+			if (i + side < nodes && link(i, i + side))
+				links++;
+			if (col + 1 < side && i + side + 1 < nodes)
+				cells++;
+		}
+
+		// each diagonal adds one link, so split the share of cells that makes up the rest
+		double diagonals = (cells > 0) ? Math.max(0, Math.min(1, (meanDegree*nodes/2 - links) / cells)) : 0;
+		for (int i = 0; i < nodes; i++) {
+			int col = i % side;
+			if (col + 1 < side && i + side + 1 < nodes && random.nextDouble() < diagonals) {
+				if (random.nextInt(2) == 0)
+					link(i, i + side + 1);
+				else
+					link(i + 1, i + side);
+			}
+		}
+		return identity(nodes);
+	}
+
+	/**
+	 * Scatters the nodes over a square and links each to its nearest neighbours. The
+	 * square is split into cells holding about two nodes each, so only the nodes in the
+	 * surrounding cells are looked at.
+	 * @return The nodes in cell order.
+	 */
+	private int[] geometric(int nodes) {
+		int cells = Math.max(1, (int)Math.sqrt(nodes / 2.0));
+		double[] x = new double[nodes];
+		double[] y = new double[nodes];
+		int[] cellStart = new int[cells*cells + 1];
+		int[] cellOf = new int[nodes];
+		for (int i = 0; i < nodes; i++) {
+			x[i] = random.nextDouble();
+			y[i] = random.nextDouble();
+			cellOf[i] = Math.min(cells - 1, (int)(y[i] * cells)) * cells + Math.min(cells - 1, (int)(x[i] * cells));
+			cellStart[cellOf[i] + 1]++;
+		}
+
+		// bucket the nodes by cell
+		for (int c = 0; c < cells*cells; c++)
+			cellStart[c+1] += cellStart[c];
+		int[] order = new int[nodes];
+		int[] fill = new int[cells*cells];
+		for (int i = 0; i < nodes; i++)
+			order[cellStart[cellOf[i]] + fill[cellOf[i]]++] = i;
+
+		// link each node to its nearest neighbours until it reaches its target degree,
+		// skipping neighbours that have already reached theirs
+		int[] targets = new int[nodes];
+		for (int i = 0; i < nodes; i++)
+			targets[i] = targetDegree();
+		int[] candidates = new int[64];
+		double[] distances = new double[64];
+		for (int i = 0; i < nodes; i++) {
+			int cx = cellOf[i] % cells;
+			int cy = cellOf[i] / cells;
+			int found = 0;
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					if (cx + dx < 0 || cx + dx >= cells || cy + dy < 0 || cy + dy >= cells)
+						continue;
+					int c = (cy + dy) * cells + cx + dx;
+					for (int k = cellStart[c]; k < cellStart[c+1]; k++) {
+						int j = order[k];
+						if (j == i || degree[j] >= targets[j])
+							continue;
+						if (found == candidates.length) {
+							candidates = Arrays.copyOf(candidates, found * 2);
+							distances = Arrays.copyOf(distances, found * 2);
+						}
+						candidates[found] = j;
+						distances[found] = (x[i] - x[j]) * (x[i] - x[j]) + (y[i] - y[j]) * (y[i] - y[j]);
+						found++;
+					}
+				}
+			}
+
+			// pick the nearest remaining candidate until the target is reached
+			while (degree[i] < targets[i] && found > 0) {
+				int nearest = 0;
+				for (int k = 1; k < found; k++) {
+					if (distances[k] < distances[nearest])
+						nearest = k;
+				}
+				link(i, candidates[nearest]);
+				found--;
+				candidates[nearest] = candidates[found];
+				distances[nearest] = distances[found];
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Grows the map by preferential attachment. Every link adds both of its ends to a
+	 * list, so picking a random entry of the list picks a node in proportion to its
+	 * degree.
+	 * @return The nodes in the order they were added.
+	 */
+	private int[] powerLaw(int nodes) {
+		int links = Math.max(1, Math.min(maxDegree - 1, (int)Math.round(meanDegree / 2)));
+		int[] ends = new int[2 * links * nodes + 2 * maxDegree * maxDegree];
+		int count = 0;
+
+		// start from a small ring
+		int seeds = links + 1;
+		for (int i = 0; i < seeds; i++) {
+			if (link(i, (i + 1) % seeds)) {
+				ends[count++] = i;
+				ends[count++] = (i + 1) % seeds;
+			}
+		}
+
+		for (int i = seeds; i < nodes; i++) {
+			for (int l = 0; l < links; l++) {
+				// hubs that are already full are skipped; after a few tries, take anyone
+				int j = -1;
+				for (int tries = 0; tries < 16 && j < 0; tries++) {
+					int pick = ends[random.nextInt(count)];
+					if (degree[pick] < maxDegree && !isLinked(i, pick))
+						j = pick;
+				}
+				for (int tries = 0; tries < 64 && j < 0; tries++) {
+					int pick = random.nextInt(i);
+					if (degree[pick] < maxDegree && !isLinked(i, pick))
+						j = pick;
+				}
+				if (j >= 0 && link(i, j)) {
+					ends[count++] = i;
+					ends[count++] = j;
+				}
+			}
+		}
+		return identity(nodes);
+	}
+
+	/**
+	 * Links the map's pieces together, walking the nodes in order and linking each one
+	 * to the last node seen with room to spare whenever they are in different pieces.
+	 */
+	private void connect(int[] order) {
+		parent = identity(order.length);
+		for (int i = 0; i < order.length; i++) {
+			for (int d = 0; d < degree[i]; d++)
+				union(i, adjacency[i][d]);
+		}
+
+		int pieces = 0;
+		for (int i = 0; i < order.length; i++) {
+			if (find(i) == i)
+				pieces++;
+		}
+		while (pieces > 1) {
+			int last = -1;
+			int before = pieces;
+			for (int v : order) {
+				if (last >= 0 && degree[v] < maxDegree && find(v) != find(last) && link(v, last)) {
+					union(v, last);
+					pieces--;
+				}
+				if (degree[v] < maxDegree)
+					last = v;
+			}
+			if (pieces == before)
+				throw new IllegalStateException("GENERATOR ERROR: Couldn't connect the map!");
+		}
+		return;
+	}
+
+	/**
+	 * Links every node below the smallest degree to nearby nodes (in order) with room
+	 * to spare.
+	 */
+	private void fillDegrees(int[] order) {
+		for (int p = 0; p < order.length; p++) {
+			int v = order[p];
+			for (int step = 1; degree[v] < minDegree && step < order.length; step++) {
+				int q = (step % 2 == 1) ? p + (step + 1) / 2 : p - step / 2;
+				if (q < 0 || q >= order.length)
+					continue;
+				int w = order[q];
+				if (w != v && degree[w] < maxDegree)
+					link(v, w);
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Draws a node's target degree for a geometric map, spread around the mean.
+	 */
+	private int targetDegree() {
+		double mean = Math.max(minDegree, Math.min(maxDegree - 1, meanDegree));
+		int low = (int)Math.floor(mean);
+		int target = (random.nextDouble() < mean - low) ? low + 1 : low;
+		return Math.max(minDegree, Math.min(maxDegree, target + random.nextInt(3) - 1));
+	}
+
+	/**
+	 * Links two nodes both ways, if neither is full and they aren't already linked.
+	 * @return True if they were linked.
+	 */
+	private boolean link(int a, int b) {
+		if (a == b || degree[a] >= maxDegree || degree[b] >= maxDegree || isLinked(a, b))
+			return false;
+		adjacency[a][degree[a]++] = b;
+		adjacency[b][degree[b]++] = a;
+		return true;
+	}
+
+	private boolean isLinked(int a, int b) {
+		for (int d = 0; d < degree[a]; d++) {
+			if (adjacency[a][d] == b)
+				return true;
+		}
+		return false;
+	}
+
+	private int find(int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	private void union(int a, int b) {
+		parent[find(a)] = find(b);
+		return;
+	}
+
+	private static int[] identity(int n) {
+		int[] array = new int[n];
+		for (int i = 0; i < n; i++)
+			array[i] = i;
+		return array;
+	}
+}
@@ -0,0 +1,376 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The MapLoader reads and writes GameMaps, in a text format and a binary one. Both
+ * are read in one pass, in time linear in the number of links, and the map is checked
+ * as it is built (see GameMap).
+ *
+ * The text format has one line per node, in order, listing the nodes it links to, and
+ * one line per continent, giving its bonus, its name and its nodes. Blank lines and
+ * anything after a # are ignored, and the node lines may start with their index:
+ *
+ *   # a triangle and a tail
+ *   0: 1 2
+ *   1: 0 2
+ *   2: 0 1 3
+ *   3: 2
+ *   continent 2 Triangle: 0 1 2
+ *
+ * The binary format is the magic number "RMAP", a version, the node count, the link
+ * count, each node's degree and then every node's neighbours, followed by the number
+ * of continents and, for each, its name, bonus, size and nodes, all as big-endian
+ * ints (and a modified UTF-8 name) as written by DataOutputStream.
+ *
+ */
+public class MapLoader {
+
+	/**
+	 * The first four bytes of a binary map file ("RMAP").
+	 */
+	public static final int MAGIC = 0x524D4150;
+
+	/**
+	 * The version of the binary format.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The most nodes or links a binary map can have, one less than the largest array.
+	 */
+	static final int MAX_COUNT = Integer.MAX_VALUE - 8;
+
+	/**
+	 * The number of ints the binary reader allocates before it has seen any of them.
+	 */
+	static final int CHUNK = 1 << 16;
+
+	private MapLoader() {
+	}
+
+	/**
+	 * Reads a map from a file, in whichever format it is in.
+	 * @param file The file.
+	 * @return The GameMap.
+	 * @throws IOException If the file can't be read or isn't a valid map.
+	 */
+	public static GameMap load(File file) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+		try {
+			// peek at the start of the file for the magic number
+			in.mark(4);
+			int magic = 0;
+			for (int b = 0; b < 4; b++)
+				magic = (magic << 8) | (in.read() & 0xFF);
+			in.reset();
+			if (magic == MAGIC)
+				return readBinary(in);
+			return readText(new InputStreamReader(in, StandardCharsets.UTF_8));
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes a map to a file.
+	 * @param map The map.
+	 * @param file The file.
+	 * @param binary True to write the binary format, false for the text format.
+	 * @throws IOException If the file can't be written.
+	 */
+	public static void save(GameMap map, File file, boolean binary) throws IOException {
+		if (binary) {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+			try {
+				writeBinary(map, out);
+			}
+			finally {
+				out.close();
+			}
+		}
+		else {
+			Writer out = new FileWriter(file);
+			try {
+				writeText(map, out);
+			}
+			finally {
+				out.close();
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Reads a map in the text format.
+	 * @param reader The reader; it isn't closed.
+	 * @return The GameMap.
+	 * @throws IOException If the map can't be read or isn't valid.
+	 */
+	public static GameMap readText(Reader reader) throws IOException {
+		BufferedReader in = (reader instanceof BufferedReader) ? (BufferedReader)reader : new BufferedReader(reader, 1 << 16);
+		int[] offsets = new int[1024];
+		int[] neighbours = new int[4096];
+		int nodes = 0;
+		int links = 0;
+		ArrayList<String> names = new ArrayList<String>(0);
+		ArrayList<Integer> bonuses = new ArrayList<Integer>(0);
+		ArrayList<int[]> members = new ArrayList<int[]>(0);
+		int[] row = new int[16];
+
+		String line;
+		int lineNumber = 0;
+		while ((line = in.readLine()) != null) {
+			lineNumber++;
+			int hash = line.indexOf('#');
+			if (hash >= 0)
+				line = line.substring(0, hash);
+			line = line.trim();
+			if (line.isEmpty())
+				continue;
+
+			try {
+				if (line.startsWith("continent")) {
+					// continent <bonus> <name>: <nodes>
+					int colon = line.indexOf(':');
+					if (colon < 0)
+						throw new IOException("MAP ERROR: Missing ':' on line " + lineNumber + "!");
+					String head = line.substring("continent".length(), colon).trim();
+					int space = head.indexOf(' ');
+					if (space < 0)
+						throw new IOException("MAP ERROR: Continent without a name on line " + lineNumber + "!");
+					bonuses.add(Integer.parseInt(head.substring(0, space)));
+					names.add(head.substring(space + 1).trim());
+					row = parseInts(line, colon + 1, row);
+					int[] continent = new int[row[0]];
+					System.arraycopy(row, 1, continent, 0, row[0]);
+					members.add(continent);
+					continue;
+				}
+
+				// [index:] <neighbours>
+				int start = 0;
+				int colon = line.indexOf(':');
+				if (colon >= 0) {
+					if (Integer.parseInt(line.substring(0, colon).trim()) != nodes)
+						throw new IOException("MAP ERROR: Expected node " + nodes + " on line " + lineNumber + "!");
+					start = colon + 1;
+				}
+				row = parseInts(line, start, row);
+				if (nodes + 2 > offsets.length)
+					offsets = grow(offsets, nodes + 2);
+				if (links + row[0] > neighbours.length)
+					neighbours = grow(neighbours, links + row[0]);
+				System.arraycopy(row, 1, neighbours, links, row[0]);
+				links += row[0];
+				nodes++;
+				offsets[nodes] = links;
+			}
+			catch (NumberFormatException e) {
+				throw new IOException("MAP ERROR: Bad number on line " + lineNumber + "!");
+			}
+		}
+
+		return build(trim(offsets, nodes + 1), trim(neighbours, links), names.toArray(new String[names.size()]),
+				toArray(bonuses), members.toArray(new int[members.size()][]));
+	}
+
+	/**
+	 * Writes a map in the text format.
+	 * @param map The map.
+	 * @param writer The writer; it is flushed but not closed.
+	 */
+	public static void writeText(GameMap map, Writer writer) {
+		PrintWriter out = new PrintWriter(writer);
+		Topology topology = map.getTopology();
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < topology.getNodeCount(); i++) {
+			line.setLength(0);
+			line.append(i).append(':');
+			for (int n = 0; n < topology.getDegree(i); n++)
+				line.append(' ').append(topology.getNeighbour(i, n));
+			out.println(line);
+		}
+		for (int c = 0; c < map.getContinentCount(); c++) {
+			line.setLength(0);
+			line.append("continent ").append(map.getContinentBonus(c)).append(' ').append(map.getContinentName(c)).append(':');
+			for (int i : map.getContinent(c))
+				line.append(' ').append(i);
+			out.println(line);
+		}
+		out.flush();
+		return;
+	}
+
+	/**
+	 * Reads a map in the binary format.
+	 * @param stream The stream; it isn't closed.
+	 * @return The GameMap.
+	 * @throws IOException If the map can't be read or isn't valid.
+	 */
+	public static GameMap readBinary(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(stream);
+		if (in.readInt() != MAGIC)
+			throw new IOException("MAP ERROR: Not a binary map!");
+		int version = in.readInt();
+		if (version != VERSION)
+			throw new IOException("MAP ERROR: Unknown map version " + version + "!");
+
+		// a node links to each other node at most once, and the arrays need room for it all
+		int nodes = in.readInt();
+		int links = in.readInt();
+		if (nodes < 0 || nodes >= MAX_COUNT || links < 0 || links >= MAX_COUNT
+				|| links > (long)nodes * (nodes - 1))
+			throw new IOException("MAP ERROR: Bad node or link count!");
+		int[] degrees = readInts(in, nodes);
+		int[] offsets = new int[nodes + 1];
+		for (int i = 0; i < nodes; i++) {
+			if (degrees[i] < 0 || degrees[i] > links - offsets[i])
+				throw new IOException("MAP ERROR: Degrees don't add up to the link count!");
+			offsets[i+1] = offsets[i] + degrees[i];
+		}
+		if (offsets[nodes] != links)
+			throw new IOException("MAP ERROR: Degrees don't add up to the link count!");
+		int[] neighbours = readInts(in, links);
+
+		int count = in.readInt();
+		if (count < 0)
+			throw new IOException("MAP ERROR: Bad continent count!");
+		String[] names = new String[count];
+		int[] bonuses = new int[count];
+		int[][] members = new int[count][];
+		for (int c = 0; c < count; c++) {
+			names[c] = in.readUTF();
+			bonuses[c] = in.readInt();
+			int size = in.readInt();
+			if (size < 0 || size > nodes)
+				throw new IOException("MAP ERROR: Bad continent size!");
+			members[c] = readInts(in, size);
+		}
+		return build(offsets, neighbours, names, bonuses, members);
+	}
+
+	/**
+	 * Reads a number of ints, growing the array as they arrive, so a count from a
+	 * corrupt or cut-off file fails on the missing data instead of allocating it all
+	 * up front.
+	 * @param in The stream.
+	 * @param count The number of ints, at most MAX_COUNT.
+	 * @return The ints.
+	 * @throws IOException If the stream ends first.
+	 */
+	private static int[] readInts(DataInputStream in, int count) throws IOException {
+		int[] ints = new int[Math.min(count, CHUNK)];
+		for (int i = 0; i < count; i++) {
+			if (i == ints.length)
+				ints = Arrays.copyOf(ints, (int)Math.min(count, 2L*i));
+			ints[i] = in.readInt();
+		}
+		return ints;
+	}
+
+	/**
+	 * Writes a map in the binary format.
+	 * @param map The map.
+	 * @param stream The stream; it is flushed but not closed.
+	 * @throws IOException If the map can't be written.
+	 */
+	public static void writeBinary(GameMap map, OutputStream stream) throws IOException {
+		DataOutputStream out = new DataOutputStream(stream);
+		Topology topology = map.getTopology();
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(topology.getNodeCount());
+		out.writeInt(topology.getNeighbours().length);
+		for (int i = 0; i < topology.getNodeCount(); i++)
+			out.writeInt(topology.getDegree(i));
+		for (int i = 0; i < topology.getNodeCount(); i++) {
+			for (int n = 0; n < topology.getDegree(i); n++)
+				out.writeInt(topology.getNeighbour(i, n));
+		}
+		out.writeInt(map.getContinentCount());
+		for (int c = 0; c < map.getContinentCount(); c++) {
+			out.writeUTF(map.getContinentName(c));
+			out.writeInt(map.getContinentBonus(c));
+			out.writeInt(map.getContinent(c).length);
+			for (int i : map.getContinent(c))
+				out.writeInt(i);
+		}
+		out.flush();
+		return;
+	}
+
+	/**
+	 * Builds and checks the map, turning a broken map into an IOException.
+	 */
+	private static GameMap build(int[] offsets, int[] neighbours, String[] names, int[] bonuses, int[][] members)
+			throws IOException {
+		try {
+			return new GameMap(new Topology(offsets, neighbours), names, bonuses, members);
+		}
+		catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Parses the whitespace-separated ints of a line from a position on.
+	 * @return The row array, possibly grown, holding the count and then the ints.
+	 */
+	private static int[] parseInts(String line, int start, int[] row) {
+		int count = 0;
+		int i = start;
+		while (i < line.length()) {
+			char c = line.charAt(i);
+			if (Character.isWhitespace(c) || c == ',') {
+				i++;
+				continue;
+			}
+			int end = i;
+			while (end < line.length() && !Character.isWhitespace(line.charAt(end)) && line.charAt(end) != ',')
+				end++;
+			if (count + 2 > row.length)
+				row = grow(row, count + 2);
+			row[++count] = Integer.parseInt(line.substring(i, end));
+			i = end;
+		}
+		row[0] = count;
+		return row;
+	}
+
+	private static int[] grow(int[] array, int needed) {
+		int[] grown = new int[Math.max(needed, array.length * 2)];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	private static int[] trim(int[] array, int length) {
+		int[] trimmed = new int[length];
+		System.arraycopy(array, 0, trimmed, 0, length);
+		return trimmed;
+	}
+
+	private static int[] toArray(ArrayList<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = list.get(i);
+		return array;
+	}
+}
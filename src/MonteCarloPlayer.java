@@ -0,0 +1,943 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The MonteCarloPlayer plays its turns with Monte Carlo tree search. Every decision
+ * of a turn is searched: where to place each reinforcement, which attack to blitz
+ * next (or to stop), how many units to move into a captured node, and which fortify
+ * to make (or none). Each search grows a tree of our own decisions for the rest of
+ * the turn from the current one, so a placement is judged by the attacks it makes
+ * possible and an attack by the occupations and fortify that follow it.
+ *
+ * The tree is open-loop: a tree node stands for a sequence of decisions rather than
+ * a board, and every playout restores the board the search started from and makes
+ * the decisions down the tree again with new dice. Which decisions can be made
+ * depends on the dice (a failed attack has no occupation, a lost node can't attack),
+ * so each playout only picks among the children that can be made on its own board,
+ * with UCB1 counting a child's tries against the playouts it could have been picked
+ * in. Each playout adds one new decision to the tree; past it, the rest of our turn
+ * follows this player's simple rules, and then the other players finish the round
+ * and every player plays a number of further rounds (see setHorizon), each played by
+ * a fast stand-in of its own kind (an AggressivePlayer, BalancedPlayer,
+ * DefensivePlayer or WallPlayer; this player by a WallPlayer, and any other kind by
+ * an AggressivePlayer). The decision tried the most at the top of the tree is made.
+ *
+ * To keep the tree narrow, attacks are only searched from nodes with at least as
+ * many attackers as the target has defenders, occupations are searched among moving
+ * the fewest units, half or all but one, and fortifies only move all but one unit of
+ * a node without enemy neighbours to a node next to it.
+ *
+ * Each decision gets a budget of playouts and, optionally, of time. The playouts are
+ * shared among a number of workers, each with its own tree, copy of the map, players
+ * and random number generator, which run on their own threads if there is more than
+ * one; their counts at the top of the tree are added together. With a playout budget
+ * only, the player's moves depend only on the game's seed and the number of workers.
+ *
+ * Claiming nodes and placing the setup units, and defending, aren't searched; they
+ * follow simple rules of their own.
+ *
+ */
+public class MonteCarloPlayer extends Player {
+
+	// the kinds of decision, kept in the top bits of a move (see move())
+	static final long PLACE = 1L << 56;
+	static final long ATTACK = 2L << 56;
+	static final long STOP = 3L << 56;
+	static final long OCCUPY = 4L << 56;
+	static final long FORTIFY = 5L << 56;
+	static final long STAY = 6L << 56;
+	static final int INDEX = (1 << 28) - 1;
+
+	// the search budget for each decision
+	int playoutBudget = 256;
+	long timeBudget = 0;
+
+	// the number of rounds played after the current one in each playout
+	int horizon = 2;
+
+	// the weight UCB1 gives to trying moves that have had few playouts
+	double exploration = 0.7;
+
+	// the workers and the threads they run on
+	int threads = 1;
+	Worker[] workers = new Worker[0];
+	ExecutorService pool = null;
+
+	// the board the playouts start from, and where in our turn it is
+	BoardState root = new BoardState(0);
+	long phase = PLACE;
+	int placements = 0;
+	int occupyFrom = 0;
+	int occupyTo = 0;
+
+	// the reinforcements left to place this turn, and whether the setup is over
+	int placing = 0;
+	boolean started = false;
+
+	// the moves that can be made on the real board
+	Moves moves = new Moves();
+
+	// search counters, for measuring the search speed
+	long playouts = 0;
+	long searchTime = 0;
+
+	/**
+	 * Default constructor for the Monte Carlo player.
+	 */
+	public MonteCarloPlayer() {
+		super("MonteCarloPlayer");
+	}
+
+	/**
+	 * Extended constructor for the Monte Carlo player.
+	 * @param n Name to give to the player.
+	 */
+	public MonteCarloPlayer(String n) {
+		super(n);
+	}
+
+	/**
+	 * Sets the number of playouts for each decision.
+	 * @param playouts The number of playouts, at least 1.
+	 */
+	public void setPlayoutBudget(int playouts) {
+		playoutBudget = Math.max(1, playouts);
+		return;
+	}
+
+	public int getPlayoutBudget() {
+		return playoutBudget;
+	}
+
+	/**
+	 * Sets the most time each decision can take. The search stops at whichever of the
+	 * playout and time budgets runs out first; a time budget makes the moves depend on
+	 * the speed of the machine.
+	 * @param millis The time in milliseconds, or 0 for no limit.
+	 */
+	public void setTimeBudget(long millis) {
+		timeBudget = Math.max(0, millis);
+		return;
+	}
+
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	/**
+	 * Sets how many rounds are played after the current one in each playout.
+	 * @param rounds The number of rounds.
+	 */
+	public void setHorizon(int rounds) {
+		horizon = Math.max(0, rounds);
+		return;
+	}
+
+	public int getHorizon() {
+		return horizon;
+	}
+
+	/**
+	 * Sets the number of workers playing out moves at once. Each worker gets its own
+	 * thread when there is more than one.
+	 * @param t The number of workers, at least 1.
+	 */
+	public void setThreads(int t) {
+		if (t != threads) {
+			shutdown();
+			threads = Math.max(1, t);
+			workers = new Worker[0];
+		}
+		return;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Stops the worker threads. They are started again if the player searches again.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+		return;
+	}
+
+	/**
+	 * Gets the number of playouts played so far.
+	 * @return The number of playouts.
+	 */
+	public long getPlayouts() {
+		return playouts;
+	}
+
+	/**
+	 * Gets the time spent searching so far.
+	 * @return The time in nanoseconds.
+	 */
+	public long getSearchTime() {
+		return searchTime;
+	}
+
+	/**
+	 * Gets the average search speed so far.
+	 * @return The number of playouts per second of searching.
+	 */
+	public double getPlayoutsPerSecond() {
+		if (searchTime == 0)
+			return 0;
+		return playouts / (searchTime / 1e9);
+	}
+
+	/* (non-Javadoc)
+	 * @see Player#gameStart()
+	 */
+	@Override
+	public void gameStart() {
+		placing = 0;
+		started = false;
+		return;
+	}
+
+	/* (non-Javadoc)
+	 * @see Player#defend(Node, Node, int)
+	 */
+	@Override
+	int defend(Node from, Node to, int num) {
+		// always defend with as many units as possible
+		if (to.getUnits() > 1)
+			return 2;
+		else
+			return 1;
+	}
+
+	/* (non-Javadoc)
+	 * @see Player#occupy(Node, Node)
+	 */
+	@Override
+	int occupy(Node from, Node to) {
+		moves.clear();
+		listOccupations(from, moves);
+		if (moves.size == 1)
+			return index(moves.get(0));
+		occupyFrom = from.getIndex();
+		occupyTo = to.getIndex();
+		return index(search(OCCUPY));
+	}
+
+	/* (non-Javadoc)
+	 * @see Player#place()
+	 */
+	@Override
+	Node place() {
+		// initial placement phase: grow out from the nodes we already have
+		if (graph.getNumOwnedNodes(null) > 0) {
+			Node best = null;
+			int bestScore = -1;
+			NodeSet unowned = graph.getOwnedNodeSet(null);
+			for (int i = unowned.next(0); i >= 0; i = unowned.next(i+1)) {
+				Node node = graph.getNode(i);
+
+				// prefer nodes next to our own, then nodes with more neighbours
+				int owned = 0;
+				for (int adjIndex = 0; adjIndex < graph.getDegree(node); adjIndex++) {
+					if (graph.getAdjNode(node, adjIndex).getOwner() == this)
+						owned++;
+				}
+				int score = owned*8 + graph.getDegree(node);
+				if (score > bestScore) {
+					bestScore = score;
+					best = node;
+				}
+			}
+			return best;
+		}
+
+		// the rest of the setup units go to the most threatened node on the front
+		if (!started)
+			return rulePlace(graph, this);
+
+		// regular placement phase: search each unit, knowing how many are left
+		if (placing <= 0)
+			placing = Math.max(1, graph.getNumOwnedNodes(this)/3);
+		moves.clear();
+		listPlacements(graph, this, moves);
+		placements = placing--;
+		long move = (moves.size == 1) ? moves.get(0) : search(PLACE);
+		return graph.getNode(index(move));
+	}
+
+	/* (non-Javadoc)
+	 * @see Player#turn()
+	 */
+	@Override
+	void turn() {
+		started = true;
+		placing = 0;
+
+		/*
+		 * ATTACK STEP
+		 */
+
+		// keep making the best attack until stopping is the best move
+		while (true) {
+			moves.clear();
+			listAttacks(graph, this, moves);
+			if (moves.size == 1)
+				break;
+			long move = search(ATTACK);
+			if (move == STOP)
+				break;
+			blitz(graph.getNode(from(move)), graph.getNode(index(move)));
+		}
+
+		/*
+		 * FORTIFY STEP
+		 */
+		moves.clear();
+		listFortifies(graph, this, moves);
+		if (moves.size > 1) {
+			long move = search(FORTIFY);
+			if (move != STAY) {
+				Node from = graph.getNode(from(move));
+				fortify(from, graph.getNode(index(move)), from.getUnits()-1);
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Searches the decision at the current point of our turn within the budget.
+	 * @param at The kind of decision: PLACE, ATTACK, OCCUPY or FORTIFY.
+	 * @return The move tried the most at the top of the tree.
+	 */
+	private long search(long at) {
+		long start = System.nanoTime();
+		long deadline = (timeBudget > 0) ? start + timeBudget*1000000 : Long.MAX_VALUE;
+		phase = at;
+
+		// get every worker ready to play out from the current board
+		if (root.getNodeCount() != graph.getNodes().size())
+			root = new BoardState(graph.getNodes().size());
+		graph.copyInto(root);
+		if (workers.length != threads)
+			workers = new Worker[threads];
+		int share = (playoutBudget + threads - 1) / threads;
+		for (int i = 0; i < threads; i++) {
+			if (workers[i] == null)
+				workers[i] = new Worker();
+			workers[i].prepare(random.nextLong(), share, deadline);
+		}
+
+		// play out the moves, on the workers' threads if there are several
+		if (threads == 1)
+			workers[0].call();
+		else {
+			if (pool == null)
+				pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "MonteCarloPlayer worker");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			ArrayList<Worker> tasks = new ArrayList<Worker>(threads);
+			for (Worker worker : workers)
+				tasks.add(worker);
+			try {
+				for (Future<Object> result : pool.invokeAll(tasks))
+					result.get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException e) {
+				throw new RuntimeException("SEARCH ERROR: A playout failed!", e.getCause());
+			}
+		}
+
+		// pick the move tried the most, breaking ties on the average score
+		long best = moves.get(0);
+		long bestVisits = -1;
+		double bestScore = -1;
+		for (int m = 0; m < moves.size; m++) {
+			long move = moves.get(m);
+			long visits = 0;
+			double score = 0;
+			for (Worker worker : workers) {
+				TreeNode child = worker.tree.getChild(move);
+				if (child != null) {
+					visits += child.visits;
+					score += child.score;
+				}
+			}
+			double mean = (visits > 0) ? score/visits : 0;
+			if (visits > bestVisits || (visits == bestVisits && mean > bestScore)) {
+				best = move;
+				bestVisits = visits;
+				bestScore = mean;
+			}
+		}
+		for (Worker worker : workers)
+			playouts += worker.played;
+		searchTime += System.nanoTime() - start;
+		return best;
+	}
+
+	/**
+	 * Packs a decision into a move.
+	 * @param kind The kind of decision.
+	 * @param from The index of the node the move starts from, or 0.
+	 * @param index The index of the node the move goes to, or the number of units.
+	 * @return The move.
+	 */
+	static long move(long kind, int from, int index) {
+		return kind | ((long)from << 28) | index;
+	}
+
+	static int from(long move) {
+		return (int)(move >>> 28) & INDEX;
+	}
+
+	static int index(long move) {
+		return (int)move & INDEX;
+	}
+
+	/**
+	 * Lists the nodes a reinforcement can be searched on: the nodes on our front, or
+	 * every node we own if we have no front.
+	 */
+	static void listPlacements(Graph g, Player p, Moves list) {
+		NodeSet nodes = g.getFrontierNodeSet(p);
+		if (nodes.size() == 0)
+			nodes = g.getOwnedNodeSet(p);
+		for (int i = nodes.next(0); i >= 0; i = nodes.next(i+1))
+			list.add(move(PLACE, 0, i));
+		return;
+	}
+
+	/**
+	 * Lists stopping and the attacks worth searching: against every enemy node next to
+	 * ours (see Graph.getTargetNodeSet), from each of our nodes next to it with no
+	 * fewer attackers than it has defenders.
+	 */
+	static void listAttacks(Graph g, Player p, Moves list) {
+		list.add(STOP);
+		NodeSet targets = g.getTargetNodeSet(p);
+		for (int i = targets.next(0); i >= 0; i = targets.next(i+1)) {
+			Node target = g.getNode(i);
+			for (int adjIndex = 0; adjIndex < g.getDegree(target); adjIndex++) {
+				Node node = g.getAdjNode(target, adjIndex);
+				if (node.getOwner() == p && node.getUnits() > 1 && target.getUnits() < node.getUnits())
+					list.add(move(ATTACK, node.getIndex(), i));
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Lists the numbers of units that can be moved into a captured node: the fewest,
+	 * half and all but one of the units left on the attacking node.
+	 */
+	static void listOccupations(Node from, Moves list) {
+		int units = from.getUnits();
+		list.add(move(OCCUPY, 0, 1));
+		if (units - units/2 > 1 && units - units/2 < units - 1)
+			list.add(move(OCCUPY, 0, units - units/2));
+		if (units - 1 > 1)
+			list.add(move(OCCUPY, 0, units - 1));
+		return;
+	}
+
+	/**
+	 * Lists making no fortify and moving all but one unit of any node without enemy
+	 * neighbours to any of our nodes next to it.
+	 */
+	static void listFortifies(Graph g, Player p, Moves list) {
+		list.add(STAY);
+		NodeSet owned = g.getOwnedNodeSet(p);
+		for (int i = owned.next(0); i >= 0; i = owned.next(i+1)) {
+			Node node = g.getNode(i);
+			if (node.getUnits() <= 1 || g.isFrontier(node))
+				continue;
+			for (int adjIndex = 0; adjIndex < g.getDegree(node); adjIndex++)
+				list.add(move(FORTIFY, i, g.getAdjNode(node, adjIndex).getIndex()));
+		}
+		return;
+	}
+
+	/**
+	 * Our rule for placing a unit: on the most threatened node of the front.
+	 * @return The node to place on.
+	 */
+	Node rulePlace(Graph g, Player p) {
+		Node best = g.getMostThreatenedNode(p, range);
+		NodeSet owned = g.getOwnedNodeSet(p);
+		if (best == null && owned.size() > 0)
+			best = g.getNode(owned.next(0));
+		return best;
+	}
+
+	/**
+	 * Our rule for attacking: the attack most likely to take its target, as long as
+	 * it is more likely than not to.
+	 * @return The attack, or STOP.
+	 */
+	static long ruleAttack(Graph g, Player p) {
+		long best = STOP;
+		double bestChance = 0.5;
+		NodeSet targets = g.getTargetNodeSet(p);
+		for (int i = targets.next(0); i >= 0; i = targets.next(i+1)) {
+			Node target = g.getNode(i);
+			for (int adjIndex = 0; adjIndex < g.getDegree(target); adjIndex++) {
+				Node node = g.getAdjNode(target, adjIndex);
+				if (node.getOwner() == p && node.getUnits() > 1) {
+					double chance = p.getWinProbability(node, target);
+					if (chance > bestChance) {
+						bestChance = chance;
+						best = move(ATTACK, node.getIndex(), i);
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Our rule for occupying: move everything forward if the attacking node is left
+	 * safe, otherwise half.
+	 * @return The number of units to move.
+	 */
+	static int ruleOccupy(Graph g, Node from) {
+		if (g.isFrontier(from))
+			return from.getUnits() - (from.getUnits()/2);
+		else
+			return from.getUnits()-1;
+	}
+
+	/**
+	 * Our rule for fortifying: move the units of the strongest safe node to the most
+	 * threatened node next to it.
+	 * @return The fortify, or STAY.
+	 */
+	long ruleFortify(Graph g, Player p) {
+		Node from = null;
+		int maxUnits = 1;
+		NodeSet owned = g.getOwnedNodeSet(p);
+		for (int i = owned.next(0); i >= 0; i = owned.next(i+1)) {
+			Node node = g.getNode(i);
+			if (node.getUnits() > maxUnits && !g.isFrontier(node)) {
+				maxUnits = node.getUnits();
+				from = node;
+			}
+		}
+		if (from == null)
+			return STAY;
+		Node to = null;
+		int maxThreat = -1;
+		for (int adjIndex = 0; adjIndex < g.getDegree(from); adjIndex++) {
+			Node node = g.getAdjNode(from, adjIndex);
+			if (node.getOwner() == p) {
+				int threat = g.getThreat(range, node);
+				if (threat > maxThreat) {
+					maxThreat = threat;
+					to = node;
+				}
+			}
+		}
+		return (to != null) ? move(FORTIFY, from.getIndex(), to.getIndex()) : STAY;
+	}
+
+	/**
+	 * Makes a fast stand-in to play another player in the playouts.
+	 * @param player The player to stand in for.
+	 * @return A new player of the same kind, or an AggressivePlayer.
+	 */
+	private Player standIn(Player player) {
+		String n = player.getName();
+		if (player instanceof WallPlayer)
+			return new WallPlayer(n);
+		else if (player instanceof DefensivePlayer)
+			return new DefensivePlayer(n);
+		else if (player instanceof BalancedPlayer)
+			return new BalancedPlayer(n);
+		else
+			return new AggressivePlayer(n);
+	}
+
+	/**
+	 * A growable list of moves.
+	 */
+	static class Moves {
+		long[] moves = new long[16];
+		int size = 0;
+
+		void add(long move) {
+			if (size == moves.length)
+				moves = Arrays.copyOf(moves, size*2);
+			moves[size++] = move;
+			return;
+		}
+
+		long get(int i) {
+			return moves[i];
+		}
+
+		void clear() {
+			size = 0;
+			return;
+		}
+	}
+
+	/**
+	 * A node of the search tree: the decision that leads to it, with the number of
+	 * playouts that made it and could have made it and their total score, and the
+	 * decisions tried after it.
+	 */
+	static class TreeNode {
+		long visits = 0;
+		long available = 0;
+		double score = 0;
+		long[] moves = new long[0];
+		TreeNode[] children = new TreeNode[0];
+		int count = 0;
+
+		/**
+		 * Finds the child reached by a move.
+		 * @param move The move.
+		 * @return The child, or null if the move hasn't been tried yet.
+		 */
+		TreeNode getChild(long move) {
+			for (int i = 0; i < count; i++) {
+				if (moves[i] == move)
+					return children[i];
+			}
+			return null;
+		}
+
+		/**
+		 * Adds a child for a move that hasn't been tried yet.
+		 * @param move The move.
+		 * @return The new child.
+		 */
+		TreeNode addChild(long move) {
+			if (count == moves.length) {
+				moves = Arrays.copyOf(moves, Math.max(4, count*2));
+				children = Arrays.copyOf(children, moves.length);
+			}
+			TreeNode child = new TreeNode();
+			moves[count] = move;
+			children[count++] = child;
+			return child;
+		}
+	}
+
+	/**
+	 * The stand-in for this player in the playouts. It plays like a WallPlayer, except
+	 * that during the turn being searched its worker picks how many units it moves
+	 * into the nodes it takes.
+	 */
+	private class Self extends WallPlayer {
+		Worker worker;
+		boolean searching = false;
+
+		Self(String n, Worker w) {
+			super(n);
+			worker = w;
+		}
+
+		/* (non-Javadoc)
+		 * @see WallPlayer#occupy(Node, Node)
+		 */
+		@Override
+		int occupy(Node from, Node to) {
+			if (searching)
+				return index(worker.choose(OCCUPY, from));
+			return super.occupy(from, to);
+		}
+	}
+
+	/**
+	 * A worker grows its own tree on its own copy of the map, with its own stand-ins
+	 * and random number generator.
+	 */
+	private class Worker implements Callable<Object> {
+		Graph board = null;
+		GameRandom dice = new GameRandom(0);
+
+		// the real player each stand-in plays for, and the stand-ins, by slot
+		Player[] players = new Player[0];
+		Player[] standIns = new Player[0];
+		int self = 0;
+		Self me = null;
+
+		// the budget, tree and results of the current search
+		int budget = 0;
+		long deadline = 0;
+		int played = 0;
+		TreeNode tree = new TreeNode();
+
+		// the tree nodes the current playout went through, and whether it is still in the tree
+		TreeNode[] path = new TreeNode[16];
+		int depth = 0;
+		boolean inTree = false;
+		Moves choices = new Moves();
+
+		/**
+		 * Gets the worker ready to search from the current board.
+		 * @param seed The seed for the worker's random number generator.
+		 * @param playouts The worker's share of the playouts.
+		 * @param end The time to stop at, as System.nanoTime().
+		 */
+		void prepare(long seed, int playouts, long end) {
+			if (board == null || board.getNodes().size() != graph.getNodes().size())
+				board = graph.copyMap();
+			dice.setSeed(seed);
+			budget = playouts;
+			deadline = end;
+			played = 0;
+			tree = new TreeNode();
+
+			// make new stand-ins if the players have changed
+			int slots = graph.getNumSlots();
+			boolean changed = (players.length != slots);
+			for (int slot = 1; !changed && slot < slots; slot++)
+				changed = (players[slot] != graph.getSlotPlayer(slot));
+			if (changed) {
+				players = new Player[slots];
+				standIns = new Player[slots];
+				for (int slot = 1; slot < slots; slot++) {
+					players[slot] = graph.getSlotPlayer(slot);
+					if (players[slot] == MonteCarloPlayer.this)
+						standIns[slot] = new Self(players[slot].getName(), this);
+					else
+						standIns[slot] = standIn(players[slot]);
+					standIns[slot].setGraph(board);
+					standIns[slot].setRandom(dice);
+					standIns[slot].setBlitz(true);
+				}
+			}
+			self = graph.getPlayerSlot(MonteCarloPlayer.this);
+			me = (Self)standIns[self];
+
+			// give the stand-ins the same slots as the real players
+			board.restore();
+			for (int slot = 1; slot < slots; slot++)
+				board.getPlayerSlot(standIns[slot]);
+			return;
+		}
+
+		/**
+		 * Plays out until the budget runs out, growing the tree by one node each time.
+		 */
+		public Object call() {
+			while (played < budget && System.nanoTime() < deadline) {
+				double score = playOut();
+				for (int i = 0; i < depth; i++) {
+					path[i].visits++;
+					path[i].score += score;
+				}
+				played++;
+			}
+			return null;
+		}
+
+		/**
+		 * Plays out the rest of our turn from the root board, down the tree and then by
+		 * our rules, and then the rest of the round and the horizon.
+		 * @return The score of the position reached, from 0 to 1.
+		 */
+		private double playOut() {
+			board.restore(root);
+			depth = 0;
+			push(tree);
+			inTree = true;
+			me.searching = true;
+
+			// finish the capture the search started in
+			if (phase == OCCUPY) {
+				Node from = board.getNode(occupyFrom);
+				Node to = board.getNode(occupyTo);
+				int move = index(choose(OCCUPY, from));
+				to.setUnits(0);
+				board.moveUnits(from, to, move);
+			}
+
+			// place the reinforcements left
+			if (phase == PLACE) {
+				for (int i = 0; i < placements; i++)
+					board.placeUnit(board.getNode(index(choose(PLACE, null))), me);
+			}
+
+			// attack until stopping, then fortify
+			if (phase != FORTIFY) {
+				while (!me.hasLost()) {
+					long move = choose(ATTACK, null);
+					if (move == STOP)
+						break;
+					me.blitz(board.getNode(from(move)), board.getNode(index(move)));
+				}
+			}
+			long move = choose(FORTIFY, null);
+			if (move != STAY) {
+				Node from = board.getNode(from(move));
+				me.fortify(from, board.getNode(index(move)), from.getUnits()-1);
+			}
+			me.searching = false;
+
+			// let the players after us finish the round
+			for (int slot = self + 1; slot < standIns.length; slot++)
+				playTurn(standIns[slot]);
+
+			// play the next rounds, stopping early if the game is decided
+			for (int round = 0; round < horizon && !me.hasLost() && alive() > 1; round++) {
+				for (int slot = 1; slot < standIns.length; slot++)
+					playTurn(standIns[slot]);
+			}
+
+			return score();
+		}
+
+		/**
+		 * Makes one of our decisions in a playout. In the tree, a decision that hasn't
+		 * been tried from here is tried and added to the tree, ending the playout's walk
+		 * down it; if every one has been, the one with the best upper confidence bound
+		 * is taken. Past the tree, our rules decide.
+		 * @param kind The kind of decision: PLACE, ATTACK, OCCUPY or FORTIFY.
+		 * @param from The attacking node, for OCCUPY.
+		 * @return The move.
+		 */
+		long choose(long kind, Node from) {
+			if (!inTree) {
+				if (kind == PLACE)
+					return move(PLACE, 0, rulePlace(board, me).getIndex());
+				else if (kind == ATTACK)
+					return ruleAttack(board, me);
+				else if (kind == OCCUPY)
+					return move(OCCUPY, 0, ruleOccupy(board, from));
+				else
+					return ruleFortify(board, me);
+			}
+
+			choices.clear();
+			if (kind == PLACE)
+				listPlacements(board, me, choices);
+			else if (kind == ATTACK)
+				listAttacks(board, me, choices);
+			else if (kind == OCCUPY)
+				listOccupations(from, choices);
+			else
+				listFortifies(board, me, choices);
+			TreeNode parent = path[depth-1];
+
+			// a forced move doesn't use up the playout's one new node
+			if (choices.size == 1) {
+				long move = choices.get(0);
+				TreeNode child = parent.getChild(move);
+				if (child == null)
+					child = parent.addChild(move);
+				child.available++;
+				push(child);
+				return move;
+			}
+
+			// try a move that hasn't been tried from here yet
+			for (int i = 0; i < choices.size; i++) {
+				long move = choices.get(i);
+				if (parent.getChild(move) == null) {
+					TreeNode child = parent.addChild(move);
+					child.available++;
+					push(child);
+					inTree = false;
+					return move;
+				}
+			}
+
+			// otherwise take the best upper confidence bound among the moves we can make
+			long best = choices.get(0);
+			TreeNode bestChild = null;
+			double bestBound = -1;
+			for (int i = 0; i < choices.size; i++) {
+				TreeNode child = parent.getChild(choices.get(i));
+				child.available++;
+				double bound = child.score/child.visits
+						+ exploration*Math.sqrt(Math.log(child.available)/child.visits);
+				if (bound > bestBound) {
+					bestBound = bound;
+					best = choices.get(i);
+					bestChild = child;
+				}
+			}
+			push(bestChild);
+			return best;
+		}
+
+		/**
+		 * Adds a tree node to the current playout's path.
+		 */
+		private void push(TreeNode node) {
+			if (depth == path.length)
+				path = Arrays.copyOf(path, depth*2);
+			path[depth++] = node;
+			return;
+		}
+
+		/**
+		 * Plays one turn for a stand-in, like Game.runGame does.
+		 */
+		private void playTurn(Player player) {
+			if (player.hasLost())
+				return;
+			int newUnits = board.getNumOwnedNodes(player)/3;
+			for (int i = 0; i < newUnits; i++)
+				board.placeUnit(player.place(), player);
+			player.turn();
+			return;
+		}
+
+		/**
+		 * Counts the players still in the playout.
+		 */
+		private int alive() {
+			int count = 0;
+			for (int slot = 1; slot < standIns.length; slot++) {
+				if (!standIns[slot].hasLost())
+					count++;
+			}
+			return count;
+		}
+
+		/**
+		 * Scores a position: 1 for a win, 0 for a loss, otherwise the average of our
+		 * share of the nodes and our share of the units.
+		 */
+		private double score() {
+			if (me.hasLost())
+				return 0;
+			if (alive() == 1)
+				return 1;
+			int[] owners = board.getOwnerSlots();
+			int[] units = board.getUnitCounts();
+			int count = board.getNodes().size();
+			long ours = 0;
+			long total = 0;
+			for (int i = 0; i < count; i++) {
+				total += units[i];
+				if (owners[i] == self)
+					ours += units[i];
+			}
+			double nodeShare = board.getNumOwnedNodes(me) / (double)count;
+			double unitShare = (total > 0) ? ours / (double)total : 0;
+			return 0.5*nodeShare + 0.5*unitShare;
+		}
+	}
+}
@@ -13,7 +13,8 @@ public class Node {
 		Player owner = null;
 		int units = 0;
 		ArrayList<Node> adjacent = new ArrayList<Node>(0);
-		boolean checked = false;
+		int index = -1;
+		Graph graph = null;
 	
 	/*
 	 *	CONSTRUCTORS 
@@ -24,6 +25,17 @@ public class Node {
 	 */
 	public Node() {	}
 	
+	/**
+	 * Constructor for the Node class that places the node in a graph. The graph
+	 * is told whenever the node changes hands, so it can keep its indexes up to date.
+	 * @param g The graph the node belongs to.
+	 * @param i The index of the node within the graph.
+	 */
+	public Node(Graph g, int i) {
+		graph = g;
+		index = i;
+	}
+	
 	/*
 	 * 	ACCESSORS
 	 */
@@ -48,17 +60,37 @@ public class Node {
 	 * @return The ArrayList containing the adjacent nodes.
 	 */
 	public ArrayList<Node> getAdj() {
+		Profiler profiler = (graph != null) ? graph.getProfiler() : null;
+		if (profiler != null)
+			profiler.count(Profiler.Counter.ADJACENCY_COPIES, 1);
 		return new ArrayList<Node>(adjacent);
 	}
 	
 	/**
-	 * Gets if the node has been checked.
-	 * @return Boolean indicating if the node has been checked yet.
+	 * Returns the number of adjacent nodes, without copying them.
+	 * @return The number of adjacent nodes.
 	 */
-	public boolean getChecked() {
-		return checked;
+	public int getDegree() {
+		return adjacent.size();
 	}
-
+	
+	/**
+	 * Returns the index of one of the adjacent nodes.
+	 * @param n Which adjacent node to get, in the order they were linked.
+	 * @return The index of the adjacent node.
+	 */
+	public int getAdjIndex(int n) {
+		return adjacent.get(n).getIndex();
+	}
+	
+	/**
+	 * Returns the index of this node within its graph.
+	 * @return The index of the node, or -1 if it doesn't belong to a graph.
+	 */
+	public int getIndex() {
+		return index;
+	}
+	
 	/*
 	 * 	MUTATORS
 	 */
@@ -67,6 +99,8 @@ public class Node {
 	 * @param player The new owner.
 	 */
 	public void setOwner(Player player) {
+		if (graph != null && player != owner)
+			graph.ownerChanged(this, owner, player);
 		owner = player;
 		return;
 	}
@@ -76,7 +110,10 @@ public class Node {
 	 * @param u Integer number of units to set the node to have.
 	 */
 	public void setUnits(int u) {
+		boolean changed = (u != units);
 		units = u;
+		if (graph != null && changed)
+			graph.unitsChanged(this);
 		return;
 	}
 	
@@ -86,6 +123,8 @@ public class Node {
 	 */
 	public void addUnits(int add) {
 		units += add;
+		if (graph != null && add != 0)
+			graph.unitsChanged(this);
 		return;
 	}
 
@@ -97,170 +136,4 @@ public class Node {
 		adjacent.add(node);
 		return;
 	}
-	
-	/**
-	 * Sets the checked boolean.
-	 * @param b What to set checked to.
-	 */
-	public void setChecked(boolean b) {
-		checked = b;
-	}
-	
-	/*
-	 * 	UTILITY
-	 */
-	 
-	/**
-	 * Generates an integer value representing the threat to this node. The value is based on the
-	 * relative distance of and number of units within other players' nodes. An individual node's
-	 * contribution to the threat level is given by (number of units) * (range at node).
-	 * @param range Integer representing how much further out to check.
-	 * @param player The calling node's owner.
-	 * @return An integer representing the threat to the node.
-	 */
-	public int getThreat(int range, Player player) {
-		// indicate that this node has been checked
-		setChecked(true);
-		
-		// create variable to store this node's accumulated threat
-		int threat = 0;
-		
-		// range determines distance to check, so end this feeler if it's gone too far
-		if (range >= 1) {
-			// because the range diminishes over distance, it multiplies instead of adds
-			threat += getUnits() * range;
-			
-			if (range > 1) {
-				// get the adjacent nodes
-				ArrayList<Node> uncheckedEnemyAdj = getAdj();
-				
-				// prune owned or checked adjacent nodes
-				int index = 0;
-				while (index < uncheckedEnemyAdj.size()) {
-					if (uncheckedEnemyAdj.get(index).getOwner() == getOwner() || uncheckedEnemyAdj.get(index).getChecked())
-						uncheckedEnemyAdj.remove(index);
-					else
-						index++;
-				}
-				// iterate through the adjacent nodes
-				for (Node node : uncheckedEnemyAdj) {
-					// get the node's threat level if:
-					// - it is not owned by this player
-					// - it has not already been checked
-					if (!node.getChecked())
-						threat += node.getThreat(range-1, player);
-				}
-			}
-		}
-		
-		// return this node's branching threat
-		return threat;
-	}
-	
-	/**
-	 * Initial getThreat call that automatically fills out values.
-	 * Should only be called through the graph containing the nodes!
-	 * @param range Integer representing how many nodes out to check.
-	 * @return An integer representing the threat to the node.
-	 */
-	public int getThreat(int range) {
-		setChecked(true);
-		int threat = 0;
-		
-		// get the adjacent nodes
-		ArrayList<Node> uncheckedEnemyAdj = getAdj();
-		
-		// prune owned or checked adjacent nodes
-		int index = 0;
-		while (index < uncheckedEnemyAdj.size()) {
-			if (uncheckedEnemyAdj.get(index).getOwner() == getOwner() || uncheckedEnemyAdj.get(index).getChecked())
-				uncheckedEnemyAdj.remove(index);
-			else
-				index++;
-		}
-		
-		for (Node node : uncheckedEnemyAdj) {
-			// get the node's threat level if:
-			// - it is not owned by this player
-			// - it has not already been checked
-			if (!node.getChecked())
-				threat += node.getThreat(range, getOwner());
-		}
-		return threat;
-	}
-	
-	/**
-	 * Generates an integer value representing the adjacency threat to this node. The value is
-	 * based on the the relative distance of nodes not belonging to the node's player. An
-	 * individual node's contribution to  the threat level is based on its range from the
-	 * original calling node.
-	 * @param range Integer representing how much further out to check.
-	 * @param player The calling node's owner.
-	 * @return An integer representing the threat to the node.
-	 */
-	public int getAdjThreat(int range, Player player) {
-		// indicate that this node has been checked
-		setChecked(true);
-		
-		// create variable to store this node's accumulated threat
-		int threat = 0;
-		
-		// range determines distance to check, so end this feeler if it's gone too far
-		if (range >= 1) {
-			// because the range diminishes over distance, add it to give closer nodes more weight
-			threat += range;
-			
-			if (range > 1) {
-				ArrayList<Node> uncheckedEnemyAdj = new ArrayList<Node>(getAdj());
-				
-				int index = 0;
-				while (index < uncheckedEnemyAdj.size()) {
-					if (uncheckedEnemyAdj.get(index).getOwner() == getOwner() || uncheckedEnemyAdj.get(index).getChecked())
-						uncheckedEnemyAdj.remove(index);
-					else
-						index++;
-				}
-				// iterate through the adjacent nodes
-				for (Node node : uncheckedEnemyAdj) {
-					// get the node's threat level if:
-					// - it is not owned by this player
-					// - it has not already been checked
-					if (!node.getChecked())
-						threat += node.getAdjThreat(range-1, player);
-				}
-			}
-		}
-		
-		// return this node's branching threat
-		return threat;
-	}
-	
-	/**
-	 * Initial getAdjacencyThreat call that automatically fills out values.
-	 * Should only be called through the graph containing the node! 
-	 * @param range Integer representing how much further out to check.
-	 * @return An integer representing the threat to the node.
-	 */
-	public int getAdjThreat(int range) {
-		setChecked(true);
-		int threat = 0;
-		ArrayList<Node> uncheckedEnemyAdj = new ArrayList<Node>(getAdj());
-		
-		int index = 0;
-		while (index < uncheckedEnemyAdj.size()) {
-			if (uncheckedEnemyAdj.get(index).getOwner() == getOwner() || uncheckedEnemyAdj.get(index).getChecked())
-				uncheckedEnemyAdj.remove(index);
-			else
-				index++;
-		}
-		
-		for (Node node : uncheckedEnemyAdj) {
-			// get the node's threat level if:
-			// - it is not owned by this player
-			// - it has not already been checked
-			if (!node.getChecked())
-				threat += node.getAdjThreat(range, getOwner());
-		}
-		return threat;
-	}
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+/**
+ * The NodeHeap class is an indexed binary heap of node indexes, each with an int key.
+ * The node with the highest key (or the lowest, for an ascending heap) is on top, and
+ * ties go to the node with the lower index. Every node's place in the heap is kept, so
+ * adding, removing and changing the key of any node take O(log n) time and looking at
+ * the top takes constant time.
+ *
+ */
+public class NodeHeap {
+
+	private
+		boolean descending;
+		int[] heap;
+		int[] positions;
+		int[] keys;
+		int size = 0;
+
+	/**
+	 * Constructor for the NodeHeap class.
+	 * @param capacity The number of node indexes the heap should have room for.
+	 * @param descending True to put the highest key on top, false for the lowest.
+	 */
+	public NodeHeap(int capacity, boolean descending) {
+		this.descending = descending;
+		heap = new int[capacity];
+		positions = new int[capacity];
+		keys = new int[capacity];
+		for (int i = 0; i < capacity; i++)
+			positions[i] = -1;
+	}
+
+	/**
+	 * Gets the number of nodes in the heap.
+	 * @return The number of nodes.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if a node is in the heap.
+	 * @param node The index of the node.
+	 * @return True if the node is in the heap, false if it isn't.
+	 */
+	public boolean contains(int node) {
+		return positions[node] >= 0;
+	}
+
+	/**
+	 * Gets the key of a node in the heap.
+	 * @param node The index of the node.
+	 * @return The node's key.
+	 */
+	public int getKey(int node) {
+		return keys[node];
+	}
+
+	/**
+	 * Gets the node on top of the heap, without removing it.
+	 * @return The index of the node, or -1 if the heap is empty.
+	 */
+	public int peek() {
+		return (size > 0) ? heap[0] : -1;
+	}
+
+	/**
+	 * Adds a node to the heap, or changes its key if it is already there.
+	 * @param node The index of the node.
+	 * @param key The node's key.
+	 */
+	public void put(int node, int key) {
+		if (positions[node] >= 0) {
+			int old = keys[node];
+			keys[node] = key;
+			if (key != old)
+				siftUp(siftDown(positions[node]));
+			return;
+		}
+		keys[node] = key;
+		heap[size] = node;
+		positions[node] = size;
+		siftUp(size++);
+		return;
+	}
+
+	/**
+	 * Removes a node from the heap.
+	 * @param node The index of the node.
+	 * @return True if the node was removed, false if it wasn't in the heap.
+	 */
+	public boolean remove(int node) {
+		int position = positions[node];
+		if (position < 0)
+			return false;
+		positions[node] = -1;
+		size--;
+		if (position < size) {
+			// fill the hole with the last node and move it to where it belongs
+			heap[position] = heap[size];
+			positions[heap[position]] = position;
+			siftUp(siftDown(position));
+		}
+		return true;
+	}
+
+	/**
+	 * Removes every node from the heap.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++)
+			positions[heap[i]] = -1;
+		size = 0;
+		return;
+	}
+
+	/**
+	 * Lists the nodes in the heap in order, top first, leaving the heap as it is. This
+	 * sorts a copy of the heap, so it takes O(n log n) time.
+	 * @return The indexes of the nodes.
+	 */
+	public int[] toSortedArray() {
+		int[] sorted = new int[size];
+		System.arraycopy(heap, 0, sorted, 0, size);
+
+		// heap sort the copy, moving the top to the end each time and then reversing
+		for (int end = size - 1; end > 0; end--) {
+			int top = sorted[0];
+			sorted[0] = sorted[end];
+			sorted[end] = top;
+			for (int i = 0, child; (child = 2*i + 1) < end; i = child) {
+				if (child + 1 < end && before(sorted[child+1], sorted[child]))
+					child++;
+				if (!before(sorted[child], sorted[i]))
+					break;
+				int node = sorted[i];
+				sorted[i] = sorted[child];
+				sorted[child] = node;
+			}
+		}
+		for (int i = 0, j = size - 1; i < j; i++, j--) {
+			int node = sorted[i];
+			sorted[i] = sorted[j];
+			sorted[j] = node;
+		}
+		return sorted;
+	}
+
+	/**
+	 * Checks if one node belongs above another.
+	 */
+	private boolean before(int a, int b) {
+		if (keys[a] != keys[b])
+			return descending ? keys[a] > keys[b] : keys[a] < keys[b];
+		return a < b;
+	}
+
+	private int siftUp(int position) {
+		int node = heap[position];
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (!before(node, heap[parent]))
+				break;
+			heap[position] = heap[parent];
+			positions[heap[position]] = position;
+			position = parent;
+		}
+		heap[position] = node;
+		positions[node] = position;
+		return position;
+	}
+
+	private int siftDown(int position) {
+		int node = heap[position];
+		for (int child; (child = 2*position + 1) < size; position = child) {
+			if (child + 1 < size && before(heap[child+1], heap[child]))
+				child++;
+			if (!before(heap[child], node))
+				break;
+			heap[position] = heap[child];
+			positions[heap[position]] = position;
+		}
+		heap[position] = node;
+		positions[node] = position;
+		return position;
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * The NodeSet class is a set of node indexes stored as a bitset, with a running count.
+ * Adding, removing and counting take constant time, and the members can be visited in
+ * index order without allocating anything:
+ *
+ * for (int i = set.next(0); i >= 0; i = set.next(i+1)) { ... }
+ *
+ */
+public class NodeSet {
+
+	private
+		long[] words;
+		int size = 0;
+
+	/**
+	 * Constructor for the NodeSet class.
+	 * @param capacity The number of node indexes the set should have room for.
+	 */
+	public NodeSet(int capacity) {
+		words = new long[Math.max((capacity + 63) >>> 6, 1)];
+	}
+
+	/**
+	 * Gets the number of nodes in the set.
+	 * @return The number of nodes.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if a node is in the set.
+	 * @param index The index of the node.
+	 * @return True if the node is in the set, false if it isn't.
+	 */
+	public boolean contains(int index) {
+		int word = index >>> 6;
+		return word < words.length && (words[word] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Adds a node to the set.
+	 * @param index The index of the node.
+	 * @return True if the node was added, false if it was already in the set.
+	 */
+	public boolean add(int index) {
+		int word = index >>> 6;
+
+		// make room if the graph has grown
+		if (word >= words.length) {
+			long[] newWords = new long[Math.max(word + 1, words.length * 2)];
+			System.arraycopy(words, 0, newWords, 0, words.length);
+			words = newWords;
+		}
+
+		long bit = 1L << index;
+		if ((words[word] & bit) != 0)
+			return false;
+		words[word] |= bit;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Removes a node from the set.
+	 * @param index The index of the node.
+	 * @return True if the node was removed, false if it wasn't in the set.
+	 */
+	public boolean remove(int index) {
+		if (!contains(index))
+			return false;
+		words[index >>> 6] &= ~(1L << index);
+		size--;
+		return true;
+	}
+
+	/**
+	 * Replaces the members of the set with the nodes in a mask, bit i standing for node
+	 * i. Only the first 64 nodes can be set this way.
+	 * @param mask The mask of the new members.
+	 */
+	void setMask(long mask) {
+		words[0] = mask;
+		for (int i = 1; i < words.length; i++)
+			words[i] = 0;
+		size = Long.bitCount(mask);
+		return;
+	}
+
+	/**
+	 * Removes every node from the set.
+	 */
+	public void clear() {
+		for (int i = 0; i < words.length; i++)
+			words[i] = 0;
+		size = 0;
+		return;
+	}
+
+	/**
+	 * Finds the first node in the set with an index of at least the given index.
+	 * @param from The index to start looking at.
+	 * @return The index of the node, or -1 if there are no more nodes.
+	 */
+	public int next(int from) {
+		int word = from >>> 6;
+		if (word >= words.length)
+			return -1;
+
+		// ignore the bits below the starting index
+		long bits = words[word] & (-1L << from);
+		while (true) {
+			if (bits != 0)
+				return (word << 6) + Long.numberOfTrailingZeros(bits);
+			word++;
+			if (word >= words.length)
+				return -1;
+			bits = words[word];
+		}
+	}
+}
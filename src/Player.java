@@ -1,5 +1,4 @@
-import java.util.HashMap;
-import java.util.Random;
+import java.util.ArrayList;
 import java.util.Arrays;
 
 /**
@@ -14,7 +13,11 @@ public abstract class Player {
 		Graph graph = null;
 		String name = "Default";
 		int range = 2;
-		HashMap<String, Object> telemetry = new HashMap<String, Object>(0);
+		Telemetry telemetry = new Telemetry();
+		GameRandom random = new GameRandom();
+		boolean blitzing = false;
+		int[] blitzResult = new int[3];
+		ActionLog log = null;
 	
 	/**
 	 * Zero argument constructor for the Player class. 
@@ -33,25 +36,49 @@ public abstract class Player {
 	}
 	
 	public void setupTelemetry() {
-		telemetry.put("ATTACKS", 0);
-		telemetry.put("NODES_WON", 0);
-		telemetry.put("NODES_LOST", 0);
-		telemetry.put("PLAYERS_KILLED", 0);
-		telemetry.put("UNITS_KILLED", 0);
-		telemetry.put("UNITS_LOST", 0);
-		telemetry.put("TURNS", 0);
-		telemetry.put("GAMES_WON", 0);
-		telemetry.put("GAMES_LOST", 0);
+		telemetry.clear();
 	}
 	
 	
 	/**
-	 * Gets the telemetry data associated with a certain key.
+	 * Gets the telemetry data associated with a certain key. Kept for older code;
+	 * get(Stat) is faster and doesn't overflow.
 	 * @param key The key to get the data associated with.
-	 * @return The integer associated with the key.
+	 * @return The integer associated with the key, or 0 if there's no such key.
+	 * @throws ArithmeticException If the counter has grown past what an int can hold.
 	 */
 	public int get(String key) {
-		return (int)(telemetry.get(key));
+		Stat stat = Stat.forKey(key);
+		if (stat == null)
+			return 0;
+		return Math.toIntExact(telemetry.get(stat));
+	}
+	
+	/**
+	 * Gets a telemetry counter.
+	 * @param stat The counter to get.
+	 * @return The value of the counter.
+	 */
+	public long get(Stat stat) {
+		return telemetry.get(stat);
+	}
+	
+	/**
+	 * Adds to a telemetry counter.
+	 * @param stat The counter to add to.
+	 * @param amount The amount to add.
+	 */
+	public void add(Stat stat, long amount) {
+		telemetry.add(stat, amount);
+		return;
+	}
+	
+	/**
+	 * Gets the player's telemetry counters.
+	 * @return The Telemetry.
+	 */
+	public Telemetry getTelemetry() {
+		return telemetry;
 	}
 	
 	/* (non-Javadoc)
@@ -59,55 +86,55 @@ public abstract class Player {
 	 */
 	public String toString() {
 		String out = "";
-		double totalGames = get("GAMES_WON") + get("GAMES_LOST");
-		double turns = (double)(get("TURNS"));
+		double totalGames = get(Stat.GAMES_WON) + get(Stat.GAMES_LOST);
+		double turns = (double)(get(Stat.TURNS));
 		
-		double num = (get("ATTACKS")/turns);
+		double num = (get(Stat.ATTACKS)/turns);
 		num *= 100;
 		int n = (int)(num);
 		out += "   Attacks per turn: " + (n/100.0) + "\n";
 		
-		num = (get("NODES_WON")/totalGames);
+		num = (get(Stat.NODES_WON)/totalGames);
 		num *= 100;
 		n = (int)(num);
 		out += "   Nodes won (game): " + (n/100.0) + "\n";
 		
-		num = (get("NODES_WON")/turns);
+		num = (get(Stat.NODES_WON)/turns);
 		num *= 100;
 		n = (int)(num);
 		out += "   Nodes won (turn): " + (n/100.0) + "\n";
 		
-		num = (get("NODES_LOST")/totalGames);
+		num = (get(Stat.NODES_LOST)/totalGames);
 		num *= 100;
 		n = (int)(num);
 		out += "  Nodes lost (game): " + (n/100.0) + "\n";
 		
-		num = (get("NODES_LOST")/turns);
+		num = (get(Stat.NODES_LOST)/turns);
 		num *= 100;
 		n = (int)(num);
 		out += "  Nodes lost (turn): " + (n/100.0) + "\n";
 		
-		num = (get("PLAYERS_KILLED")/totalGames);
+		num = (get(Stat.PLAYERS_KILLED)/totalGames);
 		num *= 100;
 		n = (int)(num);
 		out += "     Players killed: " + (n/100.0) + "\n";
 		
-		num = (get("UNITS_KILLED")/turns);
+		num = (get(Stat.UNITS_KILLED)/turns);
 		num *= 100;
 		n = (int)(num);
 		out += "       Units killed: " + (n/100.0) + "\n";
 		
-		num = (get("UNITS_LOST")/turns);
+		num = (get(Stat.UNITS_LOST)/turns);
 		num *= 100;
 		n = (int)(num);
 		out += "         Units lost: " + (n/100.0) + "\n";
 		
-		num = (get("TURNS")/totalGames);
+		num = (get(Stat.TURNS)/totalGames);
 		num *= 100;
 		n = (int)(num);
 		out += "     Turns survived: " + (n/100.0) + "\n";
 		
-		num = (get("GAMES_WON")/totalGames);
+		num = (get(Stat.GAMES_WON)/totalGames);
 		num *= 100;
 		n = (int)(num);
 		out += "     Win percentage: " + (n/100.0) + "\n";
@@ -151,6 +178,34 @@ public abstract class Player {
 		return;
 	}
 	
+	/**
+	 * Sets the random number generator used by the player and its dice. The game
+	 * shares its own generator with every player it is given.
+	 * @param r The random number generator.
+	 */
+	public void setRandom(GameRandom r) {
+		random = r;
+		return;
+	}
+	
+	/**
+	 * Sets the log the player's moves are recorded to. The game shares its log with
+	 * every player it is given.
+	 * @param l The ActionLog, or null to not record moves.
+	 */
+	public void setActionLog(ActionLog l) {
+		log = l;
+		return;
+	}
+	
+	/**
+	 * Gets the player's random number generator.
+	 * @return The GameRandom.
+	 */
+	public GameRandom getRandom() {
+		return random;
+	}
+	
 	/**
 	 * Allows telemetry data to be set.
 	 * @param index Integer index of the data to set.
@@ -158,11 +213,21 @@ public abstract class Player {
 	 */
 	public void set(String key, int value) {
 		// don't add new values if a bad one is given!
-		if (telemetry.containsKey(key))
-			telemetry.put(key, value);
+		Stat stat = Stat.forKey(key);
+		if (stat != null)
+			telemetry.set(stat, value);
 		return;
 	}
 	
+	/**
+	 * Adds another player's telemetry to this player's telemetry.
+	 * @param other The player whose telemetry should be merged in.
+	 */
+	public void mergeTelemetry(Player other) {
+		telemetry.merge(other.telemetry);
+		return;
+	}
+
 	/**
 	 * Outputs an error message to the console.
 	 * @param error A string containing the error message, or null for no message.
@@ -216,7 +281,7 @@ public abstract class Player {
 		else if (num < 0)
 			showError("ATTACK ERROR: Tried to attack with a negative number of units!");
 		// nodes aren't adjacent
-		else if (from.getAdj().contains(to) == false)
+		else if (graph.isAdjacent(from, to) == false)
 			showError("ATTACK ERROR: Tried to attack a non-adjacent node!");
 		// no errors - request that the defender defend
 		else {
@@ -233,32 +298,9 @@ public abstract class Player {
 			else if (defense < 0)
 				showError("DEFEND ERROR: Tried to defend with a negative number of units!");
 			else {
-				// create the RNG for rolling dice
-				Random rand = new Random();
-				
-				// generate rolls
-				int[] defendRolls = new int[defense];
-				int[] attackRolls = new int[num];
-				for (int i = 0; i < defense; i++) {
-					defendRolls[i] = rand.nextInt(6);
-				}
-				Arrays.sort(defendRolls);
-				for (int i = 0; i < num; i++) {
-					attackRolls[i] = rand.nextInt(6);
-				}
-				Arrays.sort(attackRolls);
-				
-				// compare rolls
-				int attackerWins = 0;
-				int defenderWins = 0;
-				
-				for (int i = 0; i < Math.min(defense, num); i++) {
-					// on a tie, defender wins
-					if (attackRolls[i] > defendRolls[i])
-						attackerWins++;
-					else
-						defenderWins++;
-				}
+				// roll the dice
+				int attackerWins = Dice.roll(random, num, defense);
+				int defenderWins = Math.min(defense, num) - attackerWins;
 				
 				// see if the attacker won
 				if (to.getUnits() - attackerWins <= 0) {
@@ -287,31 +329,37 @@ public abstract class Player {
 						showError("OCCUPY ERROR: Tried to move a negative number of units!");
 					// no errors - exchange ownership and units
 					else {
-						set("ATTACKS", get("ATTACKS") + 1);
-						set("NODES_WON", get("NODES_WON") + 1);
-						set("UNITS_KILLED", get("UNITS_KILLED") + attackerWins);
-						set("UNITS_LOST", get("UNITS_LOST") + defenderWins);
-						to.getOwner().set("NODES_LOST", to.getOwner().get("NODES_LOST") + 1);
-						to.getOwner().set("UNITS_KILLED", to.getOwner().get("UNITS_KILLED") + defenderWins);
-						to.getOwner().set("UNITS_LOST", to.getOwner().get("UNITS_LOST") + attackerWins);
+						add(Stat.ATTACKS, 1);
+						add(Stat.NODES_WON, 1);
+						add(Stat.UNITS_KILLED, attackerWins);
+						add(Stat.UNITS_LOST, defenderWins);
+						to.getOwner().add(Stat.NODES_LOST, 1);
+						to.getOwner().add(Stat.UNITS_KILLED, defenderWins);
+						to.getOwner().add(Stat.UNITS_LOST, attackerWins);
 						if (graph.getNumOwnedNodes(to.getOwner()) == 1)
-							set("PLAYERS_KILLED", get("PLAYERS_KILLED") + 1);
+							add(Stat.PLAYERS_KILLED, 1);
 						to.setOwner(this);
 						to.setUnits(0);
 						from.addUnits(-defenderWins);
 						graph.moveUnits(from, to, move);
+						if (log != null) {
+							log.attack(this, from, to, defenderWins, attackerWins);
+							log.occupy(this, from, to, move);
+						}
 						error = false;
 					}
 				}
 				// otherwise, just process unit losses
 				else {
-					set("ATTACKS", get("ATTACKS") + 1);
-					set("UNITS_KILLED", get("UNITS_KILLED") + attackerWins);
-					set("UNITS_LOST", get("UNITS_LOST") + defenderWins);
-					to.getOwner().set("UNITS_KILLED", to.getOwner().get("UNITS_KILLED") + defenderWins);
-					to.getOwner().set("UNITS_LOST", to.getOwner().get("UNITS_LOST") + attackerWins);
+					add(Stat.ATTACKS, 1);
+					add(Stat.UNITS_KILLED, attackerWins);
+					add(Stat.UNITS_LOST, defenderWins);
+					to.getOwner().add(Stat.UNITS_KILLED, defenderWins);
+					to.getOwner().add(Stat.UNITS_LOST, attackerWins);
 					from.addUnits(-defenderWins);
 					to.addUnits(-attackerWins);
+					if (log != null)
+						log.attack(this, from, to, defenderWins, attackerWins);
 					error = false;
 				}
 			}
@@ -319,6 +367,139 @@ public abstract class Player {
 		return error;
 	}
 	
+	/**
+	 * Attacks a node over and over, with as many dice as possible, until it falls or
+	 * the attacking node is down to one unit, all in one step (see Blitz). Does the
+	 * same as calling attack() in a loop, except that the defender's defend() isn't
+	 * asked; it always defends with as many dice as it can. occupy() is called once
+	 * if the node falls. Returns a boolean indicating if there was an error.
+	 * @param from The node the attack is originating from.
+	 * @param to The node the attack is being made towards.
+	 * @return True if there was an error, false if there wasn't.
+	 */
+	public boolean blitz(Node from, Node to) {
+		boolean error = true;
+		// from node is null
+		if (from == null)
+			showError("BLITZ ERROR: Tried to attack from null instead of a node!");
+		// to node is null
+		else if (to == null)
+			showError("BLITZ ERROR: Tried to attack null instead of a node!");
+		// from node isn't owned by this player
+		else if (from.getOwner() != this)
+			showError("BLITZ ERROR: Tried to attack from an unowned node!");
+		// to node is owned by this player
+		else if (to.getOwner() == this)
+			showError("BLITZ ERROR: Tried to attack an owned node!");
+		// no units to attack with
+		else if (from.getUnits() <= 1)
+			showError("BLITZ ERROR: Tried to attack with zero units!");
+		// nodes aren't adjacent
+		else if (graph.isAdjacent(from, to) == false)
+			showError("BLITZ ERROR: Tried to attack a non-adjacent node!");
+		// no errors - settle the fight
+		else {
+			int attackers = from.getUnits() - 1;
+			int defenders = to.getUnits();
+			Blitz.resolve(random, attackers, defenders, blitzResult);
+			int unitsLost = attackers - blitzResult[Blitz.ATTACKERS];
+			int unitsKilled = defenders - blitzResult[Blitz.DEFENDERS];
+			Player defender = to.getOwner();
+			
+			// see if the attacker won
+			if (blitzResult[Blitz.DEFENDERS] == 0) {
+				// subtract losses from units available to move
+				from.addUnits(-unitsLost);
+				
+				// transfer ownership
+				to.setOwner(this);
+				
+				// check how many units to move
+				int move = occupy(from, to);
+				
+				// reverse changes, in case an error occurs
+				from.addUnits(unitsLost);
+				to.setOwner(defender);
+				
+				// too many units being moved
+				if (move >= from.getUnits() - unitsLost)
+					showError("OCCUPY ERROR: Tried to move too many units!");
+				// no units being moved
+				else if (move == 0)
+					showError("OCCUPY ERROR: Tried to move zero units!");
+				// negative number of units being moved
+				else if (move < 0)
+					showError("OCCUPY ERROR: Tried to move a negative number of units!");
+				// no errors - exchange ownership and units
+				else {
+					add(Stat.NODES_WON, 1);
+					defender.add(Stat.NODES_LOST, 1);
+					if (graph.getNumOwnedNodes(defender) == 1)
+						add(Stat.PLAYERS_KILLED, 1);
+					to.setOwner(this);
+					to.setUnits(0);
+					from.addUnits(-unitsLost);
+					graph.moveUnits(from, to, move);
+					if (log != null) {
+						log.attack(this, from, to, unitsLost, unitsKilled);
+						log.occupy(this, from, to, move);
+					}
+					error = false;
+				}
+			}
+			// otherwise, just process unit losses
+			else {
+				from.addUnits(-unitsLost);
+				to.addUnits(-unitsKilled);
+				if (log != null)
+					log.attack(this, from, to, unitsLost, unitsKilled);
+				error = false;
+			}
+			
+			// update the telemetry for every round at once
+			if (!error) {
+				add(Stat.ATTACKS, blitzResult[Blitz.ROUNDS]);
+				add(Stat.UNITS_KILLED, unitsKilled);
+				add(Stat.UNITS_LOST, unitsLost);
+				defender.add(Stat.UNITS_KILLED, unitsLost);
+				defender.add(Stat.UNITS_LOST, unitsKilled);
+			}
+		}
+		return error;
+	}
+	
+	/**
+	 * Gets the chance of blitzing a node from another and taking it (see blitz()).
+	 * @param from The node the attack would come from.
+	 * @param to The node that would be attacked.
+	 * @return The probability, from 0 to 1.
+	 */
+	public double getWinProbability(Node from, Node to) {
+		return Blitz.getWinProbability(from.getUnits() - 1, to.getUnits());
+	}
+	
+	/**
+	 * Gets the strategies the player picked for the current game, for game records.
+	 * @return A copy of the strategies, or null if the player doesn't pick any.
+	 */
+	public int[] getStrategies() {
+		return null;
+	}
+	
+	/**
+	 * Turns blitz mode on or off. Players that support it settle their attacks with
+	 * blitz() instead of calling attack() in a loop. Off by default.
+	 * @param enabled True to blitz, false to attack round by round.
+	 */
+	public void setBlitz(boolean enabled) {
+		blitzing = enabled;
+		return;
+	}
+	
+	public boolean isBlitz() {
+		return blitzing;
+	}
+	
 	/**
 	 * Fortifies one node using units from another. Returns a boolean indicating
 	 * if there was an error. Call this function once at the end of turn().
@@ -352,17 +533,198 @@ public abstract class Player {
 		else if (num < 0)
 			showError("FORTIFY ERROR: Tried to transfer a negative number of units!");
 		// nodes aren't adjacent
-		else if (from.getAdj().contains(to) == false)
+		else if (graph.isAdjacent(from, to) == false)
 			showError("FORTIFY ERROR: Tried to transfer to a non-adjacent node!");
 		// no errors - move the units
 		else {
 			graph.moveUnits(from, to, num);
+			if (log != null)
+				log.fortify(this, from, to, num);
 			error = false;
 		}
 		
 		return error;
 	}
 	
+	/**
+	 * Sorts nodes by their units the way the Balanced and Wall AIs always have: each
+	 * pass goes down the list and moves every node that is out of order with the next
+	 * one to the end of the list, where the pass meets it again, until a pass moves
+	 * nothing. Equal nodes end up in an order that depends on the whole list, so this
+	 * keeps those AIs' moves as they were.
+	 *
+	 * Moving a node to the end never changes the order of the others, so a pass leaves
+	 * every node that is in order with the next one where it is, in one go, and only
+	 * the few that aren't (and maybe the last node) go on to be sorted among themselves
+	 * (see passOrder) and put at the end. The list is kept linked from pass to pass and
+	 * only the nodes next to the moved ones are looked at again, so a pass costs about
+	 * as much as the nodes it moves instead of the whole list.
+	 * @param nodes The nodes to sort, which are left as they are.
+	 * @param descending True to put the most units first, false for the fewest.
+	 * @return A new ArrayList<Node> of the sorted nodes.
+	 */
+	static ArrayList<Node> sortByUnits(ArrayList<Node> nodes, boolean descending) {
+		int size = nodes.size();
+		int[] keys = new int[size];
+		int[] prev = new int[size];
+		int[] next = new int[size];
+		int[] labels = new int[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = descending ? -nodes.get(i).getUnits() : nodes.get(i).getUnits();
+			prev[i] = i - 1;
+			next[i] = (i + 1 < size) ? i + 1 : -1;
+			labels[i] = i;
+		}
+		int head = (size > 0) ? 0 : -1;
+		int tail = size - 1;
+		int nextLabel = size;
+
+		// the nodes that may be out of order with the next one; at first, all of them
+		int[] checks = new int[size];
+		boolean[] checking = new boolean[size];
+		int checkCount = size;
+		for (int i = 0; i < size; i++) {
+			checks[i] = i;
+			checking[i] = true;
+		}
+		long[] moving = new long[size + 1];
+		int[] order = new int[size + 1];
+
+		while (true) {
+			// find the nodes out of order with the next one, in list order
+			int count = 0;
+			for (int c = 0; c < checkCount; c++) {
+				int i = checks[c];
+				checking[i] = false;
+				if (i != tail && keys[i] > keys[next[i]])
+					moving[count++] = ((long)labels[i] << 32) | i;
+			}
+			checkCount = 0;
+			if (count == 0)
+				break;
+			Arrays.sort(moving, 0, count);
+			for (int m = 0; m < count; m++)
+				order[m] = (int)moving[m];
+
+			// the last node goes round too if it is out of order with the first to go round
+			if (keys[tail] > keys[order[0]])
+				order[count++] = tail;
+			passOrder(keys, order, count);
+
+			// take them out, then put them back at the end in the order the pass leaves them
+			for (int m = 0; m < count; m++) {
+				int i = order[m];
+				if (prev[i] >= 0)
+					next[prev[i]] = next[i];
+				else
+					head = next[i];
+				if (next[i] >= 0)
+					prev[next[i]] = prev[i];
+				else
+					tail = prev[i];
+			}
+			for (int m = 0; m < count; m++) {
+				int p = prev[order[m]];
+				if (p >= 0 && !checking[p]) {
+					checking[p] = true;
+					checks[checkCount++] = p;
+				}
+			}
+			for (int m = 0; m < count; m++) {
+				int i = order[m];
+				prev[i] = tail;
+				next[i] = -1;
+				if (tail >= 0) {
+					next[tail] = i;
+					if (!checking[tail]) {
+						checking[tail] = true;
+						checks[checkCount++] = tail;
+					}
+				}
+				else
+					head = i;
+				tail = i;
+				labels[i] = nextLabel++;
+			}
+		}
+
+		ArrayList<Node> sorted = new ArrayList<Node>(size);
+		for (int i = head; i >= 0; i = next[i])
+			sorted.add(nodes.get(i));
+		return sorted;
+	}
+
+	/**
+	 * Works out the order one pass of sortByUnits leaves a list in. The pass goes in
+	 * rounds: each round leaves behind, in order, every node that isn't out of order
+	 * with the next one, and then the last node if it isn't out of order with the first
+	 * one left, until one node is left. Only the nodes whose next node was left behind
+	 * need to be looked at again, so the pass takes linear time.
+	 * @param keys The keys of the nodes; a node is out of order when its key is above
+	 * the next one's.
+	 * @param items The nodes of the list, in order, which are put in the order the pass
+	 * leaves them in.
+	 * @param size The number of nodes in the list.
+	 */
+	private static void passOrder(int[] keys, int[] items, int size) {
+		int[] prev = new int[size];
+		int[] next = new int[size];
+		int[] checks = new int[size];
+		int[] passed = new int[size];
+		for (int i = 0; i < size; i++) {
+			prev[i] = i - 1;
+			next[i] = i + 1;
+		}
+		int head = 0;
+		int tail = size - 1;
+		int left = size;
+		int done = 0;
+		int checkCount = size - 1;
+		for (int i = 0; i < checkCount; i++)
+			checks[i] = i;
+
+		while (left > 1) {
+			// find the nodes in order with the next one, before any are taken out
+			int leaving = 0;
+			for (int c = 0; c < checkCount; c++) {
+				int i = checks[c];
+				if (i != tail && keys[items[i]] <= keys[items[next[i]]])
+					passed[done + leaving++] = i;
+			}
+
+			// take them out, and look at the nodes before them again next round
+			checkCount = 0;
+			for (int l = 0; l < leaving; l++) {
+				int i = passed[done++];
+				int p = prev[i];
+				if (p >= 0)
+					next[p] = next[i];
+				else
+					head = next[i];
+				prev[next[i]] = p;
+				left--;
+				if (p >= 0 && (checkCount == 0 || checks[checkCount-1] != p))
+					checks[checkCount++] = p;
+			}
+
+			// the last node is compared with the first one left
+			if (head == tail)
+				break;
+			if (keys[items[tail]] <= keys[items[head]]) {
+				passed[done++] = tail;
+				tail = prev[tail];
+				left--;
+			}
+		}
+		passed[done] = head;
+
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++)
+			order[i] = items[passed[i]];
+		System.arraycopy(order, 0, items, 0, size);
+		return;
+	}
+
 	/**
 	 * Optional function to implement. Will be called when each game starts.
 	 */
@@ -0,0 +1,243 @@
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The Profiler records where the time of a game goes. Game.runGame times every call
+ * it makes to a player, by player and by phase (see Phase), into log-scale latency
+ * histograms, and the graph counts its threat queries, the nodes those queries
+ * visit and the lists of nodes it copies (see Counter).
+ *
+ * Profiling is off unless a Profiler is given to a game (see Game.setProfiler), and
+ * can be turned on and off between games. A Profiler belongs to one game, and so to
+ * one thread; the profiles of several games can be added up with merge(). Players
+ * are told apart by name, so the profiles of games with the same line-up line up.
+ *
+ */
+public class Profiler {
+
+	/**
+	 * The calls Game.runGame makes to a player.
+	 */
+	public enum Phase {
+		/** Player.gameStart, once a game. */
+		GAME_START,
+		/** Player.place during the setup. */
+		SETUP,
+		/** Player.place for the new units at the start of a turn. */
+		REINFORCE,
+		/** Player.turn. */
+		TURN
+	}
+
+	/**
+	 * The work counted by the graph.
+	 */
+	public enum Counter {
+		/** Calls to Graph.getThreat and Graph.getAdjThreat. */
+		THREAT_QUERIES,
+		/** Threat searches actually run, on cache misses. */
+		THREAT_SEARCHES,
+		/** Nodes visited by those searches. */
+		THREAT_NODES_VISITED,
+		/** Copies of a node's adjacency list made by Node.getAdj. */
+		ADJACENCY_COPIES,
+		/** Lists of nodes made by the graph's queries, such as Graph.getOwnedNodes. */
+		NODE_LIST_COPIES
+	}
+
+	/**
+	 * A histogram of call latencies. Bucket b holds the calls that took from 2^(b-1)
+	 * up to 2^b nanoseconds, so recording a call is a single bit count.
+	 */
+	public static class Histogram {
+		private
+			long[] buckets = new long[64];
+			long count = 0;
+			long total = 0;
+			long max = 0;
+
+		/**
+		 * Records one call.
+		 * @param nanos How long the call took.
+		 */
+		public void record(long nanos) {
+			buckets[64 - Long.numberOfLeadingZeros(Math.max(nanos, 0))]++;
+			count++;
+			total += nanos;
+			max = Math.max(max, nanos);
+			return;
+		}
+
+		/**
+		 * Adds the calls recorded by another histogram to this one.
+		 * @param other The other histogram.
+		 */
+		public void merge(Histogram other) {
+			for (int b = 0; b < buckets.length; b++)
+				buckets[b] += other.buckets[b];
+			count += other.count;
+			total += other.total;
+			max = Math.max(max, other.max);
+			return;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getTotal() {
+			return total;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public double getMean() {
+			return (count > 0) ? total / (double)count : 0;
+		}
+
+		/**
+		 * Gets an upper bound on a percentile of the latencies, to within a factor of two.
+		 * @param fraction The percentile, from 0 to 1.
+		 * @return The upper edge of the bucket the percentile falls in, in nanoseconds.
+		 */
+		public long getPercentile(double fraction) {
+			long rank = (long)Math.ceil(fraction * count);
+			long seen = 0;
+			for (int b = 0; b < buckets.length; b++) {
+				seen += buckets[b];
+				if (seen >= rank && seen > 0)
+					return Math.min((b == 0) ? 0 : (1L << b) - 1, max);
+			}
+			return max;
+		}
+	}
+
+	private
+		LinkedHashMap<String, Histogram[]> histograms = new LinkedHashMap<String, Histogram[]>();
+		long[] counters = new long[Counter.values().length];
+
+	/**
+	 * Records one call to a player.
+	 * @param player The player called.
+	 * @param phase The phase the call was made in.
+	 * @param nanos How long the call took.
+	 */
+	public void record(Player player, Phase phase, long nanos) {
+		getHistograms(player.getName())[phase.ordinal()].record(nanos);
+		return;
+	}
+
+	/**
+	 * Adds to a counter.
+	 * @param counter The counter.
+	 * @param amount The amount to add.
+	 */
+	public void count(Counter counter, long amount) {
+		counters[counter.ordinal()] += amount;
+		return;
+	}
+
+	public long get(Counter counter) {
+		return counters[counter.ordinal()];
+	}
+
+	/**
+	 * Gets the latencies of one player's calls in one phase.
+	 * @param player The player's name.
+	 * @param phase The phase.
+	 * @return The Histogram, empty if the player hasn't been seen.
+	 */
+	public Histogram getHistogram(String player, Phase phase) {
+		return getHistograms(player)[phase.ordinal()];
+	}
+
+	/**
+	 * Adds another profile to this one.
+	 * @param other The other profile.
+	 */
+	public void merge(Profiler other) {
+		for (Map.Entry<String, Histogram[]> entry : other.histograms.entrySet()) {
+			Histogram[] mine = getHistograms(entry.getKey());
+			for (int p = 0; p < mine.length; p++)
+				mine[p].merge(entry.getValue()[p]);
+		}
+		for (int c = 0; c < counters.length; c++)
+			counters[c] += other.counters[c];
+		return;
+	}
+
+	/**
+	 * Forgets everything recorded so far.
+	 */
+	public void clear() {
+		histograms.clear();
+		for (int c = 0; c < counters.length; c++)
+			counters[c] = 0;
+		return;
+	}
+
+	/**
+	 * Writes the header line of the CSV format used by write().
+	 * @param out The writer.
+	 */
+	public static void writeHeader(PrintWriter out) {
+		out.println("point,player,phase,calls,total_ns,mean_ns,p50_ns,p90_ns,p99_ns,max_ns");
+		return;
+	}
+
+	/**
+	 * Writes the profile as CSV lines: one per player and phase, then one per counter
+	 * (with the counter's name as the phase and its value as the calls).
+	 * @param out The writer.
+	 * @param label The label of the first column, such as the sweep point.
+	 */
+	public void write(PrintWriter out, String label) {
+		for (Map.Entry<String, Histogram[]> entry : histograms.entrySet()) {
+			for (Phase phase : Phase.values()) {
+				Histogram h = entry.getValue()[phase.ordinal()];
+				out.println(String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%.1f,%d,%d,%d,%d", label, entry.getKey(), phase,
+						h.getCount(), h.getTotal(), h.getMean(), h.getPercentile(0.5), h.getPercentile(0.9),
+						h.getPercentile(0.99), h.getMax()));
+			}
+		}
+		for (Counter counter : Counter.values())
+			out.println(label + ",," + counter + "," + get(counter) + ",,,,,,");
+		return;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		String out = "";
+		for (Map.Entry<String, Histogram[]> entry : histograms.entrySet()) {
+			out += "  Player " + entry.getKey() + "\n";
+			for (Phase phase : Phase.values()) {
+				Histogram h = entry.getValue()[phase.ordinal()];
+				out += String.format(Locale.ROOT, "%14s: %10d calls, %10.1f ms, mean %8.0f ns, p99 < %d ns\n", phase,
+						h.getCount(), h.getTotal() / 1e6, h.getMean(), h.getPercentile(0.99));
+			}
+		}
+		for (Counter counter : Counter.values())
+			out += String.format(Locale.ROOT, "%22s: %d\n", counter, get(counter));
+		return out;
+	}
+
+	/**
+	 * Gets a player's histograms, one per phase, making them if the player is new.
+	 */
+	private Histogram[] getHistograms(String player) {
+		Histogram[] h = histograms.get(player);
+		if (h == null) {
+			h = new Histogram[Phase.values().length];
+			for (int p = 0; p < h.length; p++)
+				h[p] = new Histogram();
+			histograms.put(player, h);
+		}
+		return h;
+	}
+}
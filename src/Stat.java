@@ -0,0 +1,48 @@
+import java.util.HashMap;
+
+/**
+ * The Stat enum lists the telemetry counters kept for each player. The names match
+ * the string keys used by Player.get and Player.set.
+ *
+ */
+public enum Stat {
+	/** Rounds of battle fought as the attacker. */
+	ATTACKS,
+	/** Nodes captured. */
+	NODES_WON,
+	/** Nodes lost to other players. */
+	NODES_LOST,
+	/** Players knocked out of the game. */
+	PLAYERS_KILLED,
+	/** Enemy units destroyed, attacking or defending. */
+	UNITS_KILLED,
+	/** Own units lost, attacking or defending. */
+	UNITS_LOST,
+	/** Turns taken. */
+	TURNS,
+	/** Games won. */
+	GAMES_WON,
+	/** Games lost. */
+	GAMES_LOST;
+
+	/**
+	 * The number of counters.
+	 */
+	public static final int COUNT = values().length;
+
+	private static final HashMap<String, Stat> byKey = new HashMap<String, Stat>();
+
+	static {
+		for (Stat stat : values())
+			byKey.put(stat.name(), stat);
+	}
+
+	/**
+	 * Looks up a counter by its string key.
+	 * @param key The key, such as "ATTACKS".
+	 * @return The Stat, or null if there's no counter with that key.
+	 */
+	public static Stat forKey(String key) {
+		return byKey.get(key);
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * A StoppingRule decides when a run of games has played enough of them, by looking
+ * at how often each player has won so far. There are two kinds:
+ *
+ * A precision rule (see precision()) stops once the Wilson score interval of every
+ * player's win rate is no wider than a given half-width on either side, at a given
+ * confidence level.
+ *
+ * A sequential probability ratio test (see sprt()) stops once it can tell, for every
+ * player, whether its win rate is at most p0 or at least p1, with given chances of
+ * getting it wrong either way (Wald's SPRT on each player's wins).
+ *
+ * Either way, at least a minimum number of games is always played, so a lucky start
+ * can't stop a run early. Rules don't keep any state, so one rule can be shared by
+ * any number of runs.
+ *
+ */
+public class StoppingRule {
+
+	/**
+	 * The default number of games played before a rule is checked.
+	 */
+	public static final int MIN_GAMES = 100;
+
+	private
+		boolean sequential;
+		double z;
+		double halfWidth;
+		double p0;
+		double p1;
+		double upperBound;
+		double lowerBound;
+		int minGames = MIN_GAMES;
+
+	private StoppingRule() {
+	}
+
+	/**
+	 * Creates a rule that stops once every player's win rate is known to within a
+	 * given precision.
+	 * @param halfWidth The largest distance from a win rate to either end of its
+	 * interval, such as 0.02 for plus or minus two percentage points.
+	 * @param confidence The confidence level of the intervals, such as 0.95.
+	 * @return The new StoppingRule.
+	 */
+	public static StoppingRule precision(double halfWidth, double confidence) {
+		if (halfWidth <= 0 || confidence <= 0 || confidence >= 1)
+			throw new IllegalArgumentException("STOPPING ERROR: Invalid precision or confidence!");
+		StoppingRule rule = new StoppingRule();
+		rule.sequential = false;
+		rule.halfWidth = halfWidth;
+		rule.z = zFor(confidence);
+		return rule;
+	}
+
+	/**
+	 * Creates a rule that stops once every player's win rate is known to be at most
+	 * p0 or at least p1.
+	 * @param p0 The win rate of the first hypothesis.
+	 * @param p1 The win rate of the second hypothesis, above p0.
+	 * @param alpha The chance of deciding on p1 when the win rate is p0.
+	 * @param beta The chance of deciding on p0 when the win rate is p1.
+	 * @return The new StoppingRule.
+	 */
+	public static StoppingRule sprt(double p0, double p1, double alpha, double beta) {
+		if (p0 <= 0 || p1 >= 1 || p0 >= p1 || alpha <= 0 || beta <= 0 || alpha + beta >= 1)
+			throw new IllegalArgumentException("STOPPING ERROR: Invalid hypotheses or error rates!");
+		StoppingRule rule = new StoppingRule();
+		rule.sequential = true;
+		rule.p0 = p0;
+		rule.p1 = p1;
+		rule.upperBound = Math.log((1 - beta) / alpha);
+		rule.lowerBound = Math.log(beta / (1 - alpha));
+		return rule;
+	}
+
+	/**
+	 * Sets the number of games always played before the rule is checked.
+	 * @param games The number of games.
+	 * @return This rule, for chaining.
+	 */
+	public StoppingRule setMinGames(int games) {
+		minGames = Math.max(1, games);
+		return this;
+	}
+
+	public int getMinGames() {
+		return minGames;
+	}
+
+	/**
+	 * Checks if a run has played enough games.
+	 * @param games The number of games played so far.
+	 * @param wins The number of games each player has won so far.
+	 * @return True if the run can stop, false if it should keep going.
+	 */
+	public boolean shouldStop(long games, long[] wins) {
+		if (games < minGames)
+			return false;
+		for (long w : wins) {
+			if (!isDecided(w, games))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if a single player's win rate is known well enough.
+	 * @param wins The number of games the player won.
+	 * @param games The number of games played.
+	 * @return True if it is, false if it isn't.
+	 */
+	public boolean isDecided(long wins, long games) {
+		if (sequential) {
+			double ratio = getLogLikelihoodRatio(wins, games);
+			return ratio >= upperBound || ratio <= lowerBound;
+		}
+		double[] interval = wilsonInterval(wins, games, z);
+		return interval[1] - interval[0] <= 2*halfWidth;
+	}
+
+	/**
+	 * Gets the log of how much more likely a player's wins are if its win rate is p1
+	 * than if it is p0. Only meaningful for SPRT rules.
+	 * @param wins The number of games the player won.
+	 * @param games The number of games played.
+	 * @return The log likelihood ratio.
+	 */
+	public double getLogLikelihoodRatio(long wins, long games) {
+		return wins * Math.log(p1 / p0) + (games - wins) * Math.log((1 - p1) / (1 - p0));
+	}
+
+	/**
+	 * Gets the Wilson score interval of a win rate. Unlike the normal approximation, it
+	 * stays inside 0 to 1 and behaves with few games or win rates near the ends.
+	 * @param wins The number of games won.
+	 * @param games The number of games played.
+	 * @param z The number of standard deviations the interval covers (see zFor).
+	 * @return The lower and upper ends of the interval.
+	 */
+	public static double[] wilsonInterval(long wins, long games, double z) {
+		if (games <= 0)
+			return new double[] {0, 1};
+		double n = games;
+		double p = wins / n;
+		double z2 = z*z;
+		double centre = (p + z2/(2*n)) / (1 + z2/n);
+		double spread = z / (1 + z2/n) * Math.sqrt(p*(1 - p)/n + z2/(4*n*n));
+		return new double[] {Math.max(0, centre - spread), Math.min(1, centre + spread)};
+	}
+
+	/**
+	 * Gets the number of standard deviations a two-sided interval has to cover to
+	 * reach a confidence level (for example, 1.96 for 0.95). Accurate to about 0.0005.
+	 * @param confidence The confidence level, between 0 and 1.
+	 * @return The z value.
+	 */
+	public static double zFor(double confidence) {
+		// rational approximation of the normal quantile (Abramowitz and Stegun 26.2.23)
+		double tail = (1 - confidence) / 2;
+		double t = Math.sqrt(-2 * Math.log(tail));
+		return t - (2.515517 + 0.802853*t + 0.010328*t*t) / (1 + 1.432788*t + 0.189269*t*t + 0.001308*t*t*t);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		if (sequential)
+			return "SPRT(p0=" + p0 + ", p1=" + p1 + ")";
+		return "precision(+/-" + halfWidth + ", z=" + Math.round(z*1000)/1000.0 + ")";
+	}
+}
@@ -0,0 +1,83 @@
+import java.util.ArrayList;
+
+/**
+ * The SweepGrid describes a parameter sweep over the EvolvingPlayer's learning rate,
+ * its mutation rate and the line-up it plays against. Every combination of the three
+ * axes becomes one SweepPoint. Point n gets the seed GameRandom.seedFor(seed, n), so
+ * the whole sweep can be repeated from the grid's seed.
+ *
+ */
+public class SweepGrid {
+
+	private
+		double[] learningRates;
+		double[] mutationRates;
+		LineUp[] opponents;
+		int maxGames;
+		long seed = GameRandom.newSeed();
+
+	/**
+	 * Constructor for the SweepGrid class.
+	 * @param learningRates The learning rates to sweep over.
+	 * @param mutationRates The mutation rates to sweep over.
+	 * @param opponents The opponent line-ups to sweep over.
+	 * @param maxGames The maximum number of games to play at each point.
+	 */
+	public SweepGrid(double[] learningRates, double[] mutationRates, LineUp[] opponents, int maxGames) {
+		this.learningRates = learningRates;
+		this.mutationRates = mutationRates;
+		this.opponents = opponents;
+		this.maxGames = maxGames;
+	}
+
+	/**
+	 * Sets the master seed the seed of each point is derived from.
+	 * @param s The master seed.
+	 */
+	public void setSeed(long s) {
+		seed = s;
+		return;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Creates the values of a sweep axis. The values are accumulated the same way as a
+	 * for loop with "x += step", so they match the loops that were used before.
+	 * @param start The first value.
+	 * @param end The largest allowed value.
+	 * @param step The amount to add between values.
+	 * @return Array of the values from start to end.
+	 */
+	public static double[] range(double start, double end, double step) {
+		ArrayList<Double> values = new ArrayList<Double>(0);
+		for (double x = start; x <= end; x += step)
+			values.add(x);
+
+		double[] toReturn = new double[values.size()];
+		for (int i = 0; i < toReturn.length; i++)
+			toReturn[i] = values.get(i);
+		return toReturn;
+	}
+
+	/**
+	 * Creates a point for every combination of the axes. Points are ordered by
+	 * line-up, then mutation rate, then learning rate.
+	 * @return ArrayList<SweepPoint> of the points, none of which have been run yet.
+	 */
+	public ArrayList<SweepPoint> getPoints() {
+		ArrayList<SweepPoint> points = new ArrayList<SweepPoint>(0);
+		for (LineUp lineUp : opponents) {
+			for (double m : mutationRates) {
+				for (double l : learningRates) {
+					SweepPoint point = new SweepPoint(l, m, lineUp, maxGames);
+					point.setSeed(GameRandom.seedFor(seed, points.size()));
+					points.add(point);
+				}
+			}
+		}
+		return points;
+	}
+}
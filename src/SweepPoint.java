@@ -0,0 +1,200 @@
+import java.util.ArrayList;
+
+/**
+ * A SweepPoint is a single point of a parameter sweep: an EvolvingPlayer with a given
+ * learning rate and mutation rate that plays against a line-up of opponents until it
+ * has fully evolved, the game limit is reached or, if the point has a stopping rule,
+ * the players' win rates have converged. Each point owns its own Game, so
+ * points can be run on different threads at the same time. Game n of a point is
+ * played with the seed GameRandom.seedFor(seed, n), so a point with a given seed
+ * always plays out the same way.
+ *
+ */
+public class SweepPoint {
+
+	private
+		double learningRate;
+		double mutationRate;
+		LineUp opponents;
+		int maxGames;
+		long seed = GameRandom.newSeed();
+		GameSink sink = null;
+		volatile boolean profiling = false;
+		Profiler profiler = new Profiler();
+		StoppingRule stoppingRule = null;
+		boolean converged = false;
+		Game game = null;
+		EvolvingPlayer evolvingPlayer = null;
+
+	/**
+	 * Constructor for the SweepPoint class.
+	 * @param learningRate The EvolvingPlayer's learning rate.
+	 * @param mutationRate The EvolvingPlayer's mutation rate.
+	 * @param opponents The line-up the EvolvingPlayer plays against.
+	 * @param maxGames The maximum number of games to play.
+	 */
+	public SweepPoint(double learningRate, double mutationRate, LineUp opponents, int maxGames) {
+		this.learningRate = learningRate;
+		this.mutationRate = mutationRate;
+		this.opponents = opponents;
+		this.maxGames = maxGames;
+	}
+
+	public double getLearningRate() {
+		return learningRate;
+	}
+
+	public double getMutationRate() {
+		return mutationRate;
+	}
+
+	public LineUp getOpponents() {
+		return opponents;
+	}
+
+	/**
+	 * Sets the seed the seed of each game is derived from.
+	 * @param s The seed of the point.
+	 */
+	public void setSeed(long s) {
+		seed = s;
+		return;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Sets the sink that gets the record of every game played at this point. Points
+	 * run at the same time can share a sink.
+	 * @param s The sink, or null to not record games.
+	 */
+	public void setSink(GameSink s) {
+		sink = s;
+		return;
+	}
+
+	/**
+	 * Turns profiling of this point's games on or off (see Profiler). Off by default;
+	 * it can be switched while the point is running, and takes effect from the next
+	 * game.
+	 * @param enabled True to profile the games, false to stop.
+	 */
+	public void setProfiling(boolean enabled) {
+		profiling = enabled;
+		return;
+	}
+
+	public boolean isProfiling() {
+		return profiling;
+	}
+
+	/**
+	 * Gets the profile of the games played while profiling was on.
+	 * @return The Profiler, empty if profiling was never on.
+	 */
+	public Profiler getProfiler() {
+		return profiler;
+	}
+
+	/**
+	 * Sets a rule that stops the point early once the players' win rates are known
+	 * well enough (see StoppingRule). The point still stops if the EvolvingPlayer
+	 * fully evolves or the game limit is reached first.
+	 * @param rule The StoppingRule, or null to always play until one of those.
+	 */
+	public void setStoppingRule(StoppingRule rule) {
+		stoppingRule = rule;
+		return;
+	}
+
+	public StoppingRule getStoppingRule() {
+		return stoppingRule;
+	}
+
+	/**
+	 * Checks if the point was stopped by its stopping rule.
+	 * @return True if the win rates converged, false if the point stopped for another
+	 * reason or hasn't been run.
+	 */
+	public boolean hasConverged() {
+		return converged;
+	}
+
+	/**
+	 * Gets the game this point was played with.
+	 * @return The Game, or null if the point hasn't been run yet.
+	 */
+	public Game getGame() {
+		return game;
+	}
+
+	/**
+	 * Gets the number of games that were played at this point.
+	 * @return The number of games played.
+	 */
+	public int getGamesPlayed() {
+		return game.getTelemetry(game.TOTAL_GAMES);
+	}
+
+	/**
+	 * Gets the number of games the EvolvingPlayer won at this point.
+	 * @return The number of games won.
+	 */
+	public int getGamesWon() {
+		return (int)evolvingPlayer.get(Stat.GAMES_WON);
+	}
+
+	/**
+	 * Plays the games for this point.
+	 * @param map Integer array of integer arrays specifying the Risk map (see Game.setupMap).
+	 */
+	public void run(int[][] map) {
+		run(new GameMap(map));
+		return;
+	}
+
+	/**
+	 * Plays the games for this point on a map that may be shared with other points.
+	 * @param map The map to play on.
+	 */
+	public void run(GameMap map) {
+		game = new Game();
+		game.setupMap(map);
+		game.setSink(sink);
+
+		// add the opponents, then the evolving player
+		for (Player player : opponents.createPlayers())
+			game.addPlayer(player);
+		evolvingPlayer = new EvolvingPlayer("Evolving");
+		game.addPlayer(evolvingPlayer);
+
+		evolvingPlayer.learningRate = learningRate;
+		evolvingPlayer.mutationRate = mutationRate;
+		converged = false;
+		long[] wins = new long[game.getPlayers().size()];
+
+		for (int i = 0; i < maxGames; i++) {
+			game.setProfiler(profiling ? profiler : null);
+			game.setSeed(GameRandom.seedFor(seed, i));
+			game.randomizeStart();
+			game.runGame();
+
+			// stop once the evolving player has fully evolved
+			if (evolvingPlayer.isFullyEvolved())
+				break;
+
+			// or once every player's win rate is known well enough
+			if (stoppingRule != null) {
+				ArrayList<Player> players = game.getPlayers();
+				for (int p = 0; p < players.size(); p++)
+					wins[p] = players.get(p).get(Stat.GAMES_WON);
+				if (stoppingRule.shouldStop(i + 1, wins)) {
+					converged = true;
+					break;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,97 @@
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The SweepScheduler runs the points of a parameter sweep concurrently on a
+ * work-stealing fork/join pool. The list of points is split in halves until each
+ * task holds a single point, so threads that finish their cheap points (such as ones
+ * that evolve early) steal the remaining work from busier threads.
+ *
+ */
+public class SweepScheduler {
+
+	private
+		GameMap map;
+		ForkJoinPool pool;
+
+	/**
+	 * Constructor for the SweepScheduler class. Uses one thread per available core.
+	 * @param map Integer array of integer arrays specifying the Risk map (see Game.setupMap).
+	 */
+	public SweepScheduler(int[][] map) {
+		this(map, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor for the SweepScheduler class. Uses one thread per available core.
+	 * @param map The map to play on.
+	 */
+	public SweepScheduler(GameMap map) {
+		this(map, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor for the SweepScheduler class.
+	 * @param map Integer array of integer arrays specifying the Risk map (see Game.setupMap).
+	 * @param threads The number of threads to use.
+	 */
+	public SweepScheduler(int[][] map, int threads) {
+		this(new GameMap(map), threads);
+	}
+
+	/**
+	 * Constructor for the SweepScheduler class. Every point's game shares the map.
+	 * @param map The map to play on.
+	 * @param threads The number of threads to use.
+	 */
+	public SweepScheduler(GameMap map, int threads) {
+		this.map = map;
+		pool = new ForkJoinPool(Math.max(threads, 1));
+	}
+
+	/**
+	 * Runs every point, returning once all of them are finished.
+	 * @param points The points to run.
+	 */
+	public void run(List<SweepPoint> points) {
+		if (points.size() > 0)
+			pool.invoke(new SweepTask(points, 0, points.size()));
+		return;
+	}
+
+	/**
+	 * Shuts down the scheduler's threads.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+		return;
+	}
+
+	/**
+	 * A task that runs a range of points, splitting it until only one point is left.
+	 */
+	@SuppressWarnings("serial")
+	private class SweepTask extends RecursiveAction {
+		private
+			List<SweepPoint> points;
+			int start;
+			int end;
+
+		SweepTask(List<SweepPoint> points, int start, int end) {
+			this.points = points;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start == 1)
+				points.get(start).run(map);
+			else {
+				int middle = (start + end) / 2;
+				invokeAll(new SweepTask(points, start, middle), new SweepTask(points, middle, end));
+			}
+		}
+	}
+}
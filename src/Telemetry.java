@@ -0,0 +1,61 @@
+import java.util.Arrays;
+
+/**
+ * The Telemetry class holds a player's counters as one long per Stat, so updating a
+ * counter is a plain array access and the totals of long sweeps don't overflow.
+ * A Telemetry belongs to one player in one game at a time, so it isn't thread safe;
+ * use ConcurrentTelemetry to add up results from several threads.
+ *
+ */
+public class Telemetry {
+
+	private
+		long[] counts = new long[Stat.COUNT];
+
+	/**
+	 * Gets the value of a counter.
+	 * @param stat The counter.
+	 * @return The value.
+	 */
+	public long get(Stat stat) {
+		return counts[stat.ordinal()];
+	}
+
+	/**
+	 * Sets the value of a counter.
+	 * @param stat The counter.
+	 * @param value The new value.
+	 */
+	public void set(Stat stat, long value) {
+		counts[stat.ordinal()] = value;
+		return;
+	}
+
+	/**
+	 * Adds to a counter.
+	 * @param stat The counter.
+	 * @param amount The amount to add.
+	 */
+	public void add(Stat stat, long amount) {
+		counts[stat.ordinal()] += amount;
+		return;
+	}
+
+	/**
+	 * Adds every counter of another Telemetry to this one.
+	 * @param other The telemetry to add.
+	 */
+	public void merge(Telemetry other) {
+		for (int i = 0; i < counts.length; i++)
+			counts[i] += other.counts[i];
+		return;
+	}
+
+	/**
+	 * Sets every counter back to 0.
+	 */
+	public void clear() {
+		Arrays.fill(counts, 0);
+		return;
+	}
+}
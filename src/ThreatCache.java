@@ -0,0 +1,252 @@
+/**
+ * The ThreatCache class remembers threat and adjacency threat values for each
+ * (node, range) pair. A threat walk of range r never looks further than r nodes out,
+ * so when a node changes owner or units only the entries within r nodes of it can
+ * change. Changed nodes are queued as dirty, and the next lookup invalidates just
+ * the entries around them instead of dropping the whole cache, using each node's
+ * ball of nearby nodes (see HopDistances). The balls are walked outwards from the
+ * changed node, so this relies on every link going both ways, as GameMap checks.
+ * On a map of at most 64 nodes the dirty nodes are spread out over the neighbour
+ * masks instead (see Topology.getRowMasks), one hop per range, so an entry near
+ * several changes is only invalidated once.
+ *
+ * The cache is changed by lookups, so a graph with its cache enabled must only be
+ * queried by one thread at a time.
+ *
+ */
+public class ThreatCache {
+
+	/**
+	 * The largest range that is cached. Larger ranges are always recalculated.
+	 */
+	public static final int MAX_RANGE = 4;
+
+	private
+		Topology topology;
+		HopDistances distances = null;
+		long[] rows;
+		int[][] threat = new int[MAX_RANGE+1][];
+		int[][] adjThreat = new int[MAX_RANGE+1][];
+		int highestRange = 0;
+		int[] dirty;
+		int dirtyCount = 0;
+		boolean[] isDirty;
+		long hits = 0;
+		long misses = 0;
+
+	/**
+	 * Constructor for the ThreatCache class.
+	 * @param t The adjacency of the map whose threats are cached.
+	 */
+	public ThreatCache(Topology t) {
+		topology = t;
+		int n = topology.getNodeCount();
+		dirty = new int[n];
+		isDirty = new boolean[n];
+		rows = topology.getRowMasks();
+	}
+
+	/**
+	 * Looks up a cached threat value.
+	 * @param range The range of the threat walk.
+	 * @param node The index of the node.
+	 * @return The cached value, or -1 if it isn't cached.
+	 */
+	public int getThreat(int range, int node) {
+		return lookup(threat, range, node);
+	}
+
+	/**
+	 * Looks up a cached adjacency threat value.
+	 * @param range The range of the threat walk.
+	 * @param node The index of the node.
+	 * @return The cached value, or -1 if it isn't cached.
+	 */
+	public int getAdjThreat(int range, int node) {
+		return lookup(adjThreat, range, node);
+	}
+
+	/**
+	 * Stores a threat value.
+	 * @param range The range of the threat walk.
+	 * @param node The index of the node.
+	 * @param value The threat value, which can't be negative.
+	 */
+	public void putThreat(int range, int node, int value) {
+		store(threat, range, node, value);
+	}
+
+	/**
+	 * Stores an adjacency threat value.
+	 * @param range The range of the threat walk.
+	 * @param node The index of the node.
+	 * @param value The adjacency threat value, which can't be negative.
+	 */
+	public void putAdjThreat(int range, int node, int value) {
+		store(adjThreat, range, node, value);
+	}
+
+	/**
+	 * Marks a node as changed. Entries around it are invalidated on the next lookup.
+	 * @param node The index of the node whose owner or units changed.
+	 */
+	public void markDirty(int node) {
+		if (!isDirty[node]) {
+			isDirty[node] = true;
+			dirty[dirtyCount++] = node;
+		}
+		return;
+	}
+
+	/**
+	 * Invalidates every entry.
+	 */
+	public void clear() {
+		for (int r = 1; r <= highestRange; r++) {
+			invalidateAll(threat[r]);
+			invalidateAll(adjThreat[r]);
+		}
+		for (int i = 0; i < dirtyCount; i++)
+			isDirty[dirty[i]] = false;
+		dirtyCount = 0;
+		return;
+	}
+
+	/**
+	 * Gets the number of lookups that found a cached value.
+	 * @return The number of hits.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the number of lookups that didn't find a cached value.
+	 * @return The number of misses.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Resets the hit and miss counters.
+	 */
+	public void resetCounters() {
+		hits = 0;
+		misses = 0;
+		return;
+	}
+
+	private int lookup(int[][] table, int range, int node) {
+		if (range <= 0 || range > MAX_RANGE)
+			return -1;
+		if (dirtyCount > 0)
+			flush();
+
+		int value = (table[range] == null) ? -1 : table[range][node];
+		if (value >= 0)
+			hits++;
+		else
+			misses++;
+		return value;
+	}
+
+	private void store(int[][] table, int range, int node, int value) {
+		if (range <= 0 || range > MAX_RANGE)
+			return;
+
+		// create the row for this range the first time it's used
+		if (table[range] == null) {
+			table[range] = new int[topology.getNodeCount()];
+			invalidateAll(table[range]);
+		}
+		if (range > highestRange)
+			highestRange = range;
+
+		table[range][node] = value;
+		return;
+	}
+
+	private void invalidateAll(int[] row) {
+		if (row != null) {
+			for (int i = 0; i < row.length; i++)
+				row[i] = -1;
+		}
+		return;
+	}
+
+	/**
+	 * Invalidates the entries near every dirty node. An entry of range r is invalidated
+	 * if its node is at most r nodes away from a dirty node.
+	 */
+	private void flush() {
+		if (rows != null) {
+			flushMasks();
+			return;
+		}
+
+		// the balls are only built once there is something to invalidate
+		if (distances == null && highestRange > 0)
+			distances = topology.getHopDistances();
+		for (int i = 0; i < dirtyCount; i++) {
+			if (highestRange > 0)
+				invalidateAround(dirty[i]);
+			isDirty[dirty[i]] = false;
+		}
+		dirtyCount = 0;
+		return;
+	}
+
+	/**
+	 * Invalidates the entries that could depend on the dirty nodes, spreading them out
+	 * one hop for each range.
+	 */
+	private void flushMasks() {
+		long changed = 0;
+		for (int i = 0; i < dirtyCount; i++) {
+			changed |= 1L << dirty[i];
+			isDirty[dirty[i]] = false;
+		}
+		dirtyCount = 0;
+
+		for (int r = 1; r <= highestRange; r++) {
+			changed = Bitboard.spread(rows, changed, 1);
+			for (long rest = changed; rest != 0; rest &= rest - 1) {
+				int node = Long.numberOfTrailingZeros(rest);
+				if (threat[r] != null)
+					threat[r][node] = -1;
+				if (adjThreat[r] != null)
+					adjThreat[r][node] = -1;
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Invalidates the entries that could depend on the given node, walking the node's
+	 * ball out to the highest cached range.
+	 * @param start The index of the changed node.
+	 */
+	private void invalidateAround(int start) {
+		int[] ballOffsets = distances.getBallOffsets();
+		int[] ballNodes = distances.getBallNodes();
+		byte[] ballDistances = distances.getBallDistances();
+
+		// the ball is in breadth-first order, so stop at the first node that's too far
+		for (int i = ballOffsets[start]; i < ballOffsets[start+1]; i++) {
+			int d = ballDistances[i];
+			if (d > highestRange)
+				break;
+
+			// every range that reaches this far is out of date
+			int node = ballNodes[i];
+			for (int r = Math.max(d, 1); r <= highestRange; r++) {
+				if (threat[r] != null)
+					threat[r][node] = -1;
+				if (adjThreat[r] != null)
+					adjThreat[r][node] = -1;
+			}
+		}
+		return;
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * The ThreatOrder class keeps one player's frontier nodes in order of threat, for one
+ * range, in a NodeHeap. Threats change whenever a node within range changes owner or
+ * units, so the graph tells every ThreatOrder which nodes changed, and on the next
+ * lookup only the frontier nodes within range of them (found through the balls of
+ * HopDistances) are looked at again. If so many nodes changed that this would cost
+ * more than starting over, or the range reaches past the balls, the heap is rebuilt
+ * from the player's frontier instead. On a map with a Bitboard the changed nodes are
+ * spread out over the neighbour masks instead, so each node near several changes is
+ * looked at once and any range can be patched up.
+ *
+ */
+public class ThreatOrder {
+
+	private
+		Graph graph;
+		int slot;
+		int range;
+		NodeHeap heap;
+		int[] dirty;
+		boolean[] isDirty;
+		int dirtyCount = 0;
+		boolean rebuild = true;
+		Bitboard board;
+		long[] rows;
+
+	/**
+	 * Constructor for the ThreatOrder class. The heap is filled on the first lookup.
+	 * @param graph The graph, already frozen.
+	 * @param slot The slot of the player whose frontier is ordered.
+	 * @param range The range of the threat walk.
+	 */
+	public ThreatOrder(Graph graph, int slot, int range) {
+		this.graph = graph;
+		this.slot = slot;
+		this.range = range;
+		int count = graph.getTopology().getNodeCount();
+		heap = new NodeHeap(count, true);
+		dirty = new int[count];
+		isDirty = new boolean[count];
+		board = graph.getBitboard();
+		rows = graph.getTopology().getRowMasks();
+	}
+
+	public int getSlot() {
+		return slot;
+	}
+
+	public int getRange() {
+		return range;
+	}
+
+	/**
+	 * Marks a node as changed. Called by the graph whenever a node's owner or units
+	 * change.
+	 * @param node The index of the node.
+	 */
+	void markDirty(int node) {
+		if (rebuild || isDirty[node])
+			return;
+		if (board == null && dirtyCount == dirty.length / 8) {
+			// too much has changed to patch it up node by node
+			rebuild = true;
+			clearDirty();
+			return;
+		}
+		isDirty[node] = true;
+		dirty[dirtyCount++] = node;
+		return;
+	}
+
+	/**
+	 * Gets the most threatened frontier node, the lowest index first among equals.
+	 * @return The index of the node, or -1 if the player has no frontier.
+	 */
+	public int peek() {
+		refresh();
+		return heap.peek();
+	}
+
+	/**
+	 * Brings the heap up to date with every change since the last lookup.
+	 */
+	private void refresh() {
+		HopDistances distances = (board == null) ? graph.getTopology().getHopDistances() : null;
+		if (distances != null && range > distances.getBallHops()) {
+			rebuild = true;
+			clearDirty();
+		}
+
+		if (rebuild) {
+			heap.clear();
+			NodeSet frontier = graph.getFrontierNodeSet(graph.getSlotPlayer(slot));
+			for (int i = frontier.next(0); i >= 0; i = frontier.next(i+1))
+				heap.put(i, graph.getThreat(range, graph.getNode(i)));
+			rebuild = false;
+			return;
+		}
+
+		// a change of owner also moves the neighbours on or off the frontier
+		int reach = Math.max(range, 1);
+		if (board != null) {
+			long changed = 0;
+			for (int d = 0; d < dirtyCount; d++)
+				changed |= 1L << dirty[d];
+			long frontier = board.getFrontierMask(slot);
+			for (long near = Bitboard.spread(rows, changed, reach); near != 0; near &= near - 1) {
+				int node = Long.numberOfTrailingZeros(near);
+				if ((frontier & (1L << node)) != 0)
+					heap.put(node, graph.getThreat(range, graph.getNode(node)));
+				else
+					heap.remove(node);
+			}
+			clearDirty();
+			return;
+		}
+
+		int[] ballOffsets = distances.getBallOffsets();
+		int[] ballNodes = distances.getBallNodes();
+		byte[] ballDistances = distances.getBallDistances();
+		for (int d = 0; d < dirtyCount; d++) {
+			// the ball is in breadth-first order, so stop at the first node that's too far
+			int start = dirty[d];
+			for (int b = ballOffsets[start]; b < ballOffsets[start+1] && ballDistances[b] <= reach; b++)
+				update(ballNodes[b]);
+		}
+		clearDirty();
+		return;
+	}
+
+	/**
+	 * Puts a node in the heap with its current threat if it is on the frontier, or
+	 * takes it out if it isn't.
+	 */
+	private void update(int node) {
+		Node n = graph.getNode(node);
+		if (graph.getOwnerSlots()[node] == slot && graph.isFrontier(n))
+			heap.put(node, graph.getThreat(range, n));
+		else
+			heap.remove(node);
+		return;
+	}
+
+	private void clearDirty() {
+		for (int i = 0; i < dirtyCount; i++)
+			isDirty[dirty[i]] = false;
+		dirtyCount = 0;
+		return;
+	}
+}
@@ -0,0 +1,248 @@
+/**
+ * The ThreatSearch class runs the threat and adjacency threat walks without touching
+ * the nodes. Instead of marking each node as checked and clearing every flag
+ * afterwards, it stamps visited nodes with the number of the current search, so
+ * starting a new search is free and a search only costs as much as the nodes it
+ * visits. The walk is an explicit depth-first stack that visits nodes in the same
+ * order as the old recursive walk, so it gives the same values.
+ *
+ * The board is read from primitive arrays (an owner id and a unit count per node),
+ * and both kinds of threat are summed in the same walk, since they visit the same
+ * nodes. A ThreatSearch holds the scratch buffers of one search at a time, so each
+ * thread needs its own; Graph keeps one per thread.
+ *
+ */
+public class ThreatSearch {
+
+	private
+		int[] stamps;
+		int epoch = 0;
+		int[] stackNode = new int[4];
+		int[] stackRange = new int[4];
+		int[] stackPos = new int[4];
+		int[] stackThreat = new int[4];
+		int[] stackAdjThreat = new int[4];
+		int threat = 0;
+		int adjThreat = 0;
+		int visited = 0;
+
+	/**
+	 * Constructor for the ThreatSearch class.
+	 * @param nodeCount The number of nodes in the graph to be searched.
+	 */
+	public ThreatSearch(int nodeCount) {
+		stamps = new int[nodeCount];
+	}
+
+	/**
+	 * Gets the number of nodes this search has room for.
+	 * @return The number of nodes.
+	 */
+	public int getCapacity() {
+		return stamps.length;
+	}
+
+	/**
+	 * Gets the threat found by the last search: each enemy node reached contributes its
+	 * units times the range left when it is reached. The start node's own units are
+	 * not subtracted.
+	 * @return The threat.
+	 */
+	public int getThreat() {
+		return threat;
+	}
+
+	/**
+	 * Gets the adjacency threat found by the last search: each enemy node reached
+	 * contributes the range left when it is reached.
+	 * @return The adjacency threat.
+	 */
+	public int getAdjThreat() {
+		return adjThreat;
+	}
+
+	/**
+	 * Gets the number of nodes visited by the last search, not counting the start node.
+	 * @return The number of nodes visited.
+	 */
+	public int getVisited() {
+		return visited;
+	}
+
+	/**
+	 * Runs a bounded depth-first walk out from a node, summing both kinds of threat.
+	 * From the start node the walk only enters nodes owned by someone else, and from
+	 * every other node it only enters nodes owned by someone other than that node's
+	 * owner. No node is entered twice.
+	 * @param topology The map's adjacency.
+	 * @param owners The owner id of every node.
+	 * @param units The number of units in every node.
+	 * @param start The index of the node to start at.
+	 * @param range How many nodes out to check.
+	 */
+	public void search(Topology topology, int[] owners, int[] units, int start, int range) {
+		threat = 0;
+		adjThreat = 0;
+		visited = 0;
+		if (range <= 0)
+			return;
+
+		int[] offsets = topology.getOffsets();
+		int[] neighbours = topology.getNeighbours();
+
+		// start a new search; on the (rare) wraparound, clear the old stamps
+		epoch++;
+		if (epoch == 0) {
+			for (int i = 0; i < stamps.length; i++)
+				stamps[i] = 0;
+			epoch = 1;
+		}
+		if (range >= stackNode.length)
+			growStack(range + 1);
+
+		stamps[start] = epoch;
+
+		for (int i = offsets[start]; i < offsets[start+1]; i++) {
+			int first = neighbours[i];
+			if (owners[first] == owners[start] || stamps[first] == epoch)
+				continue;
+
+			// walk everything reachable through this neighbour
+			int depth = push(units, offsets, 0, first, range);
+			while (depth > 0) {
+				int top = depth - 1;
+				int node = stackNode[top];
+
+				// enter the next unvisited enemy neighbour, if there's range left
+				if (stackRange[top] > 1 && stackPos[top] < offsets[node+1]) {
+					int next = neighbours[stackPos[top]++];
+					if (owners[next] != owners[node] && stamps[next] != epoch)
+						depth = push(units, offsets, depth, next, stackRange[top] - 1);
+				}
+				// this node is done, so hand its sums to the node it was reached from
+				else {
+					depth--;
+					if (depth > 0) {
+						stackThreat[depth-1] += stackThreat[depth];
+						stackAdjThreat[depth-1] += stackAdjThreat[depth];
+					}
+					else {
+						threat += stackThreat[depth];
+						adjThreat += stackAdjThreat[depth];
+					}
+				}
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Runs the same walk as search(Topology, int[], int[], int, int) on a map with a
+	 * Bitboard, marking the visited nodes in a mask instead of stamping them. A node
+	 * entered with two hops of range left enters its neighbours with one, and those go
+	 * no further, so which of them it enters doesn't depend on the order they are
+	 * looked at in: they are taken all at once, as a mask of the unvisited neighbours
+	 * its owner doesn't own.
+	 * @param topology The map's adjacency.
+	 * @param board The bitboard of the graph's owners.
+	 * @param owners The owner slot of every node.
+	 * @param units The number of units in every node.
+	 * @param start The index of the node to start at.
+	 * @param range How many nodes out to check.
+	 */
+	public void search(Topology topology, Bitboard board, int[] owners, int[] units, int start, int range) {
+		threat = 0;
+		adjThreat = 0;
+		visited = 0;
+		if (range <= 0)
+			return;
+
+		int[] offsets = topology.getOffsets();
+		int[] neighbours = topology.getNeighbours();
+		if (range >= stackNode.length)
+			growStack(range + 1);
+
+		long seen = 1L << start;
+		for (int i = offsets[start]; i < offsets[start+1]; i++) {
+			int first = neighbours[i];
+			if (owners[first] == owners[start] || (seen & (1L << first)) != 0)
+				continue;
+
+			// walk everything reachable through this neighbour
+			seen |= 1L << first;
+			int depth = push(units, offsets, 0, first, range);
+			while (depth > 0) {
+				int top = depth - 1;
+				int node = stackNode[top];
+
+				// take every neighbour with one hop left in one go, leaving the node
+				// nothing more to enter
+				if (stackRange[top] == 2) {
+					long leaves = board.getRow(node) & ~board.getOwnedMask(owners[node]) & ~seen;
+					seen |= leaves;
+					stackRange[top] = 1;
+					for (; leaves != 0; leaves &= leaves - 1) {
+						stackThreat[top] += units[Long.numberOfTrailingZeros(leaves)];
+						stackAdjThreat[top]++;
+						visited++;
+					}
+				}
+				// enter the next unvisited enemy neighbour, if there's range left
+				else if (stackRange[top] > 1 && stackPos[top] < offsets[node+1]) {
+					int next = neighbours[stackPos[top]++];
+					if (owners[next] != owners[node] && (seen & (1L << next)) == 0) {
+						seen |= 1L << next;
+						depth = push(units, offsets, depth, next, stackRange[top] - 1);
+					}
+				}
+				// this node is done, so hand its sums to the node it was reached from
+				else {
+					depth--;
+					if (depth > 0) {
+						stackThreat[depth-1] += stackThreat[depth];
+						stackAdjThreat[depth-1] += stackAdjThreat[depth];
+					}
+					else {
+						threat += stackThreat[depth];
+						adjThreat += stackAdjThreat[depth];
+					}
+				}
+			}
+		}
+		return;
+	}
+
+	/**
+	 * Marks a node as visited and puts it on top of the stack.
+	 * @return The new stack depth.
+	 */
+	private int push(int[] units, int[] offsets, int depth, int node, int range) {
+		stamps[node] = epoch;
+		stackNode[depth] = node;
+		stackRange[depth] = range;
+		stackPos[depth] = offsets[node];
+		stackThreat[depth] = units[node] * range;
+		stackAdjThreat[depth] = range;
+		visited++;
+		return depth + 1;
+	}
+
+	/**
+	 * Makes the stack large enough for a search of the given depth.
+	 * @param size The number of frames needed.
+	 */
+	private void growStack(int size) {
+		stackNode = grow(stackNode, size);
+		stackRange = grow(stackRange, size);
+		stackPos = grow(stackPos, size);
+		stackThreat = grow(stackThreat, size);
+		stackAdjThreat = grow(stackAdjThreat, size);
+		return;
+	}
+
+	private int[] grow(int[] array, int size) {
+		int[] newArray = new int[size];
+		System.arraycopy(array, 0, newArray, 0, array.length);
+		return newArray;
+	}
+}
@@ -0,0 +1,135 @@
+import java.util.ArrayList;
+
+/**
+ * The Topology class is a frozen, compressed-sparse-row copy of a map's adjacency.
+ * The neighbours of node i are stored in neighbours[offsets[i]] through
+ * neighbours[offsets[i+1]-1], in the order they were linked. Since it never changes
+ * once it is built, a Topology can be read by any number of threads.
+ *
+ */
+public class Topology {
+
+	private
+		int[] offsets;
+		int[] neighbours;
+		HopDistances hopDistances = null;
+		long[] rowMasks = null;
+
+	/**
+	 * Constructor for the Topology class. Builds the adjacency from a list of linked nodes.
+	 * Every node's index must be its position in the list.
+	 * @param nodes ArrayList<Node> of the nodes to build the topology from.
+	 */
+	public Topology(ArrayList<Node> nodes) {
+		// count the links to size the arrays
+		offsets = new int[nodes.size() + 1];
+		for (int i = 0; i < nodes.size(); i++)
+			offsets[i+1] = offsets[i] + nodes.get(i).getDegree();
+
+		// copy in the neighbour ids
+		neighbours = new int[offsets[nodes.size()]];
+		for (int i = 0; i < nodes.size(); i++) {
+			Node node = nodes.get(i);
+			for (int j = 0; j < node.getDegree(); j++)
+				neighbours[offsets[i] + j] = node.getAdjIndex(j);
+		}
+	}
+
+	/**
+	 * Constructor for the Topology class. Takes the compressed-sparse-row arrays as they
+	 * are, without copying or checking them (see GameMap for a checked map).
+	 * @param offsets The row offsets, one more than the number of nodes.
+	 * @param neighbours The neighbour ids, indexed through the offsets.
+	 */
+	public Topology(int[] offsets, int[] neighbours) {
+		this.offsets = offsets;
+		this.neighbours = neighbours;
+	}
+
+	/**
+	 * Gets the number of nodes in the topology.
+	 * @return The number of nodes.
+	 */
+	public int getNodeCount() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Gets the number of nodes adjacent to a node.
+	 * @param node The index of the node.
+	 * @return The node's degree.
+	 */
+	public int getDegree(int node) {
+		return offsets[node+1] - offsets[node];
+	}
+
+	/**
+	 * Gets one of the nodes adjacent to a node.
+	 * @param node The index of the node.
+	 * @param n Which of the node's neighbours to get, from 0 to degree-1.
+	 * @return The index of the neighbour.
+	 */
+	public int getNeighbour(int node, int n) {
+		return neighbours[offsets[node] + n];
+	}
+
+	/**
+	 * Checks if two nodes are adjacent. Only the first node's row is scanned, so this
+	 * takes constant time on maps where the degree is bounded.
+	 * @param n1 The index of the first node.
+	 * @param n2 The index of the second node.
+	 * @return True if n2 is adjacent to n1, false if it isn't.
+	 */
+	public boolean isAdjacent(int n1, int n2) {
+		for (int i = offsets[n1]; i < offsets[n1+1]; i++) {
+			if (neighbours[i] == n2)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the row offsets. The neighbours of node i start at offsets[i] and end before
+	 * offsets[i+1]. The array must not be modified.
+	 * @return The offsets array.
+	 */
+	public int[] getOffsets() {
+		return offsets;
+	}
+
+	/**
+	 * Gets the neighbour ids, indexed through the offsets. The array must not be modified.
+	 * @return The neighbours array.
+	 */
+	public int[] getNeighbours() {
+		return neighbours;
+	}
+
+	/**
+	 * Gets the hop distances between the nodes, working them out the first time.
+	 * The balls reach as far as the largest cached threat range.
+	 * @return The HopDistances of this topology.
+	 */
+	public synchronized HopDistances getHopDistances() {
+		if (hopDistances == null)
+			hopDistances = new HopDistances(this, ThreatCache.MAX_RANGE);
+		return hopDistances;
+	}
+
+	/**
+	 * Gets the neighbours of every node as a 64-bit mask, bit j of row i being set when
+	 * node j is adjacent to node i, working them out the first time. Only maps of at
+	 * most Bitboard.MAX_NODES nodes have them. The array must not be modified.
+	 * @return The row masks, indexed by node, or null if the map is too big.
+	 */
+	public synchronized long[] getRowMasks() {
+		if (rowMasks == null && Bitboard.fits(getNodeCount())) {
+			rowMasks = new long[getNodeCount()];
+			for (int i = 0; i < getNodeCount(); i++) {
+				for (int j = offsets[i]; j < offsets[i+1]; j++)
+					rowMasks[i] |= 1L << neighbours[j];
+			}
+		}
+		return rowMasks;
+	}
+}
@@ -0,0 +1,190 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The TournamentRunner plays a number of independent games on several threads.
+ * Every worker thread owns its own Game (and therefore its own Graph), and every
+ * game is played by freshly created players from the line-up, so no state is
+ * shared between threads. Each seat's player telemetry is added to a shared
+ * ConcurrentTelemetry as soon as a game ends, and when all games are finished the
+ * game telemetry of all workers is merged into a single Game.
+ *
+ * Game n is always played with the seed GameRandom.seedFor(seed, n), whichever
+ * worker claims it, so a run with a given seed gives the same totals on any number
+ * of threads, and any single game can be replayed.
+ *
+ */
+public class TournamentRunner {
+
+	private
+		GameMap map;
+		LineUp lineUp;
+		int threads;
+		int maxTurns = 500;
+		long seed = GameRandom.newSeed();
+		GameSink sink = null;
+
+	/**
+	 * Constructor for the TournamentRunner class. Uses one thread per available core.
+	 * @param map Integer array of integer arrays specifying the Risk map (see Game.setupMap).
+	 * @param lineUp The line-up used to create the players of each game.
+	 */
+	public TournamentRunner(int[][] map, LineUp lineUp) {
+		this(map, lineUp, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor for the TournamentRunner class.
+	 * @param map Integer array of integer arrays specifying the Risk map (see Game.setupMap).
+	 * @param lineUp The line-up used to create the players of each game.
+	 * @param threads The number of worker threads to use.
+	 */
+	public TournamentRunner(int[][] map, LineUp lineUp, int threads) {
+		this(new GameMap(map), lineUp, threads);
+	}
+
+	/**
+	 * Constructor for the TournamentRunner class. Every worker's game shares the map.
+	 * @param map The map to play on.
+	 * @param lineUp The line-up used to create the players of each game.
+	 * @param threads The number of worker threads to use.
+	 */
+	public TournamentRunner(GameMap map, LineUp lineUp, int threads) {
+		this.map = map;
+		this.lineUp = lineUp;
+		this.threads = Math.max(threads, 1);
+	}
+
+	/**
+	 * Sets the turn limit used for each game.
+	 * @param turns Maximum number of turns before a game is called a tie.
+	 */
+	public void setMaxTurns(int turns) {
+		maxTurns = turns;
+		return;
+	}
+
+	/**
+	 * Sets the master seed the seed of each game is derived from.
+	 * @param s The master seed.
+	 */
+	public void setSeed(long s) {
+		seed = s;
+		return;
+	}
+
+	/**
+	 * Gets the master seed the seed of each game is derived from.
+	 * @return The master seed.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Sets the sink that gets the record of every game. It is shared by all the
+	 * worker threads.
+	 * @param s The sink, or null to not record games.
+	 */
+	public void setSink(GameSink s) {
+		sink = s;
+		return;
+	}
+
+	/**
+	 * Plays the given number of games and merges the results.
+	 * @param games The number of games to play.
+	 * @return A Game holding the merged game telemetry, with one player per seat of
+	 * the line-up holding that seat's merged player telemetry.
+	 * @throws InterruptedException If the calling thread is interrupted while waiting.
+	 */
+	public Game run(final int games) throws InterruptedException {
+		final AtomicInteger nextGame = new AtomicInteger(0);
+
+		// the per-seat totals, shared by every worker
+		final ConcurrentTelemetry[] seatTotals = new ConcurrentTelemetry[lineUp.createPlayers().length];
+		for (int i = 0; i < seatTotals.length; i++)
+			seatTotals[i] = new ConcurrentTelemetry();
+
+		// create the workers; each one claims games until they run out
+		List<Callable<Game>> workers = new ArrayList<Callable<Game>>(threads);
+		for (int i = 0; i < threads; i++) {
+			workers.add(new Callable<Game>() {
+				public Game call() {
+					return runWorker(nextGame, games, seatTotals);
+				}
+			});
+		}
+
+		// run the workers and merge their results
+		Game result = createResult();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			for (Future<Game> future : pool.invokeAll(workers))
+				result.mergeTelemetry(future.get());
+		}
+		catch (ExecutionException e) {
+			throw new RuntimeException("TOURNAMENT ERROR: A worker failed!", e.getCause());
+		}
+		finally {
+			pool.shutdown();
+		}
+
+		// hand the seat totals to the result's players
+		for (int i = 0; i < seatTotals.length; i++)
+			result.getPlayers().get(i).getTelemetry().merge(seatTotals[i].snapshot());
+
+		return result;
+	}
+
+	/**
+	 * Plays games on the calling thread until all of them have been claimed.
+	 * @param nextGame Counter shared by the workers for claiming games.
+	 * @param games The total number of games to play.
+	 * @param seatTotals The per-seat totals to add each game's player telemetry to.
+	 * @return A Game holding this worker's game telemetry.
+	 */
+	private Game runWorker(AtomicInteger nextGame, int games, ConcurrentTelemetry[] seatTotals) {
+		// set up this worker's own game and map
+		Game game = new Game();
+		game.setupMap(map);
+		game.setSink(sink);
+
+		int n;
+		while ((n = nextGame.getAndIncrement()) < games) {
+			// every game gets new players so games don't depend on each other
+			Player[] seats = lineUp.createPlayers();
+			game.clearPlayers();
+			for (Player player : seats)
+				game.addPlayer(player);
+
+			game.setSeed(GameRandom.seedFor(seed, n));
+			game.randomizeStart();
+			game.runGame(maxTurns, false, false);
+
+			// add the players' results to their seats
+			for (int i = 0; i < seats.length; i++)
+				seatTotals[i].add(seats[i].getTelemetry());
+		}
+
+		game.clearPlayers();
+		return game;
+	}
+
+	/**
+	 * Creates an empty Game to merge worker results into.
+	 * @return The new Game, with one player for each seat of the line-up.
+	 */
+	private Game createResult() {
+		Game result = new Game();
+		for (Player player : lineUp.createPlayers())
+			result.addPlayer(player);
+		return result;
+	}
+}